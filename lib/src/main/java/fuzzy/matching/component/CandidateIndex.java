@@ -0,0 +1,50 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Element;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>
+ * Index giving the candidates of an Element from a hash of its Token values,
+ * instead of the posting lists of its Tokens.
+ * </p>
+ * The TokenSet of each Element put is kept by ordinal, for the Tokens of the
+ * Element being matched to be counted on its candidates. Implementations are
+ * safe to put and get from any number of threads at once.
+ */
+@SuppressWarnings("rawtypes")
+interface CandidateIndex {
+
+  /**
+   * Puts the Element in the index.
+   *
+   * @param element Element to be put
+   * @param ordinal ordinal of the Element
+   */
+  void put(Element element, int ordinal);
+
+  /**
+   * Removes the Element of an ordinal from the index, and the buckets left
+   * empty.
+   *
+   * @param ordinal ordinal of the Element
+   */
+  void remove(int ordinal);
+
+  /**
+   * Gives the ordinals of the candidates of an Element. An ordinal can be given
+   * more than once.
+   *
+   * @param tokenSet TokenSet of the Element to be matched
+   * @param consumer receives each candidate ordinal
+   */
+  void getCandidates(TokenSet tokenSet, IntConsumer consumer);
+
+  /**
+   * Gets the TokenSet of an Element put.
+   *
+   * @param ordinal ordinal of the Element
+   * @return TokenSet, null if the Element was removed
+   */
+  TokenSet getTokenSet(int ordinal);
+}
@@ -1,12 +1,22 @@
 package fuzzy.matching.component;
 
+import fuzzy.matching.domain.BlockingKey;
 import fuzzy.matching.domain.Document;
 import fuzzy.matching.domain.Element;
 import fuzzy.matching.domain.Match;
 import fuzzy.matching.domain.Score;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.commons.lang3.BooleanUtils;
@@ -23,9 +33,65 @@ import org.apache.commons.lang3.BooleanUtils;
 public class DocumentMatch {
 
   private final ElementMatch elementMatch;
+  private final List<BlockingKey> blockingKeys;
+  private final Map<String, LongAdder> comparisonCounts = new ConcurrentHashMap<>();
 
   public DocumentMatch() {
-    this.elementMatch = new ElementMatch();
+    this(new TokenRepo());
+  }
+
+  /**
+   * Constructor for DocumentMatch, matching against the Documents already in the
+   * TokenRepo, such as one loaded from a snapshot.
+   *
+   * @param tokenRepo - the TokenRepo to match against and put the Documents in
+   */
+  public DocumentMatch(TokenRepo tokenRepo) {
+    this(tokenRepo, List.of());
+  }
+
+  /**
+   * Constructor for DocumentMatch, comparing only the Documents sharing the value
+   * of a BlockingKey, given here for every Document or added to a Document
+   * itself. The Token hits of the Elements of other Documents are not counted, so
+   * they are not scored. A Document with no value for any BlockingKey is compared
+   * with every Document.
+   *
+   * @param tokenRepo    - the TokenRepo to match against and put the Documents in
+   * @param blockingKeys - the BlockingKeys of every Document, each a blocking
+   *                     pass
+   */
+  public DocumentMatch(TokenRepo tokenRepo, List<BlockingKey> blockingKeys) {
+    this.elementMatch = new ElementMatch(tokenRepo);
+    this.blockingKeys = List.copyOf(blockingKeys);
+  }
+
+  public TokenRepo getTokenRepo() {
+    return elementMatch.getTokenRepo();
+  }
+
+  /**
+   * Gets the number of Document pairs compared so far sharing the value of each
+   * BlockingKey, by name. A pair sharing the values of more than one BlockingKey
+   * is counted for each of them.
+   *
+   * @return the comparison count of each blocking pass
+   */
+  public Map<String, Long> getComparisonCounts() {
+    Map<String, Long> counts = new HashMap<>();
+    comparisonCounts.forEach((name, count) -> counts.put(name, count.sum()));
+    return counts;
+  }
+
+  /**
+   * Removes the Document from the TokenRepo, so another version of it can be
+   * matched.
+   *
+   * @param document Document to be removed, or another version of it
+   * @return true if the Document was in the TokenRepo
+   */
+  public boolean removeDocument(Document document) {
+    return getTokenRepo().remove(document);
   }
 
   /**
@@ -35,25 +101,181 @@ public class DocumentMatch {
    * @return Stream of Match of Document type objects
    */
   public Stream<Match<Document>> matchDocuments(Stream<Document> documents) {
-
-    Stream<Match<Document>> documentMatch = documents.flatMap(document -> {
-      Set<Element> elements = document.getPreProcessedElement();
-      Set<Match<Element>> eleMatches = elements.stream()
-          .flatMap(element -> elementMatch.matchElement(element).stream())
-          .collect(Collectors.toSet());
-      return documentThresholdMatching(document, eleMatches);
-    });
+    Map<Document, Optional<Map<String, String>>> blocks = new ConcurrentHashMap<>();
+    Stream<Match<Document>> documentMatch = documents.flatMap(document -> matchDocument(
+        document, getBlocks(blocks, document), blocks, elementMatch::matchElement,
+        DocumentMatch::isSource));
 
     return documentMatch;
   }
 
-  private Stream<Match<Document>> documentThresholdMatching(
-      Document document, Set<Match<Element>> matchingElements) {
-    Map<Document, List<Match<Element>>> matches = matchingElements.stream()
+  /**
+   * <p>
+   * Executes matching of a list of documents in two phases on the pool, first
+   * putting all their Elements in the TokenRepo in parallel, then matching each
+   * Document in parallel.
+   * </p>
+   * The Elements are given their ordinals in the order of the Documents before
+   * any is put, and each is only compared with the Elements of lower ordinals,
+   * so each pair is compared once, and the matches are the ones matchDocuments
+   * gives, in the same order. With the IDF TokenWeighting or a document frequency
+   * cap, the Tokens are weighed and demoted by their frequency in all the
+   * Documents, instead of in the ones before.
+   *
+   * @param documents List of Document objects
+   * @param pool      the pool to put and match the Documents in
+   * @return Stream of Match of Document type objects
+   */
+  public Stream<Match<Document>> matchDocuments(List<Document> documents, ForkJoinPool pool) {
+    return matchDocuments(List.of(), documents, pool);
+  }
+
+  /**
+   * <p>
+   * Executes matching of a list of documents against a list of documents to
+   * match with, in two phases on the pool like matchDocuments, with the matches
+   * matchDocuments gives for the Documents to match with followed by the
+   * Documents.
+   * </p>
+   * The Documents to match with are put, then each Document is matched with them
+   * and the Documents before it. A Document in both lists is put once, with the
+   * Documents to match with, and matched with all the Documents before its place
+   * in the list of Documents, its own Elements included. It is only given the
+   * reversed matches of the Documents after that place.
+   *
+   * @param matchWith the Documents to match with, only put
+   * @param documents the Documents to match
+   * @param pool      the pool to put and match the Documents in
+   * @return Stream of Match of Document type objects
+   */
+  public Stream<Match<Document>> matchDocuments(List<Document> matchWith,
+      List<Document> documents, ForkJoinPool pool) {
+    TokenRepo tokenRepo = getTokenRepo();
+    List<Element> elements = new ArrayList<>();
+    Map<Document, Integer> putDocuments = new IdentityHashMap<>();
+    int nextOrdinal = 0;
+    for (Document document : matchWith) {
+      if (putDocuments.putIfAbsent(document, -1) == null) {
+        nextOrdinal = register(document, elements, nextOrdinal);
+      }
+    }
+    // The ordinals below which a Document put before its place is matched
+    Map<Document, Integer> ordinalLimits = new IdentityHashMap<>();
+    for (int i = 0; i < documents.size(); i++) {
+      Document document = documents.get(i);
+      if (putDocuments.containsKey(document)) {
+        ordinalLimits.put(document, nextOrdinal);
+      } else {
+        nextOrdinal = register(document, elements, nextOrdinal);
+      }
+      putDocuments.put(document, i);
+    }
+
+    Map<Document, Optional<Map<String, String>>> blocks = new ConcurrentHashMap<>();
+    List<Match<Document>> matches = pool.submit(() -> {
+      elements.parallelStream().forEach(tokenRepo::put);
+      return documents.parallelStream()
+          .flatMap(document -> {
+            Integer ordinalLimit = ordinalLimits.get(document);
+            int place = putDocuments.get(document);
+            return matchDocument(document, getBlocks(blocks, document), blocks,
+                ordinalLimit == null ? elementMatch::matchPutElement
+                    : (element, candidateFilter) -> elementMatch.matchPutElement(
+                        element, candidateFilter, ordinalLimit),
+                matched -> isSource(matched) && putDocuments.getOrDefault(matched, -1) <= place);
+          })
+          .collect(Collectors.toList());
+    }).join();
+    return matches.stream();
+  }
+
+  private int register(Document document, List<Element> elements, int nextOrdinal) {
+    TokenRepo tokenRepo = getTokenRepo();
+    for (Element element : document.getPreProcessedElement()) {
+      nextOrdinal = Math.max(nextOrdinal, tokenRepo.register(element) + 1);
+      elements.add(element);
+    }
+    return nextOrdinal;
+  }
+
+  /**
+   * Matches a Document with the Documents in the TokenRepo, without putting it,
+   * so the TokenRepo is only read and the Document is matched as often as asked.
+   * Only the matches of the Document are given, not the reversed ones.
+   *
+   * @param document Document to be matched
+   * @return Stream of Match of Document type objects
+   */
+  public Stream<Match<Document>> queryDocument(Document document) {
+    Map<Document, Optional<Map<String, String>>> blocks = new HashMap<>();
+    return matchDocument(document, findBlocks(document), blocks, elementMatch::queryElement,
+        DocumentMatch::isSource)
+        .filter(match -> match.getData() == document);
+  }
+
+  /**
+   * Gets the k best matches of a Document with the Documents in the TokenRepo,
+   * without putting it. The Documents of the same key, other versions of it, are
+   * not matched. The Documents matched are scored from the highest upper bound
+   * of their score down, and only while their bound can beat the k-th best
+   * score found, so most of them are never scored.
+   *
+   * @param document Document to be matched
+   * @param k        the number of matches kept
+   * @return the best matches of the Document, the best first
+   */
+  public List<Match<Document>> queryDocument(Document document, int k) {
+    TopMatches topMatches = new TopMatches(document, k);
+    Map<Document, Optional<Map<String, String>>> blocks = new HashMap<>();
+    Optional<Map<String, String>> documentBlocks = findBlocks(document);
+    getCandidates(document, documentBlocks, blocks, elementMatch::queryElement)
+        .forEach((candidate, elementMatches) -> {
+          countComparison(documentBlocks, getBlocks(blocks, candidate));
+          if (!candidate.getKey().equals(document.getKey())) {
+            topMatches.addCandidate(candidate, elementMatches.stream()
+                .map(Match::getScore)
+                .collect(Collectors.toList()));
+          }
+        });
+    return topMatches.getMatches();
+  }
+
+  private Stream<Match<Document>> matchDocument(Document document,
+      Optional<Map<String, String>> documentBlocks,
+      Map<Document, Optional<Map<String, String>>> blocks,
+      BiFunction<Element, Predicate<Element>, Set<Match<Element>>> elementMatcher,
+      Predicate<Document> reversed) {
+    return documentThresholdMatching(document, documentBlocks, blocks,
+        getCandidates(document, documentBlocks, blocks, elementMatcher), reversed);
+  }
+
+  /**
+   * Gets the Element matches of a Document, by the Document matched.
+   */
+  private Map<Document, List<Match<Element>>> getCandidates(Document document,
+      Optional<Map<String, String>> documentBlocks,
+      Map<Document, Optional<Map<String, String>>> blocks,
+      BiFunction<Element, Predicate<Element>, Set<Match<Element>>> elementMatcher) {
+    Predicate<Element> candidateFilter = documentBlocks.isEmpty()
+        ? ElementMatch.ALL_CANDIDATES
+        : matchElement ->
+            isSharingBlock(documentBlocks, getBlocks(blocks, matchElement.getDocument()));
+    Set<Element> elements = document.getPreProcessedElement();
+    Set<Match<Element>> eleMatches = elements.stream()
+        .flatMap(element -> elementMatcher.apply(element, candidateFilter).stream())
+        .collect(Collectors.toSet());
+    return eleMatches.stream()
         .collect(
             Collectors.groupingBy(matchElement -> matchElement.getMatchedWith().getDocument()));
+  }
+
+  private Stream<Match<Document>> documentThresholdMatching(Document document,
+      Optional<Map<String, String>> documentBlocks,
+      Map<Document, Optional<Map<String, String>>> blocks,
+      Map<Document, List<Match<Element>>> matches, Predicate<Document> reversed) {
 
     Stream<Match<Document>> result = matches.entrySet().stream().flatMap(matchEntry -> {
+      countComparison(documentBlocks, getBlocks(blocks, matchEntry.getKey()));
 
       List<Score> childScoreList = matchEntry.getValue()
           .stream()
@@ -66,7 +288,7 @@ public class DocumentMatch {
       // Document match Found
       if (leftMatch.getScore().getResult() > leftMatch.getData().getThreshold()) {
 
-        if (BooleanUtils.isNotFalse(matchEntry.getKey().isSource())) {
+        if (reversed.test(matchEntry.getKey())) {
           Match<Document> rightMatch = new Match<Document>(
               matchEntry.getKey(), document, childScoreList);
           return Stream.of(leftMatch, rightMatch);
@@ -80,4 +302,66 @@ public class DocumentMatch {
     return result;
   }
 
+  /**
+   * Gets the BlockingKey values of a Document, kept for the match pass they are
+   * found in, as the Documents matched come up again for each Document. Nothing
+   * is kept with no BlockingKey to find.
+   */
+  private Optional<Map<String, String>> getBlocks(
+      Map<Document, Optional<Map<String, String>>> blocks, Document document) {
+    if (blockingKeys.isEmpty() && document.getBlockingKeys().isEmpty()) {
+      return Optional.empty();
+    }
+    return blocks.computeIfAbsent(document, this::findBlocks);
+  }
+
+  /**
+   * Finds the value of each BlockingKey of a Document by name, absent when it
+   * has no value for any BlockingKey, so it is compared with every Document, as
+   * it cannot be placed in any block.
+   */
+  private Optional<Map<String, String>> findBlocks(Document document) {
+    if (blockingKeys.isEmpty() && document.getBlockingKeys().isEmpty()) {
+      return Optional.empty();
+    }
+    Map<String, String> values = new HashMap<>();
+    for (List<BlockingKey> keys : List.of(blockingKeys, document.getBlockingKeys())) {
+      for (BlockingKey blockingKey : keys) {
+        String value = blockingKey.getValue(document);
+        if (value != null) {
+          values.put(blockingKey.getName(), value);
+        }
+      }
+    }
+    return values.isEmpty() ? Optional.empty() : Optional.of(values);
+  }
+
+  private static boolean isSource(Document document) {
+    return BooleanUtils.isNotFalse(document.isSource());
+  }
+
+  private static boolean isSharingBlock(Optional<Map<String, String>> blocks,
+      Optional<Map<String, String>> otherBlocks) {
+    if (blocks.isEmpty() || otherBlocks.isEmpty()) {
+      return true;
+    }
+    for (Map.Entry<String, String> block : blocks.get().entrySet()) {
+      if (block.getValue().equals(otherBlocks.get().get(block.getKey()))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void countComparison(Optional<Map<String, String>> blocks,
+      Optional<Map<String, String>> otherBlocks) {
+    if (blocks.isEmpty() || otherBlocks.isEmpty()) {
+      return;
+    }
+    for (Map.Entry<String, String> block : blocks.get().entrySet()) {
+      if (block.getValue().equals(otherBlocks.get().get(block.getKey()))) {
+        comparisonCounts.computeIfAbsent(block.getKey(), name -> new LongAdder()).increment();
+      }
+    }
+  }
 }
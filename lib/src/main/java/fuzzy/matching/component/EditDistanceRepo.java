@@ -0,0 +1,130 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Element;
+import fuzzy.matching.domain.MatchType;
+import fuzzy.matching.domain.Token;
+import fuzzy.matching.exception.MatchException;
+import fuzzy.matching.util.BkTree;
+import fuzzy.matching.util.FuzzyDictionary;
+import fuzzy.matching.util.LevenshteinDictionary;
+import fuzzy.matching.util.PostingList;
+import fuzzy.matching.util.SnapshotReader;
+import fuzzy.matching.util.SnapshotWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import org.apache.lucene.util.automaton.LevenshteinAutomata;
+
+/**
+ * Repo for the EQUALITY_DISTANCE MatchType, matching Tokens within the
+ * maxEditDistance of the Element.
+ */
+@SuppressWarnings("rawtypes")
+class EditDistanceRepo implements Repo {
+
+  private final TokenDictionary tokenDictionary;
+  private final FuzzyDictionary<PostingList> tokenMetricTree;
+  private final int maxEditDistance;
+  private final boolean transpositions;
+
+  EditDistanceRepo(Element element) {
+    this(element.getMaxEditDistance(), element.isTranspositions());
+  }
+
+  EditDistanceRepo(int maxEditDistance, boolean transpositions) {
+    this.maxEditDistance = maxEditDistance;
+    this.transpositions = transpositions;
+    if (maxEditDistance < 0) {
+      throw new MatchException("Edit distance can not be negative");
+    }
+    if (transpositions && maxEditDistance > LevenshteinAutomata.MAXIMUM_SUPPORTED_DISTANCE) {
+      throw new MatchException("Edit distance not supported with transpositions : "
+          + maxEditDistance);
+    }
+    // A single edit is cheapest to search in the BK-tree, the Levenshtein automaton
+    // keeps 2 edits and transpositions cheap
+    if (transpositions || maxEditDistance == LevenshteinAutomata.MAXIMUM_SUPPORTED_DISTANCE) {
+      tokenMetricTree = new LevenshteinDictionary<>(transpositions);
+    } else {
+      tokenMetricTree = new BkTree<>();
+    }
+    // The term goes in the fuzzy dictionary before any writer can add to its postings,
+    // and leaves it before it can be interned again
+    tokenDictionary = new TokenDictionary(
+        (term, postingList) -> tokenMetricTree.put((String) term, postingList),
+        term -> tokenMetricTree.remove((String) term));
+  }
+
+  @Override
+  public void put(Token token, int ordinal) {
+    // Keyed by the String form, as that is what the edit distance is measured on
+    tokenDictionary.add(token.getValue().toString(), ordinal);
+  }
+
+  @Override
+  public void remove(Token token, int ordinal) {
+    tokenDictionary.remove(token.getValue().toString(), ordinal);
+  }
+
+  @Override
+  public void get(Token token, IntConsumer consumer) {
+    List<PostingList> postingLists = new ArrayList<>();
+    tokenMetricTree.search(token.getValue().toString(), maxEditDistance,
+        (term, postingList) -> postingLists.add(postingList));
+    if (!postingLists.isEmpty()) {
+      PostingList.union(postingLists, consumer);
+    }
+  }
+
+  @Override
+  public int getDocumentFrequency(Token token) {
+    // Every term within the edit distance is matched, so all of them are counted
+    int[] documentFrequency = new int[1];
+    tokenMetricTree.search(token.getValue().toString(), maxEditDistance,
+        (term, postingList) -> documentFrequency[0] += postingList.size());
+    return documentFrequency[0];
+  }
+
+  @Override
+  public IntPredicate getMatcher(Token token) {
+    List<PostingList> postingLists = new ArrayList<>();
+    tokenMetricTree.search(token.getValue().toString(), maxEditDistance,
+        (term, postingList) -> postingLists.add(postingList));
+    return ordinal -> {
+      for (PostingList postingList : postingLists) {
+        if (postingList.contains(ordinal)) {
+          return true;
+        }
+      }
+      return false;
+    };
+  }
+
+  @Override
+  public void save(SnapshotWriter writer) throws IOException {
+    writer.writeString(MatchType.EQUALITY_DISTANCE.name());
+    writer.writeVarInt(maxEditDistance);
+    writer.writeBoolean(transpositions);
+    tokenDictionary.writeTo(writer);
+  }
+
+  @Override
+  public void restore(SnapshotReader reader) throws IOException {
+    // The terms go back in the fuzzy dictionary as they are interned
+    tokenDictionary.readFrom(reader);
+  }
+
+  @Override
+  public long saveSegment(SnapshotWriter writer) throws IOException {
+    long termIndexOffset = tokenDictionary.writeSegment(writer);
+    long headerOffset = writer.getPosition();
+    writer.writeString(MatchType.EQUALITY_DISTANCE.name());
+    writer.writeVarInt(maxEditDistance);
+    writer.writeBoolean(transpositions);
+    writer.writeInt(tokenDictionary.getLiveCount());
+    writer.writeLong(termIndexOffset);
+    return headerOffset;
+  }
+}
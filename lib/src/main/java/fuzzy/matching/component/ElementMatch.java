@@ -3,11 +3,13 @@ package fuzzy.matching.component;
 import fuzzy.matching.domain.Element;
 import fuzzy.matching.domain.Match;
 import fuzzy.matching.domain.Token;
-import java.util.HashMap;
+import fuzzy.matching.domain.TokenWeighting;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
 import org.apache.commons.lang3.BooleanUtils;
 
 /**
@@ -18,10 +20,31 @@ import org.apache.commons.lang3.BooleanUtils;
 @SuppressWarnings({ "unchecked", "rawtypes" })
 public class ElementMatch {
 
+  /**
+   * Accepts every Element as a candidate, so no candidate is filtered.
+   */
+  static final Predicate<Element> ALL_CANDIDATES = matchElement -> true;
+
   private final TokenRepo tokenRepo;
+  private final ThreadLocal<ScoreAccumulator> scoreAccumulator;
 
   public ElementMatch() {
-    this.tokenRepo = new TokenRepo();
+    this(new TokenRepo());
+  }
+
+  /**
+   * Constructor for ElementMatch, matching against the Elements already in the
+   * TokenRepo, such as one loaded from a snapshot.
+   *
+   * @param tokenRepo - the TokenRepo to match against and put the Elements in
+   */
+  public ElementMatch(TokenRepo tokenRepo) {
+    this.tokenRepo = tokenRepo;
+    this.scoreAccumulator = ThreadLocal.withInitial(ScoreAccumulator::new);
+  }
+
+  public TokenRepo getTokenRepo() {
+    return tokenRepo;
   }
 
   /**
@@ -31,41 +54,212 @@ public class ElementMatch {
    * @return Set of Match of Element type objects
    */
   public Set<Match<Element>> matchElement(Element element) {
-    Set<Match<Element>> matchElements = new HashSet<>();
-    Map<Element, Integer> elementTokenScore = new HashMap<>();
+    return matchElement(element, ALL_CANDIDATES);
+  }
 
-    List<Token> tokens = element.getTokens();
-    tokens.stream()
-        .filter(token -> BooleanUtils.isNotFalse(element.getDocument().isSource()))
-        .forEach(token -> {
-          elementThresholdMatching(token, elementTokenScore, matchElements);
-        });
+  /**
+   * Matches the Element with the Token, counting the hits only of the candidates
+   * accepted by the filter, such as the ones sharing a block with the Element.
+   *
+   * @param element         Element to be matched
+   * @param candidateFilter accepts the Elements whose hits are counted
+   * @return Set of Match of Element type objects
+   */
+  Set<Match<Element>> matchElement(Element element, Predicate<Element> candidateFilter) {
+    Set<Match<Element>> matchElements = isSource(element)
+        ? probeElement(element, candidateFilter, Integer.MAX_VALUE)
+        : new HashSet<>();
+
+    tokenRepo.put(element);
+
+    return matchElements;
+  }
+
+  /**
+   * Matches an Element already put in the TokenRepo with the Elements put before
+   * it, the ones of lower ordinals, as if it was matched before being put. Each
+   * pair of Elements put is then compared once, from the later one.
+   *
+   * @param element         Element put in the TokenRepo
+   * @param candidateFilter accepts the Elements whose hits are counted
+   * @return Set of Match of Element type objects
+   */
+  Set<Match<Element>> matchPutElement(Element element, Predicate<Element> candidateFilter) {
+    return matchPutElement(element, candidateFilter, tokenRepo.getOrdinal(element));
+  }
+
+  /**
+   * Matches an Element already put in the TokenRepo with the Elements of lower
+   * ordinals than the limit, as if it was matched again once they were put.
+   *
+   * @param element         Element put in the TokenRepo
+   * @param candidateFilter accepts the Elements whose hits are counted
+   * @param ordinalLimit    the ordinal of the first Element not matched
+   * @return Set of Match of Element type objects
+   */
+  Set<Match<Element>> matchPutElement(Element element, Predicate<Element> candidateFilter,
+      int ordinalLimit) {
+    return isSource(element)
+        ? probeElement(element, candidateFilter, ordinalLimit)
+        : new HashSet<>();
+  }
 
-    tokens.forEach(token -> tokenRepo.put(token));
+  /**
+   * Matches the Element with the Elements in the TokenRepo without putting it,
+   * so the TokenRepo is only read. It is matched whatever the source flag of its
+   * Document, as it is the one queried.
+   *
+   * @param element         Element to be matched
+   * @param candidateFilter accepts the Elements whose hits are counted
+   * @return Set of Match of Element type objects
+   */
+  Set<Match<Element>> queryElement(Element element, Predicate<Element> candidateFilter) {
+    return probeElement(element, candidateFilter, Integer.MAX_VALUE);
+  }
 
+  private Set<Match<Element>> probeElement(Element element, Predicate<Element> candidateFilter,
+      int ordinalLimit) {
+    Set<Match<Element>> matchElements = new HashSet<>();
+    ScoreAccumulator accumulator = scoreAccumulator.get();
+    // The ordinals hit stay the ones of the same Elements until they are scored
+    long readEpoch = tokenRepo.startRead();
+    try {
+      if (ordinalLimit != Integer.MAX_VALUE || candidateFilter != ALL_CANDIDATES) {
+        accumulator.setCandidateFilter(ordinal -> {
+          if (ordinal >= ordinalLimit) {
+            return false;
+          }
+          Element matchElement = tokenRepo.getElement(ordinal);
+          return matchElement != null && candidateFilter.test(matchElement);
+        });
+      }
+      elementThresholdMatching(element, accumulator, matchElements);
+    } finally {
+      tokenRepo.endRead(readEpoch);
+      accumulator.clear();
+    }
     return matchElements;
   }
 
-  private void elementThresholdMatching(Token token, Map<Element, Integer> elementTokenScore,
+  private static boolean isSource(Element element) {
+    return BooleanUtils.isNotFalse(element.getDocument().isSource());
+  }
+
+  /**
+   * <p>
+   * Counts the Token hits of each matched Element by ordinal in a
+   * ScoreAccumulator reused by the thread, and only creates a Match once all
+   * the Tokens are counted, for the Elements whose score is above the
+   * threshold. The hits of Elements not accepted as candidates are not counted.
+   * </p>
+   * Tokens demoted by the document frequency cap of the TokenRepo are probed
+   * last, and only count for the Elements found by the other Tokens. With the
+   * IDF TokenWeighting, each Token also adds its weight to the Elements it hit,
+   * from the number of Elements it hit and the number of Elements of the
+   * ElementClassification in the TokenRepo. When the ElementClassification
+   * takes its candidates from a CandidateIndex, such as MinHash LSH or SimHash,
+   * no Token is probed, the Tokens are counted on each candidate by comparing
+   * them with the Token values of the candidate.
+   */
+  private void elementThresholdMatching(Element element, ScoreAccumulator accumulator,
       Set<Match<Element>> matchingElements) {
-    Set<Element> matchElements = tokenRepo.get(token);
-    Element element = token.getElement();
-
-    // Token Match Found
-    if (matchElements != null) {
-      matchElements.forEach(matchElement -> {
-        int score = elementTokenScore.getOrDefault(matchElement, 0) + 1;
-        elementTokenScore.put(matchElement, score);
-        // Element Score above threshold
-        double elementScore = element.getScore(score, matchElement);
-
-        // Element match Found
-        if (elementScore > element.getThreshold()) {
-          Match<Element> elementMatch = new Match<>(element, matchElement, elementScore);
-          matchingElements.remove(elementMatch);
-          matchingElements.add(elementMatch);
+    IntConsumer tokenHit = accumulator::add;
+    boolean idf = tokenRepo.getTokenWeighting(element.getElementClassification())
+        == TokenWeighting.IDF;
+    int elementCount = idf ? tokenRepo.getElementCount(element.getElementClassification()) : 0;
+    // Added to by the probe callback
+    double[] totalWeight = new double[1];
+    List<Token> tokens = element.getTokens();
+    List<Token> demotedTokens = new ArrayList<>();
+    List<Token> probedTokens = new ArrayList<>(tokens.size());
+    CandidateIndex candidateIndex =
+        tokenRepo.getCandidateIndex(element.getElementClassification());
+    if (candidateIndex != null) {
+      TokenSet tokenSet = new TokenSet(element);
+      accumulator.startProbe();
+      candidateIndex.getCandidates(tokenSet, accumulator::touch);
+      countCandidateHits(candidateIndex, tokenSet, accumulator, idf, elementCount, totalWeight);
+    } else {
+      for (Token token : tokens) {
+        if (tokenRepo.isDemoted(token)) {
+          demotedTokens.add(token);
+        } else {
+          probedTokens.add(token);
         }
-      });
+      }
     }
+    accumulator.startProbe();
+    tokenRepo.probe(probedTokens, tokenHit, index -> {
+      if (idf) {
+        double weight = getIdf(elementCount, accumulator.getProbeHitCount());
+        accumulator.weighProbe(weight);
+        totalWeight[0] += weight;
+      }
+      accumulator.startProbe();
+    });
+    for (Token token : demotedTokens) {
+      accumulator.startProbe();
+      tokenRepo.verify(token, accumulator);
+      if (idf) {
+        // Only the candidates were checked, the hits of the value are counted instead
+        double weight = getIdf(elementCount, tokenRepo.getDocumentFrequency(token));
+        accumulator.weighProbe(weight);
+        totalWeight[0] += weight;
+      }
+    }
+
+    for (int i = 0; i < accumulator.getTouchedCount(); i++) {
+      int ordinal = accumulator.getTouched(i);
+      Element matchElement = tokenRepo.getElement(ordinal);
+      // Removed from the TokenRepo while being matched
+      if (matchElement == null) {
+        continue;
+      }
+      double elementScore = idf
+          ? element.getWeightedScore(accumulator.getWeight(ordinal), totalWeight[0], matchElement)
+          : element.getScore(accumulator.getCount(ordinal), matchElement);
+
+      // Element match Found
+      if (elementScore > element.getThreshold()) {
+        matchingElements.add(new Match<>(element, matchElement, elementScore));
+      }
+    }
+  }
+
+  /**
+   * Counts the hits of the Tokens on each touched candidate, from the TokenSet
+   * of the candidate, the same hits a probe of the Tokens would count.
+   */
+  private void countCandidateHits(CandidateIndex candidateIndex, TokenSet tokenSet,
+      ScoreAccumulator accumulator, boolean idf, int elementCount, double[] totalWeight) {
+    double[] weights = new double[tokenSet.size()];
+    for (int i = 0; i < weights.length; i++) {
+      if (idf) {
+        weights[i] = tokenSet.getCount(i)
+            * getIdf(elementCount, tokenRepo.getDocumentFrequency(tokenSet.getToken(i)));
+        totalWeight[0] += weights[i];
+      }
+    }
+    for (int i = 0; i < accumulator.getTouchedCount(); i++) {
+      int ordinal = accumulator.getTouched(i);
+      TokenSet candidateTokenSet = candidateIndex.getTokenSet(ordinal);
+      if (candidateTokenSet != null) {
+        tokenSet.intersect(candidateTokenSet,
+            index -> accumulator.hit(ordinal, tokenSet.getCount(index), weights[index]));
+      }
+    }
+  }
+
+  /**
+   * Gets the smoothed inverse document frequency of a Token, never below 1.
+   *
+   * @param elementCount      the number of Elements of the ElementClassification
+   * @param documentFrequency the number of Elements hit by the Token
+   * @return the weight of the Token
+   */
+  static double getIdf(int elementCount, int documentFrequency) {
+    // The values within an edit distance can be counted for the same Element more than once
+    return Math.log((elementCount + 1.0) / (Math.min(documentFrequency, elementCount) + 1.0))
+        + 1.0;
   }
 }
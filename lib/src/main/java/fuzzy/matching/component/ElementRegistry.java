@@ -0,0 +1,360 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Document;
+import fuzzy.matching.domain.Element;
+import fuzzy.matching.domain.ElementClassification;
+import fuzzy.matching.domain.ElementType;
+import fuzzy.matching.domain.MatchType;
+import fuzzy.matching.util.ChunkedArray;
+import fuzzy.matching.util.SnapshotReader;
+import fuzzy.matching.util.SnapshotWriter;
+import java.io.IOException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Gives every Element put in the TokenRepo a dense int ordinal, so posting lists
+ * hold ints instead of references to Elements.
+ * </p>
+ * Equal Elements share an ordinal, and the Elements registered are counted per
+ * ElementClassification. The Document of the Elements is kept by key, for its
+ * Elements to be found when it is removed. The ordinal of an Element removed is
+ * given again once released and no read started before is still running, so
+ * the ordinals given stay within the most Elements ever registered at once. It
+ * is safe for concurrent use.
+ */
+@SuppressWarnings("rawtypes")
+class ElementRegistry {
+
+  private final Map<Element, Integer> ordinals = new ConcurrentHashMap<>();
+  private final ChunkedArray<Element> elements = new ChunkedArray<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final Map<ElementClassification, AtomicInteger> counts = new ConcurrentHashMap<>();
+  private final Map<Document, Document> documents = new ConcurrentHashMap<>();
+  // The released ordinals, less the first ordinal, the last one released given first
+  private final ConcurrentLinkedDeque<Integer> freeOrdinals = new ConcurrentLinkedDeque<>();
+  // The released ordinals, less the first ordinal, with the epoch they were released in
+  private final ConcurrentLinkedQueue<long[]> releasedOrdinals = new ConcurrentLinkedQueue<>();
+  private final AtomicLong epoch = new AtomicLong();
+  // The reads running, by the parity of the epoch they started in
+  private final AtomicIntegerArray reads = new AtomicIntegerArray(2);
+  private final int firstOrdinal;
+
+  ElementRegistry() {
+    this(0);
+  }
+
+  /**
+   * Constructor for ElementRegistry.
+   *
+   * @param firstOrdinal - the ordinal of the first Element registered, the ones
+   *                     before it belong to a segment
+   */
+  ElementRegistry(int firstOrdinal) {
+    this.firstOrdinal = firstOrdinal;
+  }
+
+  /**
+   * Gets the ordinal of the Element, giving it a released one, or the next one,
+   * if it has none yet.
+   *
+   * @param element Element to be registered
+   * @return ordinal of the Element
+   */
+  int register(Element element) {
+    return register(element, true);
+  }
+
+  /**
+   * Gets the ordinal of the Element, giving it the next one if it has none yet,
+   * so it is above the ordinals of all the Elements registered before.
+   *
+   * @param element Element to be registered
+   * @return ordinal of the Element
+   */
+  int registerNext(Element element) {
+    return register(element, false);
+  }
+
+  private int register(Element element, boolean reuse) {
+    Integer ordinal = ordinals.get(element);
+    if (ordinal != null) {
+      return ordinal;
+    }
+    if (reuse) {
+      reclaim();
+    }
+    return ordinals.computeIfAbsent(element, key -> {
+      Integer free = reuse ? freeOrdinals.pollFirst() : null;
+      int next = free != null ? free : size.getAndIncrement();
+      elements.set(next, key);
+      counts.computeIfAbsent(key.getElementClassification(), classification -> new AtomicInteger())
+          .incrementAndGet();
+      if (key.getDocument() != null) {
+        documents.putIfAbsent(key.getDocument(), key.getDocument());
+      }
+      return firstOrdinal + next;
+    });
+  }
+
+  /**
+   * Gets the ordinal of the Element.
+   *
+   * @param element Element registered
+   * @return ordinal of the Element, -1 if it is not registered
+   */
+  int getOrdinal(Element element) {
+    Integer ordinal = ordinals.get(element);
+    return ordinal != null ? ordinal : -1;
+  }
+
+  /**
+   * Gets the Document registered with the key of a Document, whose Elements
+   * are the ones registered.
+   *
+   * @param document Document, or another version of it with the same key
+   * @return Document, null if none of its Elements is registered
+   */
+  Document getDocument(Document document) {
+    return documents.get(document);
+  }
+
+  /**
+   * Removes the Element, its ordinal no longer gives it. The ordinal is only
+   * given again once released.
+   *
+   * @param element Element registered
+   * @return true if the Element was removed
+   */
+  boolean unregister(Element element) {
+    Integer ordinal = ordinals.get(element);
+    if (ordinal == null || !ordinals.remove(element, ordinal)) {
+      return false;
+    }
+    elements.set(ordinal - firstOrdinal, null);
+    counts.get(element.getElementClassification()).decrementAndGet();
+    return true;
+  }
+
+  /**
+   * Releases the ordinal of an Element removed, once its Tokens are taken out.
+   * It is given to a later Element once every read started before it is
+   * released has ended, so no read gets that Element for hits of this one.
+   *
+   * @param ordinal ordinal of an Element unregistered
+   */
+  void release(int ordinal) {
+    releasedOrdinals.add(new long[] { ordinal - firstOrdinal, epoch.get() });
+  }
+
+  /**
+   * Starts a read of ordinals, the ordinals released meanwhile are not given
+   * again until it ends.
+   *
+   * @return the epoch of the read, to end it with
+   */
+  long startRead() {
+    while (true) {
+      long current = epoch.get();
+      reads.incrementAndGet((int) (current & 1));
+      // Counted in the epoch it still is, not in one that moved on meanwhile
+      if (epoch.get() == current) {
+        return current;
+      }
+      reads.decrementAndGet((int) (current & 1));
+    }
+  }
+
+  /**
+   * Ends a read of ordinals.
+   *
+   * @param readEpoch the epoch given by startRead
+   */
+  void endRead(long readEpoch) {
+    reads.decrementAndGet((int) (readEpoch & 1));
+  }
+
+  /**
+   * Moves the epoch on while no read of the epoch before is running, and frees
+   * the ordinals released 2 epochs ago or more, as every read that could hold
+   * them has ended.
+   */
+  private void reclaim() {
+    if (releasedOrdinals.isEmpty()) {
+      return;
+    }
+    for (int i = 0; i < 2; i++) {
+      long current = epoch.get();
+      if (reads.get((int) ((current + 1) & 1)) == 0) {
+        epoch.compareAndSet(current, current + 1);
+      }
+    }
+    long current = epoch.get();
+    long[] released;
+    while ((released = releasedOrdinals.peek()) != null && released[1] <= current - 2) {
+      if (releasedOrdinals.remove(released)) {
+        freeOrdinals.addFirst((int) released[0]);
+      }
+    }
+  }
+
+  /**
+   * Removes the Document, once its Elements are removed.
+   *
+   * @param document Document registered
+   */
+  void unregister(Document document) {
+    documents.remove(document);
+  }
+
+  /**
+   * Checks if an ordinal was released and not given again, then the ordinals
+   * are not dense.
+   *
+   * @return true if an ordinal is free
+   */
+  boolean hasFreeOrdinals() {
+    return !freeOrdinals.isEmpty() || !releasedOrdinals.isEmpty();
+  }
+
+  /**
+   * Gets the Element of an ordinal.
+   *
+   * @param ordinal ordinal given by register
+   * @return Element, null if it was removed
+   */
+  Element get(int ordinal) {
+    return elements.get(ordinal - firstOrdinal);
+  }
+
+  int size() {
+    return size.get();
+  }
+
+  /**
+   * Gets the number of Elements registered of an ElementClassification.
+   *
+   * @param elementClassification the ElementClassification
+   * @return the number of Elements
+   */
+  int getCount(ElementClassification elementClassification) {
+    AtomicInteger count = counts.get(elementClassification);
+    return count != null ? count.get() : 0;
+  }
+
+  /**
+   * Writes the Documents of the Elements, then the Elements in ordinal order.
+   * Functions are not written, an Element read back uses the ones of its
+   * ElementType.
+   *
+   * @param writer the snapshot being written
+   * @throws IOException if the snapshot can not be written
+   */
+  void writeTo(SnapshotWriter writer) throws IOException {
+    int count = size();
+    Map<Document, Integer> documentIndexes = new HashMap<>();
+    List<Document> documents = new ArrayList<>();
+    for (int ordinal = 0; ordinal < count; ordinal++) {
+      Document document = elements.get(ordinal).getDocument();
+      if (document != null && documentIndexes.putIfAbsent(document, documents.size()) == null) {
+        documents.add(document);
+      }
+    }
+    writer.writeVarInt(documents.size());
+    for (Document document : documents) {
+      writer.writeString(document.getKey());
+      writer.writeDouble(document.getThreshold());
+      writer.writeValue(document.isSource());
+    }
+
+    writer.writeVarInt(count);
+    for (int ordinal = 0; ordinal < count; ordinal++) {
+      Element element = elements.get(ordinal);
+      // 0 for an Element without a Document
+      writer.writeVarInt(element.getDocument() != null
+          ? documentIndexes.get(element.getDocument()) + 1 : 0);
+      writeElement(writer, element);
+    }
+  }
+
+  /**
+   * Writes the settings and value of an Element, without its Document.
+   *
+   * @param writer  the snapshot being written
+   * @param element Element to be written
+   * @throws IOException if the snapshot can not be written
+   */
+  static void writeElement(SnapshotWriter writer, Element element) throws IOException {
+    writer.writeString(element.getElementClassification().getElementType().name());
+    writer.writeString(element.getElementClassification().getVariance());
+    writer.writeValue(element.getValue());
+    writer.writeDouble(element.getWeight());
+    writer.writeDouble(element.getThreshold());
+    writer.writeDouble(element.getNeighborhoodRange());
+    writer.writeString(element.getMatchType().name());
+    writer.writeVarInt(element.getMaxEditDistance());
+    writer.writeBoolean(element.isTranspositions());
+    writer.writeInt(element.getDateTolerance());
+    writer.writeString(element.getZoneId().getId());
+    writer.writeDouble(element.getRadius());
+  }
+
+  /**
+   * Registers the Elements written by writeTo, with their Documents. It is read
+   * into an empty registry, so every Element gets back its ordinal.
+   *
+   * @param reader the snapshot being read
+   * @throws IOException if the snapshot can not be read
+   */
+  void readFrom(SnapshotReader reader) throws IOException {
+    int documentCount = reader.readVarInt();
+    List<Document.Builder> documentBuilders = new ArrayList<>(documentCount);
+    List<Boolean> sources = new ArrayList<>(documentCount);
+    for (int i = 0; i < documentCount; i++) {
+      documentBuilders.add(new Document.Builder(reader.readString())
+          .setThreshold(reader.readDouble()));
+      sources.add((Boolean) reader.readValue());
+    }
+
+    int count = reader.readVarInt();
+    List<Element> readElements = new ArrayList<>(count);
+    for (int ordinal = 0; ordinal < count; ordinal++) {
+      int documentIndex = reader.readVarInt() - 1;
+      Element element = new Element.Builder()
+          .setType(ElementType.valueOf(reader.readString()))
+          .setVariance(reader.readString())
+          .setValue(reader.readValue())
+          .setWeight(reader.readDouble())
+          .setThreshold(reader.readDouble())
+          .setNeighborhoodRange(reader.readDouble())
+          .setMatchType(MatchType.valueOf(reader.readString()))
+          .setMaxEditDistance(reader.readVarInt())
+          .setTranspositions(reader.readBoolean())
+          .setDateTolerance(reader.readInt())
+          .setZoneId(ZoneId.of(reader.readString()))
+          .setRadius(reader.readDouble())
+          .createElement();
+      if (documentIndex >= 0) {
+        documentBuilders.get(documentIndex).addElement(element);
+      }
+      readElements.add(element);
+    }
+
+    for (int i = 0; i < documentCount; i++) {
+      Document document = documentBuilders.get(i).createDocument();
+      document.setSource(sources.get(i));
+    }
+    // Registered once in their Documents, as those are part of their hash
+    readElements.forEach(this::register);
+  }
+}
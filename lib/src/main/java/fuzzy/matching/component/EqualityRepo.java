@@ -0,0 +1,73 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.MatchType;
+import fuzzy.matching.domain.Token;
+import fuzzy.matching.util.PostingList;
+import fuzzy.matching.util.SnapshotReader;
+import fuzzy.matching.util.SnapshotWriter;
+import java.io.IOException;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Repo for the EQUALITY MatchType, matching Tokens with the same value.
+ */
+@SuppressWarnings("rawtypes")
+class EqualityRepo implements Repo {
+
+  private final TokenDictionary tokenDictionary = new TokenDictionary();
+
+  @Override
+  public void put(Token token, int ordinal) {
+    tokenDictionary.add(token.getValue(), ordinal);
+  }
+
+  @Override
+  public void remove(Token token, int ordinal) {
+    tokenDictionary.remove(token.getValue(), ordinal);
+  }
+
+  @Override
+  public void get(Token token, IntConsumer consumer) {
+    PostingList postingList = tokenDictionary.findPostings(token.getValue());
+    if (postingList != null) {
+      postingList.forEach(consumer);
+    }
+  }
+
+  @Override
+  public int getDocumentFrequency(Token token) {
+    PostingList postingList = tokenDictionary.findPostings(token.getValue());
+    return postingList != null ? postingList.size() : 0;
+  }
+
+  @Override
+  public IntPredicate getMatcher(Token token) {
+    PostingList postingList = tokenDictionary.findPostings(token.getValue());
+    if (postingList == null) {
+      return ordinal -> false;
+    }
+    return postingList::contains;
+  }
+
+  @Override
+  public void save(SnapshotWriter writer) throws IOException {
+    writer.writeString(MatchType.EQUALITY.name());
+    tokenDictionary.writeTo(writer);
+  }
+
+  @Override
+  public void restore(SnapshotReader reader) throws IOException {
+    tokenDictionary.readFrom(reader);
+  }
+
+  @Override
+  public long saveSegment(SnapshotWriter writer) throws IOException {
+    long termIndexOffset = tokenDictionary.writeSegment(writer);
+    long headerOffset = writer.getPosition();
+    writer.writeString(MatchType.EQUALITY.name());
+    writer.writeInt(tokenDictionary.getLiveCount());
+    writer.writeLong(termIndexOffset);
+    return headerOffset;
+  }
+}
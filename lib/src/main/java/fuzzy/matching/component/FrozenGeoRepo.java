@@ -0,0 +1,82 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Token;
+import fuzzy.matching.exception.MatchException;
+import fuzzy.matching.util.LongRangeIndex;
+import fuzzy.matching.util.SnapshotReader;
+import fuzzy.matching.util.SnapshotWriter;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Read-only Repo for the GEO_DISTANCE MatchType, holding the keys of a GeoRepo
+ * in a single sorted array with the ordinals alongside, so each cell covering
+ * the radius of a Token is found by a binary search. Nothing changes once
+ * built, so it is safe to probe from any number of threads without
+ * synchronization.
+ */
+class FrozenGeoRepo implements Repo {
+
+  private final long[] keys;
+  private final int[] ordinals;
+
+  /**
+   * Constructor for FrozenGeoRepo, copying the entries of the index of a
+   * GeoRepo.
+   *
+   * @param index - the index of the point keys
+   */
+  FrozenGeoRepo(LongRangeIndex index) {
+    this.keys = new long[index.size()];
+    this.ordinals = new int[index.size()];
+    int[] next = new int[1];
+    index.forEach((key, ordinal) -> {
+      keys[next[0]] = key;
+      ordinals[next[0]++] = ordinal;
+    });
+  }
+
+  @Override
+  public void put(Token token, int ordinal) {
+    throw new MatchException("Frozen Repo is read-only");
+  }
+
+  @Override
+  public void remove(Token token, int ordinal) {
+    throw new MatchException("Frozen Repo is read-only");
+  }
+
+  @Override
+  public void get(Token token, IntConsumer consumer) {
+    GeoRepo.get(token, this::forEachEntryInRange, consumer);
+  }
+
+  @Override
+  public void save(SnapshotWriter writer) {
+    throw new MatchException("Frozen Repo can not be saved to a snapshot");
+  }
+
+  @Override
+  public void restore(SnapshotReader reader) {
+    throw new MatchException("Frozen Repo is read-only");
+  }
+
+  @Override
+  public long saveSegment(SnapshotWriter writer) {
+    throw new MatchException("Frozen Repo can not be saved to a segment");
+  }
+
+  private void forEachEntryInRange(long from, long to, LongRangeIndex.EntryConsumer consumer) {
+    int index = Arrays.binarySearch(keys, from);
+    if (index < 0) {
+      index = -index - 1;
+    }
+    // Equal keys may sit before the one found
+    while (index > 0 && keys[index - 1] == from) {
+      index--;
+    }
+    for (; index < keys.length && keys[index] <= to; index++) {
+      consumer.accept(keys[index], ordinals[index]);
+    }
+  }
+}
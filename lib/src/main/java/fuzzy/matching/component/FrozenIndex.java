@@ -0,0 +1,151 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Document;
+import fuzzy.matching.domain.Element;
+import fuzzy.matching.domain.ElementClassification;
+import fuzzy.matching.domain.Token;
+import fuzzy.matching.exception.MatchException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * A read-only index bulk built from all the Documents at once, for a reference
+ * index that is built once and then only probed.
+ * </p>
+ * The Elements are given their ordinals in one pass, the Tokens of each
+ * ElementClassification are collected, and each Repo is then written in one go
+ * into plain arrays. No concurrent map is kept once built, and probing is safe
+ * from any number of threads without synchronization.
+ */
+@SuppressWarnings("rawtypes")
+class FrozenIndex implements ReadOnlyIndex {
+
+  private final Element[] elements;
+  private final Map<ElementClassification, Integer> elementCounts;
+  private final Map<ElementClassification, Repo> repoMap;
+
+  private FrozenIndex(Element[] elements, Map<ElementClassification, Integer> elementCounts,
+      Map<ElementClassification, Repo> repoMap) {
+    this.elements = elements;
+    this.elementCounts = elementCounts;
+    this.repoMap = repoMap;
+  }
+
+  /**
+   * Builds the index of all the Elements of the Documents.
+   *
+   * @param documents Documents to be indexed
+   * @return FrozenIndex
+   */
+  @SuppressWarnings("unchecked")
+  static FrozenIndex build(Collection<Document> documents) {
+    // Tokenizing is the costly part, and each Element caches its Tokens
+    documents.parallelStream()
+        .flatMap(document -> document.getPreProcessedElement().stream())
+        .forEach(element -> ((Element) element).getTokens());
+
+    Map<Element, Integer> ordinals = new HashMap<>();
+    List<Element> elements = new ArrayList<>();
+    Map<ElementClassification, Integer> elementCounts = new HashMap<>();
+    Map<ElementClassification, RepoBuilder> builders = new HashMap<>();
+    for (Document document : documents) {
+      for (Element element : (Iterable<Element>) document.getPreProcessedElement()) {
+        if (ordinals.putIfAbsent(element, elements.size()) != null) {
+          continue;
+        }
+        int ordinal = elements.size();
+        elements.add(element);
+        ElementClassification elementClassification = element.getElementClassification();
+        elementCounts.merge(elementClassification, 1, Integer::sum);
+        RepoBuilder builder = builders.computeIfAbsent(
+            elementClassification, classification -> RepoBuilder.create(element));
+        List<Token> tokens = element.getTokens();
+        for (Token token : tokens) {
+          builder.add(token, ordinal);
+        }
+      }
+    }
+
+    Map<ElementClassification, Repo> repoMap = new HashMap<>();
+    builders.forEach((elementClassification, builder) ->
+        repoMap.put(elementClassification, builder.build()));
+    return new FrozenIndex(elements.toArray(new Element[0]), elementCounts, repoMap);
+  }
+
+  @Override
+  public int getElementCount() {
+    return elements.length;
+  }
+
+  @Override
+  public int getElementCount(ElementClassification elementClassification) {
+    return elementCounts.getOrDefault(elementClassification, 0);
+  }
+
+  @Override
+  public Repo getRepo(ElementClassification elementClassification) {
+    return repoMap.get(elementClassification);
+  }
+
+  @Override
+  public Element getElement(int ordinal) {
+    return elements[ordinal];
+  }
+
+  /**
+   * Collects the Tokens of an ElementClassification, and builds its read-only
+   * Repo once they are all added.
+   */
+  interface RepoBuilder {
+
+    void add(Token token, int ordinal);
+
+    Repo build();
+
+    /**
+     * Creates the RepoBuilder for the MatchType of the first Element.
+     *
+     * @param element the first Element of the ElementClassification
+     * @return RepoBuilder
+     */
+    static RepoBuilder create(Element element) {
+      switch (element.getMatchType()) {
+        case EQUALITY:
+        case EQUALITY_DISTANCE:
+          return new FrozenTermRepo.Builder(element);
+        case NEAREST_NEIGHBORS:
+          NumericRepo numericRepo = new NumericRepo();
+          return new RepoBuilder() {
+            @Override
+            public void add(Token token, int ordinal) {
+              numericRepo.put(token, ordinal);
+            }
+
+            @Override
+            public Repo build() {
+              return numericRepo.freeze();
+            }
+          };
+        case GEO_DISTANCE:
+          GeoRepo geoRepo = new GeoRepo();
+          return new RepoBuilder() {
+            @Override
+            public void add(Token token, int ordinal) {
+              geoRepo.put(token, ordinal);
+            }
+
+            @Override
+            public Repo build() {
+              return geoRepo.freeze();
+            }
+          };
+        default:
+          throw new MatchException("Match Type not supported");
+      }
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Token;
+import fuzzy.matching.exception.MatchException;
+import fuzzy.matching.util.LongRangeIndex;
+import fuzzy.matching.util.SnapshotReader;
+import fuzzy.matching.util.SnapshotWriter;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Read-only Repo for the NEAREST_NEIGHBORS MatchType, holding each index of a
+ * NumericRepo in a single sorted array with the ordinals alongside, so the
+ * range of a Token is found by a binary search. Nothing changes once built, so
+ * it is safe to probe from any number of threads without synchronization.
+ */
+class FrozenNumericRepo implements Repo {
+
+  private final long[] longKeys;
+  private final int[] longOrdinals;
+  private final long[] doubleKeys;
+  private final int[] doubleOrdinals;
+  private final long[] dayKeys;
+  private final int[] dayOrdinals;
+
+  /**
+   * Constructor for FrozenNumericRepo, copying the entries of the indexes of a
+   * NumericRepo.
+   *
+   * @param longIndex   - the index of the Integer, Long and Date keys
+   * @param doubleIndex - the index of the Double and Float keys
+   * @param dayIndex    - the index of the epoch days of the dates
+   */
+  FrozenNumericRepo(LongRangeIndex longIndex, LongRangeIndex doubleIndex,
+      LongRangeIndex dayIndex) {
+    this.longKeys = new long[longIndex.size()];
+    this.longOrdinals = new int[longIndex.size()];
+    copy(longIndex, longKeys, longOrdinals);
+    this.doubleKeys = new long[doubleIndex.size()];
+    this.doubleOrdinals = new int[doubleIndex.size()];
+    copy(doubleIndex, doubleKeys, doubleOrdinals);
+    this.dayKeys = new long[dayIndex.size()];
+    this.dayOrdinals = new int[dayIndex.size()];
+    copy(dayIndex, dayKeys, dayOrdinals);
+  }
+
+  @Override
+  public void put(Token token, int ordinal) {
+    throw new MatchException("Frozen Repo is read-only");
+  }
+
+  @Override
+  public void remove(Token token, int ordinal) {
+    throw new MatchException("Frozen Repo is read-only");
+  }
+
+  @Override
+  public void get(Token token, IntConsumer consumer) {
+    if (NumericRepo.isDate(token.getValue())) {
+      long[] dayBounds = NumericRepo.getDayBounds(token);
+      forEachInRange(dayKeys, dayOrdinals, dayBounds[0], dayBounds[1], consumer);
+      return;
+    }
+    double[] bounds = NumericRepo.getBounds(token);
+    forEachInRange(longKeys, longOrdinals,
+        (long) Math.ceil(bounds[0]), (long) Math.floor(bounds[1]), consumer);
+    forEachInRange(doubleKeys, doubleOrdinals, LongRangeIndex.toSortableLong(bounds[0]),
+        LongRangeIndex.toSortableLong(bounds[1]), consumer);
+  }
+
+  @Override
+  public void save(SnapshotWriter writer) {
+    throw new MatchException("Frozen Repo can not be saved to a snapshot");
+  }
+
+  @Override
+  public void restore(SnapshotReader reader) {
+    throw new MatchException("Frozen Repo is read-only");
+  }
+
+  @Override
+  public long saveSegment(SnapshotWriter writer) {
+    throw new MatchException("Frozen Repo can not be saved to a segment");
+  }
+
+  private static void copy(LongRangeIndex index, long[] keys, int[] ordinals) {
+    int[] next = new int[1];
+    index.forEach((key, ordinal) -> {
+      keys[next[0]] = key;
+      ordinals[next[0]++] = ordinal;
+    });
+  }
+
+  private static void forEachInRange(long[] keys, int[] ordinals, long from, long to,
+      IntConsumer consumer) {
+    if (from > to) {
+      return;
+    }
+    int index = Arrays.binarySearch(keys, from);
+    if (index < 0) {
+      index = -index - 1;
+    }
+    // Equal keys may sit before the one found
+    while (index > 0 && keys[index - 1] == from) {
+      index--;
+    }
+    for (; index < keys.length && keys[index] <= to; index++) {
+      consumer.accept(ordinals[index]);
+    }
+  }
+}
@@ -0,0 +1,283 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Element;
+import fuzzy.matching.domain.MatchType;
+import fuzzy.matching.domain.Token;
+import fuzzy.matching.exception.MatchException;
+import fuzzy.matching.util.SnapshotReader;
+import fuzzy.matching.util.SnapshotWriter;
+import fuzzy.matching.util.Utils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import org.apache.lucene.util.automaton.CharacterRunAutomaton;
+import org.apache.lucene.util.automaton.LevenshteinAutomata;
+
+/**
+ * <p>
+ * Read-only Repo for the EQUALITY and EQUALITY_DISTANCE MatchTypes, bulk built
+ * into plain arrays.
+ * </p>
+ * The terms are found through an open addressed hash table of term ids, and the
+ * ordinals of all the terms are held in a single array, each term owning a
+ * sorted slice of it. EQUALITY_DISTANCE terms are sorted, and searched with a
+ * Levenshtein automaton that skips every term sharing a prefix it can not go
+ * past. Nothing changes once built, so it is safe to probe from any number of
+ * threads without synchronization.
+ */
+@SuppressWarnings("rawtypes")
+class FrozenTermRepo implements Repo {
+
+  private final MatchType matchType;
+  private final int maxEditDistance;
+  private final boolean transpositions;
+  private final Object[] terms;
+  // term id + 1 at the slot of the term, 0 for an empty slot
+  private final int[] table;
+  private final int[] offsets;
+  private final int[] postings;
+
+  private FrozenTermRepo(Builder builder, Object[] terms, int[] offsets, int[] postings) {
+    this.matchType = builder.matchType;
+    this.maxEditDistance = builder.maxEditDistance;
+    this.transpositions = builder.transpositions;
+    this.terms = terms;
+    this.offsets = offsets;
+    this.postings = postings;
+    this.table = new int[Integer.highestOneBit(Math.max(terms.length, 1) * 2 - 1) << 1];
+    int mask = table.length - 1;
+    for (int id = 0; id < terms.length; id++) {
+      int slot = spread(terms[id].hashCode()) & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = id + 1;
+    }
+  }
+
+  @Override
+  public void put(Token token, int ordinal) {
+    throw new MatchException("Frozen Repo is read-only");
+  }
+
+  @Override
+  public void remove(Token token, int ordinal) {
+    throw new MatchException("Frozen Repo is read-only");
+  }
+
+  @Override
+  public void get(Token token, IntConsumer consumer) {
+    if (matchType == MatchType.EQUALITY) {
+      int id = find(token.getValue());
+      if (id >= 0) {
+        for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+          consumer.accept(postings[i]);
+        }
+      }
+    } else {
+      search(token.getValue().toString(), id -> {
+        for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+          consumer.accept(postings[i]);
+        }
+      });
+    }
+  }
+
+  @Override
+  public int getDocumentFrequency(Token token) {
+    int[] documentFrequency = new int[1];
+    if (matchType == MatchType.EQUALITY) {
+      int id = find(token.getValue());
+      if (id >= 0) {
+        documentFrequency[0] = offsets[id + 1] - offsets[id];
+      }
+    } else {
+      search(token.getValue().toString(),
+          id -> documentFrequency[0] += offsets[id + 1] - offsets[id]);
+    }
+    return documentFrequency[0];
+  }
+
+  @Override
+  public IntPredicate getMatcher(Token token) {
+    List<Integer> ids = new ArrayList<>();
+    if (matchType == MatchType.EQUALITY) {
+      int id = find(token.getValue());
+      if (id >= 0) {
+        ids.add(id);
+      }
+    } else {
+      search(token.getValue().toString(), ids::add);
+    }
+    return ordinal -> {
+      for (int id : ids) {
+        if (Arrays.binarySearch(postings, offsets[id], offsets[id + 1], ordinal) >= 0) {
+          return true;
+        }
+      }
+      return false;
+    };
+  }
+
+  @Override
+  public void save(SnapshotWriter writer) {
+    throw new MatchException("Frozen Repo can not be saved to a snapshot");
+  }
+
+  @Override
+  public void restore(SnapshotReader reader) {
+    throw new MatchException("Frozen Repo is read-only");
+  }
+
+  @Override
+  public long saveSegment(SnapshotWriter writer) {
+    throw new MatchException("Frozen Repo can not be saved to a segment");
+  }
+
+  private int find(Object term) {
+    int mask = table.length - 1;
+    int slot = spread(term.hashCode()) & mask;
+    while (table[slot] != 0) {
+      int id = table[slot] - 1;
+      if (terms[id].equals(term)) {
+        return id;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void search(String query, IntConsumer consumer) {
+    if (maxEditDistance <= LevenshteinAutomata.MAXIMUM_SUPPORTED_DISTANCE) {
+      searchAutomaton(query, consumer);
+    } else if (!transpositions) {
+      for (int id = 0; id < terms.length; id++) {
+        if (Utils.editDistanceWithin(query, (String) terms[id], maxEditDistance)) {
+          consumer.accept(id);
+        }
+      }
+    } else {
+      throw new MatchException("Edit distance not supported : " + maxEditDistance);
+    }
+  }
+
+  private void searchAutomaton(String query, IntConsumer consumer) {
+    CharacterRunAutomaton levenshtein = new CharacterRunAutomaton(
+        new LevenshteinAutomata(query, transpositions).toAutomaton(maxEditDistance));
+    int id = 0;
+    while (id < terms.length) {
+      String term = (String) terms[id];
+      int state = 0;
+      int length = 0;
+      while (length < term.length() && state != -1) {
+        int codePoint = term.codePointAt(length);
+        state = levenshtein.step(state, codePoint);
+        length += Character.charCount(codePoint);
+      }
+      if (state == -1) {
+        // The sorted terms sharing the prefix that failed all follow this one
+        int low = id + 1;
+        int high = terms.length;
+        while (low < high) {
+          int middle = (low + high) >>> 1;
+          if (((String) terms[middle]).regionMatches(0, term, 0, length)) {
+            low = middle + 1;
+          } else {
+            high = middle;
+          }
+        }
+        id = low;
+      } else {
+        if (levenshtein.isAccept(state)) {
+          consumer.accept(id);
+        }
+        id++;
+      }
+    }
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Collects the Tokens of an ElementClassification in ordinal order, then
+   * writes the postings of all the terms in one pass.
+   */
+  static class Builder implements FrozenIndex.RepoBuilder {
+    private final MatchType matchType;
+    private final int maxEditDistance;
+    private final boolean transpositions;
+    private final Map<Object, Integer> ids = new HashMap<>();
+    private final List<Object> values = new ArrayList<>();
+    private int[] valueIds = new int[16];
+    private int[] ordinals = new int[16];
+    private int size;
+
+    Builder(Element element) {
+      this.matchType = element.getMatchType();
+      this.maxEditDistance = element.getMaxEditDistance();
+      this.transpositions = element.isTranspositions();
+      if (maxEditDistance < 0) {
+        throw new MatchException("Edit distance can not be negative");
+      }
+      if (transpositions && maxEditDistance > LevenshteinAutomata.MAXIMUM_SUPPORTED_DISTANCE) {
+        throw new MatchException("Edit distance not supported with transpositions : "
+            + maxEditDistance);
+      }
+    }
+
+    @Override
+    public void add(Token token, int ordinal) {
+      Object key = matchType == MatchType.EQUALITY ? token.getValue() : token.getValue().toString();
+      int id = ids.computeIfAbsent(key, value -> {
+        values.add(value);
+        return values.size() - 1;
+      });
+      if (size == ordinals.length) {
+        valueIds = Arrays.copyOf(valueIds, size * 2);
+        ordinals = Arrays.copyOf(ordinals, size * 2);
+      }
+      valueIds[size] = id;
+      ordinals[size++] = ordinal;
+    }
+
+    @Override
+    public Repo build() {
+      int count = values.size();
+      Integer[] order = new Integer[count];
+      for (int i = 0; i < count; i++) {
+        order[i] = i;
+      }
+      if (matchType != MatchType.EQUALITY) {
+        Arrays.sort(order, (id1, id2) -> ((String) values.get(id1))
+            .compareTo((String) values.get(id2)));
+      }
+      Object[] terms = new Object[count];
+      int[] ranks = new int[count];
+      for (int rank = 0; rank < count; rank++) {
+        terms[rank] = values.get(order[rank]);
+        ranks[order[rank]] = rank;
+      }
+
+      int[] offsets = new int[count + 1];
+      for (int i = 0; i < size; i++) {
+        offsets[ranks[valueIds[i]] + 1]++;
+      }
+      for (int rank = 0; rank < count; rank++) {
+        offsets[rank + 1] += offsets[rank];
+      }
+      // Added in ordinal order, so every slice comes out sorted
+      int[] next = Arrays.copyOf(offsets, count);
+      int[] postings = new int[size];
+      for (int i = 0; i < size; i++) {
+        postings[next[ranks[valueIds[i]]]++] = ordinals[i];
+      }
+      return new FrozenTermRepo(this, terms, offsets, postings);
+    }
+  }
+}
@@ -0,0 +1,242 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.GeoPoint;
+import fuzzy.matching.domain.MatchType;
+import fuzzy.matching.domain.Token;
+import fuzzy.matching.exception.MatchException;
+import fuzzy.matching.util.LongRangeIndex;
+import fuzzy.matching.util.SnapshotReader;
+import fuzzy.matching.util.SnapshotWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>
+ * Repo for the GEO_DISTANCE MatchType, matching GeoPoint Tokens within the
+ * radius of each other.
+ * </p>
+ * Each point is held as a long key, the Z-order curve of its latitude and
+ * longitude quantized to 31 bits, about 2 cm. The bits of the two are
+ * interleaved, so the points of a grid cell at any level have consecutive keys,
+ * like the cells of a geohash. A probe covers the box around its radius with a
+ * few cells, about as large as the box, and each cell is a binary search of the
+ * key range in a LongRangeIndex. Only the points found in those cells are
+ * checked for their distance, no other point is read.
+ */
+class GeoRepo implements Repo {
+
+  private static final int BITS = 31;
+  private static final long SCALE = 1L << BITS;
+  // The cells covering a box along each axis, at most
+  private static final int CELLS = 4;
+
+  private final LongRangeIndex index = new LongRangeIndex();
+
+  @Override
+  public void put(Token token, int ordinal) {
+    if (token.getValue() instanceof GeoPoint) {
+      index.add(toKey((GeoPoint) token.getValue()), ordinal);
+    }
+    // Other types have no position, and probing with them is rejected
+  }
+
+  @Override
+  public void remove(Token token, int ordinal) {
+    if (token.getValue() instanceof GeoPoint) {
+      index.remove(toKey((GeoPoint) token.getValue()), ordinal);
+    }
+  }
+
+  @Override
+  public void get(Token token, IntConsumer consumer) {
+    get(token, index::forEachEntryInRange, consumer);
+  }
+
+  @Override
+  public void save(SnapshotWriter writer) throws IOException {
+    writer.writeString(MatchType.GEO_DISTANCE.name());
+    index.writeTo(writer);
+  }
+
+  @Override
+  public void restore(SnapshotReader reader) throws IOException {
+    index.readFrom(reader);
+  }
+
+  @Override
+  public long saveSegment(SnapshotWriter writer) throws IOException {
+    long entriesOffset = NumericRepo.writeSegmentEntries(writer, index);
+    long headerOffset = writer.getPosition();
+    writer.writeString(MatchType.GEO_DISTANCE.name());
+    writer.writeInt(index.size());
+    writer.writeLong(entriesOffset);
+    return headerOffset;
+  }
+
+  /**
+   * Copies the keys into a read-only FrozenGeoRepo.
+   *
+   * @return FrozenGeoRepo
+   */
+  FrozenGeoRepo freeze() {
+    return new FrozenGeoRepo(index);
+  }
+
+  /**
+   * Gives the ordinals of the points within the radius of a GeoPoint Token,
+   * searching the key ranges of the cells covering it.
+   *
+   * @param token    Token to be matched
+   * @param search   searches the entries of a range of keys
+   * @param consumer receives each matching ordinal
+   */
+  static void get(Token token, RangeSearch search, IntConsumer consumer) {
+    if (!(token.getValue() instanceof GeoPoint)) {
+      throw new MatchException("Data Type not supported");
+    }
+    GeoPoint point = (GeoPoint) token.getValue();
+    double radius = token.getElement().getRadius();
+    // Measured between quantized points, so the same points are 0 apart
+    long pointKey = toKey(point);
+    double latitude = getLatitude(pointKey);
+    double longitude = getLongitude(pointKey);
+    long[] ranges = getRanges(point, radius);
+    for (int i = 0; i < ranges.length; i += 2) {
+      search.forEachEntryInRange(ranges[i], ranges[i + 1], (key, ordinal) -> {
+        if (GeoPoint.distance(latitude, longitude, getLatitude(key), getLongitude(key))
+            <= radius) {
+          consumer.accept(ordinal);
+        }
+      });
+    }
+  }
+
+  /**
+   * Gets the key ranges of the cells covering the box around a radius, split at
+   * the antimeridian, and taking every longitude when it reaches a pole.
+   *
+   * @param point  the center
+   * @param radius the radius in kilometers
+   * @return the lower and higher key of each range, included
+   */
+  static long[] getRanges(GeoPoint point, double radius) {
+    if (!(radius >= 0)) {
+      return new long[0];
+    }
+    double angle = Math.toDegrees(radius / GeoPoint.EARTH_RADIUS);
+    double lowerLatitude = point.getLatitude() - angle;
+    double higherLatitude = point.getLatitude() + angle;
+    if (lowerLatitude <= -90 || higherLatitude >= 90) {
+      return getRanges(Math.max(lowerLatitude, -90), Math.min(higherLatitude, 90), -180, 180);
+    }
+    double longitudeAngle = Math.toDegrees(Math.asin(Math.sin(radius / GeoPoint.EARTH_RADIUS)
+        / Math.cos(Math.toRadians(point.getLatitude()))));
+    double lowerLongitude = point.getLongitude() - longitudeAngle;
+    double higherLongitude = point.getLongitude() + longitudeAngle;
+    if (lowerLongitude < -180) {
+      return merge(getRanges(lowerLatitude, higherLatitude, lowerLongitude + 360, 180),
+          getRanges(lowerLatitude, higherLatitude, -180, higherLongitude));
+    } else if (higherLongitude > 180) {
+      return merge(getRanges(lowerLatitude, higherLatitude, lowerLongitude, 180),
+          getRanges(lowerLatitude, higherLatitude, -180, higherLongitude - 360));
+    }
+    return getRanges(lowerLatitude, higherLatitude, lowerLongitude, higherLongitude);
+  }
+
+  static long toKey(GeoPoint point) {
+    return interleave(quantize(point.getLongitude(), 360, 180),
+        quantize(point.getLatitude(), 180, 90));
+  }
+
+  static double getLatitude(long key) {
+    return (compact(key >>> 1) + 0.5) * 180 / SCALE - 90;
+  }
+
+  static double getLongitude(long key) {
+    return (compact(key) + 0.5) * 360 / SCALE - 180;
+  }
+
+  /**
+   * Gets the key ranges of the fewest cells of one size covering a box that
+   * does not cross the antimeridian.
+   */
+  private static long[] getRanges(double lowerLatitude, double higherLatitude,
+      double lowerLongitude, double higherLongitude) {
+    int lowerX = quantize(lowerLongitude, 360, 180);
+    int higherX = quantize(higherLongitude, 360, 180);
+    int lowerY = quantize(lowerLatitude, 180, 90);
+    int higherY = quantize(higherLatitude, 180, 90);
+    int shift = 0;
+    while ((higherX >>> shift) - (lowerX >>> shift) >= CELLS
+        || (higherY >>> shift) - (lowerY >>> shift) >= CELLS) {
+      shift++;
+    }
+
+    int width = (higherX >>> shift) - (lowerX >>> shift) + 1;
+    int height = (higherY >>> shift) - (lowerY >>> shift) + 1;
+    long[] cells = new long[width * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        cells[y * width + x] = interleave(((lowerX >>> shift) + x) << shift,
+            ((lowerY >>> shift) + y) << shift);
+      }
+    }
+    Arrays.sort(cells);
+    long cellSize = 1L << 2 * shift;
+    long[] ranges = new long[2 * cells.length];
+    int count = 0;
+    for (long cell : cells) {
+      // The cells next to each other on the curve are searched as one range
+      if (count > 0 && ranges[count - 1] + 1 == cell) {
+        ranges[count - 1] = cell + cellSize - 1;
+      } else {
+        ranges[count++] = cell;
+        ranges[count++] = cell + cellSize - 1;
+      }
+    }
+    return Arrays.copyOf(ranges, count);
+  }
+
+  private static long[] merge(long[] ranges, long[] otherRanges) {
+    long[] merged = Arrays.copyOf(ranges, ranges.length + otherRanges.length);
+    System.arraycopy(otherRanges, 0, merged, ranges.length, otherRanges.length);
+    return merged;
+  }
+
+  private static int quantize(double degrees, double span, double offset) {
+    return (int) Math.max(0, Math.min(SCALE - 1, (long) Math.floor((degrees + offset) / span
+        * SCALE)));
+  }
+
+  private static long interleave(int x, int y) {
+    return spread(x) | spread(y) << 1;
+  }
+
+  private static long spread(int value) {
+    long bits = value & 0xFFFFFFFFL;
+    bits = (bits | bits << 16) & 0x0000FFFF0000FFFFL;
+    bits = (bits | bits << 8) & 0x00FF00FF00FF00FFL;
+    bits = (bits | bits << 4) & 0x0F0F0F0F0F0F0F0FL;
+    bits = (bits | bits << 2) & 0x3333333333333333L;
+    return (bits | bits << 1) & 0x5555555555555555L;
+  }
+
+  private static long compact(long key) {
+    long bits = key & 0x5555555555555555L;
+    bits = (bits | bits >>> 1) & 0x3333333333333333L;
+    bits = (bits | bits >>> 2) & 0x0F0F0F0F0F0F0F0FL;
+    bits = (bits | bits >>> 4) & 0x00FF00FF00FF00FFL;
+    bits = (bits | bits >>> 8) & 0x0000FFFF0000FFFFL;
+    return (bits | bits >>> 16) & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Searches the entries of a range of keys, in whatever holds them.
+   */
+  @FunctionalInterface
+  interface RangeSearch {
+
+    void forEachEntryInRange(long from, long to, LongRangeIndex.EntryConsumer consumer);
+  }
+}
@@ -0,0 +1,330 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.BlockingKey;
+import fuzzy.matching.domain.Document;
+import fuzzy.matching.domain.Match;
+import fuzzy.matching.exception.MatchException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>
+ * A long-lived index of Documents for incremental de-duplication, where each
+ * Document added is matched against the ones already in the index, and a
+ * Document changed or deleted is taken out of it without building it again.
+ * </p>
+ * The Documents are kept by key. Updating a Document takes the Tokens of its
+ * previous version out of the TokenRepo before the new version is matched and
+ * put, so a change costs work proportional to the Document, not to the index.
+ * Changes can be made from any number of threads, each Document is matched
+ * against the ones in the index when it starts, and changes to the same key
+ * are applied in turn, holding a lock of the key, not of the map of Documents.
+ * <p>
+ * It can also be built once from a reference set of Documents and queried as
+ * often as needed. A query only probes the TokenRepo, the Tokens of the
+ * Documents queried are never put, so each costs the probes of one Document,
+ * not the indexing of the reference set.
+ * </p>
+ * <p>
+ * Queries can be made asynchronously, each on a virtual thread of its own, so
+ * the caller is not blocked and any number of queries waiting does not hold a
+ * platform thread. At most maxInFlight queries are matched at once, the others
+ * wait for their turn, and cancelling the future of a query stops it if it has
+ * not started, or between its Documents. Closing the MatchIndex stops the
+ * executor of the queries.
+ * </p>
+ */
+public class MatchIndex implements AutoCloseable {
+
+  private static final int KEY_LOCKS = 64;
+
+  private final DocumentMatch documentMatch;
+  private final Map<String, Document> documents = new ConcurrentHashMap<>();
+  // Changes to a key are made under its lock, so the map is only locked to swap the version
+  private final ReentrantLock[] keyLocks = new ReentrantLock[KEY_LOCKS];
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final Semaphore inFlight;
+
+  public MatchIndex() {
+    this(new TokenRepo(), List.of());
+  }
+
+  /**
+   * Constructor for MatchIndex.
+   *
+   * @param tokenRepo    - the TokenRepo to match against and put the Documents in
+   * @param blockingKeys - the BlockingKeys of every Document, each a blocking
+   *                     pass
+   */
+  public MatchIndex(TokenRepo tokenRepo, List<BlockingKey> blockingKeys) {
+    this(tokenRepo, blockingKeys, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Constructor for MatchIndex, bounding the asynchronous queries matched at
+   * once.
+   *
+   * @param tokenRepo    - the TokenRepo to match against and put the Documents in
+   * @param blockingKeys - the BlockingKeys of every Document, each a blocking
+   *                     pass
+   * @param maxInFlight  - the asynchronous queries matched at once, at most
+   */
+  public MatchIndex(TokenRepo tokenRepo, List<BlockingKey> blockingKeys, int maxInFlight) {
+    if (maxInFlight < 1) {
+      throw new MatchException("Queries in flight must be at least 1 : " + maxInFlight);
+    }
+    this.documentMatch = new DocumentMatch(tokenRepo, blockingKeys);
+    this.inFlight = new Semaphore(maxInFlight);
+    for (int i = 0; i < KEY_LOCKS; i++) {
+      keyLocks[i] = new ReentrantLock();
+    }
+  }
+
+  public TokenRepo getTokenRepo() {
+    return documentMatch.getTokenRepo();
+  }
+
+  /**
+   * Gets the Document of a key in the index.
+   *
+   * @param key the Document key
+   * @return Document, null if none has the key
+   */
+  public Document getDocument(String key) {
+    return documents.get(key);
+  }
+
+  public int size() {
+    return documents.size();
+  }
+
+  /**
+   * Matches a new Document against the Documents in the index, then adds it.
+   *
+   * @param document the Document to add, with a key not in the index
+   * @return the matches of the Document with the Documents in the index
+   */
+  public List<Match<Document>> add(Document document) {
+    ReentrantLock keyLock = getKeyLock(document.getKey());
+    keyLock.lock();
+    try {
+      if (documents.containsKey(document.getKey())) {
+        throw new MatchException("Document already in the index : " + document.getKey());
+      }
+      List<Match<Document>> matches = match(document);
+      documents.put(document.getKey(), document);
+      return matches;
+    } finally {
+      keyLock.unlock();
+    }
+  }
+
+  /**
+   * Puts Documents in the index without matching them, such as the reference
+   * set the index is built from.
+   *
+   * @param documents the Documents to put, with keys not in the index
+   */
+  public void putAll(Collection<Document> documents) {
+    for (Document document : documents) {
+      ReentrantLock keyLock = getKeyLock(document.getKey());
+      keyLock.lock();
+      try {
+        if (this.documents.putIfAbsent(document.getKey(), document) != null) {
+          throw new MatchException("Document already in the index : " + document.getKey());
+        }
+      } finally {
+        keyLock.unlock();
+      }
+    }
+    getTokenRepo().putAll(documents);
+  }
+
+  /**
+   * Matches a Document against the Documents in the index, without adding it.
+   * The Document of the same key in the index, another version of it, is not
+   * matched.
+   *
+   * @param document the Document to match
+   * @return the matches of the Document with the Documents in the index
+   */
+  public List<Match<Document>> query(Document document) {
+    return documentMatch.queryDocument(document)
+        .filter(match -> !match.getMatchedWith().getKey().equals(document.getKey()))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Gets the k best matches of a Document against the Documents in the index,
+   * without adding it. The Documents in the index are scored from the most
+   * likely to match down, and only until none left can beat the k best found.
+   * The Document of the same key in the index is not matched.
+   *
+   * @param document the Document to match
+   * @param k        the number of matches kept
+   * @return the best matches of the Document, the best first
+   */
+  public List<Match<Document>> query(Document document, int k) {
+    return documentMatch.queryDocument(document, k);
+  }
+
+  /**
+   * Matches each Document against the Documents in the index, without adding
+   * any, so the Documents are not matched with each other.
+   *
+   * @param documents the Documents to match
+   * @return the matches of the Documents with the Documents in the index
+   */
+  public List<Match<Document>> query(List<Document> documents) {
+    List<Match<Document>> matches = new ArrayList<>();
+    documents.forEach(document -> matches.addAll(query(document)));
+    return matches;
+  }
+
+  /**
+   * Queries a Document on a virtual thread, once fewer than maxInFlight queries
+   * are being matched.
+   *
+   * @param document the Document to match
+   * @return the future matches of the Document with the Documents in the index
+   */
+  public CompletableFuture<List<Match<Document>>> queryAsync(Document document) {
+    return supplyAsync(() -> query(document));
+  }
+
+  /**
+   * Queries the Documents on a virtual thread, once fewer than maxInFlight
+   * queries are being matched. When the future is cancelled, the Documents not
+   * yet matched are not.
+   *
+   * @param documents the Documents to match
+   * @return the future matches of the Documents with the Documents in the index
+   */
+  public CompletableFuture<List<Match<Document>>> queryAsync(List<Document> documents) {
+    return supplyAsync(() -> {
+      List<Match<Document>> matches = new ArrayList<>();
+      for (Document document : documents) {
+        if (Thread.currentThread().isInterrupted()) {
+          throw new CancellationException();
+        }
+        matches.addAll(query(document));
+      }
+      return matches;
+    });
+  }
+
+  /**
+   * Replaces the version of a Document in the index, or adds it if there is
+   * none. The previous version is taken out first, so it is not matched.
+   *
+   * @param document the new version of the Document
+   * @return the matches of the Document with the other Documents in the index
+   */
+  public List<Match<Document>> update(Document document) {
+    ReentrantLock keyLock = getKeyLock(document.getKey());
+    keyLock.lock();
+    try {
+      Document previous = documents.get(document.getKey());
+      if (previous != null) {
+        documentMatch.removeDocument(previous);
+      }
+      List<Match<Document>> matches = match(document);
+      documents.put(document.getKey(), document);
+      return matches;
+    } finally {
+      keyLock.unlock();
+    }
+  }
+
+  /**
+   * Takes the Document of the same key out of the index.
+   *
+   * @param document the Document, or another version of it
+   * @return true if the Document was in the index
+   */
+  public boolean remove(Document document) {
+    ReentrantLock keyLock = getKeyLock(document.getKey());
+    keyLock.lock();
+    try {
+      Document previous = documents.remove(document.getKey());
+      if (previous == null) {
+        return false;
+      }
+      documentMatch.removeDocument(previous);
+      return true;
+    } finally {
+      keyLock.unlock();
+    }
+  }
+
+  /**
+   * Stops taking asynchronous queries, and waits for the ones already made to be
+   * done. The TokenRepo is not closed.
+   */
+  @Override
+  public void close() {
+    executor.close();
+  }
+
+  private <T> CompletableFuture<T> supplyAsync(Supplier<T> query) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    Future<?> task;
+    try {
+      task = executor.submit(() -> {
+        try {
+          inFlight.acquire();
+        } catch (InterruptedException e) {
+          // Cancelled while waiting for its turn
+          result.cancel(false);
+          return;
+        }
+        try {
+          if (!result.isDone()) {
+            result.complete(query.get());
+          }
+        } catch (Throwable e) {
+          // Errors too, or the future would never complete
+          result.completeExceptionally(e);
+        } finally {
+          inFlight.release();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      throw new MatchException("MatchIndex closed");
+    }
+    // Cancelling the future interrupts the virtual thread of the query
+    result.whenComplete((matches, e) -> {
+      if (result.isCancelled()) {
+        task.cancel(true);
+      }
+    });
+    return result;
+  }
+
+  private ReentrantLock getKeyLock(String key) {
+    return keyLocks[Math.floorMod(key.hashCode(), KEY_LOCKS)];
+  }
+
+  private List<Match<Document>> match(Document document) {
+    List<Match<Document>> matches = new ArrayList<>();
+    // The matches of the Documents in the index with this one are the same, reversed
+    documentMatch.matchDocuments(Stream.of(document))
+        .filter(match -> match.getData() == document)
+        .forEach(matches::add);
+    return matches;
+  }
+}
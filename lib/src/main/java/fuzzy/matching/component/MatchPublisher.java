@@ -0,0 +1,77 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Document;
+import fuzzy.matching.domain.Match;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * <p>
+ * Publishes the matches of the Documents of a publisher, each Document matched
+ * against the ones before it as soon as it is received.
+ * </p>
+ * One Document is requested at a time, and the next only once the matches of
+ * the previous one are taken by the subscribers' buffers, so a slow subscriber
+ * holds back the Documents instead of the matches piling up. The Documents are
+ * only requested once the first subscriber subscribes, so no match is lost.
+ */
+class MatchPublisher extends SubmissionPublisher<Match<Document>>
+    implements Flow.Processor<Document, Match<Document>> {
+
+  private final DocumentMatch documentMatch;
+  private final Flow.Publisher<Document> documents;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+  private Flow.Subscription subscription;
+
+  /**
+   * Constructor for MatchPublisher.
+   *
+   * @param documentMatch - the DocumentMatch to match the Documents with
+   * @param documents     - the publisher of the Documents
+   */
+  MatchPublisher(DocumentMatch documentMatch, Flow.Publisher<Document> documents) {
+    // Delivered on the common pool, with Flow.defaultBufferSize() matches per subscriber
+    super();
+    this.documentMatch = documentMatch;
+    this.documents = documents;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super Match<Document>> subscriber) {
+    super.subscribe(subscriber);
+    if (subscribed.compareAndSet(false, true)) {
+      documents.subscribe(this);
+    }
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    this.subscription = subscription;
+    subscription.request(1);
+  }
+
+  @Override
+  public void onNext(Document document) {
+    try {
+      // Blocks while a subscriber buffer is full
+      documentMatch.matchDocuments(Stream.of(document)).forEach(this::submit);
+    } catch (RuntimeException e) {
+      subscription.cancel();
+      closeExceptionally(e);
+      return;
+    }
+    subscription.request(1);
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    closeExceptionally(throwable);
+  }
+
+  @Override
+  public void onComplete() {
+    close();
+  }
+}
@@ -1,5 +1,6 @@
 package fuzzy.matching.component;
 
+import fuzzy.matching.domain.BlockingKey;
 import fuzzy.matching.domain.Document;
 import fuzzy.matching.domain.Match;
 import java.util.Arrays;
@@ -7,6 +8,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.commons.collections4.CollectionUtils;
@@ -27,6 +30,51 @@ import org.apache.commons.collections4.CollectionUtils;
  */
 public class MatchService {
 
+  private final List<BlockingKey> blockingKeys;
+  private final ForkJoinPool pool;
+  private volatile DocumentMatch lastDocumentMatch;
+
+  public MatchService() {
+    this(List.of());
+  }
+
+  /**
+   * Constructor for MatchService, comparing only the Documents sharing the value
+   * of a BlockingKey, besides the BlockingKeys of the Documents themselves.
+   *
+   * @param blockingKeys - the BlockingKeys of every Document, each a blocking
+   *                     pass
+   */
+  public MatchService(List<BlockingKey> blockingKeys) {
+    this(blockingKeys, null);
+  }
+
+  /**
+   * Constructor for MatchService, matching the Documents in parallel on a pool.
+   * The Documents are all put in the index first, then matched in parallel,
+   * with the same results.
+   *
+   * @param blockingKeys - the BlockingKeys of every Document, each a blocking
+   *                     pass
+   * @param pool         - the pool to match the Documents in, null to match them
+   *                     one after the other in the calling thread
+   */
+  public MatchService(List<BlockingKey> blockingKeys, ForkJoinPool pool) {
+    this.blockingKeys = List.copyOf(blockingKeys);
+    this.pool = pool;
+  }
+
+  /**
+   * Gets the number of Document pairs compared sharing the value of each
+   * BlockingKey, by name, in the last match applied.
+   *
+   * @return the comparison count of each blocking pass
+   */
+  public Map<String, Long> getComparisonCounts() {
+    DocumentMatch documentMatch = lastDocumentMatch;
+    return documentMatch == null ? Map.of() : documentMatch.getComparisonCounts();
+  }
+
   /**
    * Use this for De-duplication of data, where for a given list of documents it
    * finds duplicates
@@ -37,8 +85,7 @@ public class MatchService {
    *         matches
    */
   public Map<Document, List<Match<Document>>> applyMatch(List<Document> documents) {
-    DocumentMatch documentMatch = new DocumentMatch();
-    return documentMatch.matchDocuments(documents.stream())
+    return matchDocuments(documents)
         .collect(Collectors.groupingBy(Match::getData));
   }
 
@@ -54,16 +101,7 @@ public class MatchService {
    */
   public Map<Document, List<Match<Document>>> applyMatch(
       List<Document> documents, List<Document> matchWith) {
-    DocumentMatch documentMatch = new DocumentMatch();
-    return documentMatch.matchDocuments(Stream.concat(
-        matchWith.stream().map(document -> {
-          document.setSource(false);
-          return document;
-        }),
-        documents.stream().map(document -> {
-          document.setSource(true);
-          return document;
-        })))
+    return matchDocuments(documents, matchWith)
         .collect(Collectors.groupingBy(Match::getData));
   }
 
@@ -82,6 +120,27 @@ public class MatchService {
     return applyMatch(Arrays.asList(document), matchWith);
   }
 
+  /**
+   * Use this to get the best matches of a new record in existing list, where
+   * the list is scored from the Documents most likely to match down, and only
+   * until none left can beat the k best found. As with applyMatch, the document
+   * is a source and the list is not, and the Documents of the same key as the
+   * document are not matched.
+   *
+   * @param document  the document to match
+   * @param matchWith the list of documents to match against
+   * @param k         the number of matches kept
+   * @return the k best matches of the document, the best first
+   */
+  public List<Match<Document>> applyMatchTopK(Document document, List<Document> matchWith,
+      int k) {
+    matchWith.forEach(other -> other.setSource(false));
+    document.setSource(true);
+    DocumentMatch documentMatch = createDocumentMatch();
+    documentMatch.getTokenRepo().putAll(matchWith);
+    return documentMatch.queryDocument(document, k);
+  }
+
   /**
    * Use this to check duplicate for a new record, where it checks whether a new
    * Document is a duplicate in existing list
@@ -107,8 +166,7 @@ public class MatchService {
    *         corresponding matches
    */
   public Map<String, List<Match<Document>>> applyMatchByDocId(List<Document> documents) {
-    DocumentMatch documentMatch = new DocumentMatch();
-    return documentMatch.matchDocuments(documents.stream())
+    return matchDocuments(documents)
         .collect(Collectors.groupingBy(match -> match.getData().getKey()));
   }
 
@@ -124,15 +182,7 @@ public class MatchService {
    */
   public Map<String, List<Match<Document>>> applyMatchByDocId(
       List<Document> documents, List<Document> matchWith) {
-    DocumentMatch documentMatch = new DocumentMatch();
-    return documentMatch.matchDocuments(Stream.concat(
-        matchWith.stream().map(document -> {
-          document.setSource(false);
-          return document;
-        }), documents.stream().map(document -> {
-          document.setSource(true);
-          return document;
-        })))
+    return matchDocuments(documents, matchWith)
         .collect(Collectors.groupingBy(match -> match.getData().getKey()));
   }
 
@@ -146,8 +196,7 @@ public class MatchService {
    *         matches B, and B matches C. They will be grouped together
    */
   public Set<Set<Match<Document>>> applyMatchByGroups(List<Document> documents) {
-    DocumentMatch documentMatch = new DocumentMatch();
-    Map<String, List<Match<Document>>> matchByKey = documentMatch.matchDocuments(documents.stream())
+    Map<String, List<Match<Document>>> matchByKey = matchDocuments(documents)
         .collect(Collectors.groupingBy(match -> match.getData().getKey()));
 
     Set<String> docKeys = new HashSet<>(matchByKey.keySet());
@@ -163,6 +212,67 @@ public class MatchService {
     return result;
   }
 
+  /**
+   * Use this for De-duplication of a stream of data, where each Document is
+   * matched with the ones before it when the Stream is consumed, and its matches
+   * are given right away, both ways, as applyMatch gives them. Neither the
+   * Documents nor the matches are held, only the index.
+   *
+   * @param documents the Stream of documents to match, read as the matches are
+   * @return the Stream of the matches
+   */
+  public Stream<Match<Document>> applyMatchStream(Stream<Document> documents) {
+    return createDocumentMatch().matchDocuments(documents);
+  }
+
+  /**
+   * Use this for De-duplication of a feed of data, where each Document published
+   * is matched with the ones before it, and its matches are published right
+   * away. A Document is only requested once the matches of the previous one fit
+   * in the buffers of the subscribers, so the demand of the subscribers holds
+   * back the Documents.
+   *
+   * @param documents the publisher of documents to match, subscribed to by the
+   *                  first subscriber of the matches
+   * @return the publisher of the matches
+   */
+  public Flow.Publisher<Match<Document>> applyMatchPublisher(Flow.Publisher<Document> documents) {
+    return new MatchPublisher(createDocumentMatch(), documents);
+  }
+
+  private Stream<Match<Document>> matchDocuments(List<Document> documents,
+      List<Document> matchWith) {
+    if (pool == null) {
+      // Flagged as they are matched, so a Document in both lists is matched against
+      // first, then matched as a source
+      return createDocumentMatch().matchDocuments(Stream.concat(
+          matchWith.stream().map(document -> {
+            document.setSource(false);
+            return document;
+          }),
+          documents.stream().map(document -> {
+            document.setSource(true);
+            return document;
+          })));
+    }
+    // A Document in both lists is put with the ones matched against, then matched
+    matchWith.forEach(document -> document.setSource(false));
+    documents.forEach(document -> document.setSource(true));
+    return createDocumentMatch().matchDocuments(matchWith, documents, pool);
+  }
+
+  private Stream<Match<Document>> matchDocuments(List<Document> documents) {
+    DocumentMatch documentMatch = createDocumentMatch();
+    return pool == null ? documentMatch.matchDocuments(documents.stream())
+        : documentMatch.matchDocuments(documents, pool);
+  }
+
+  private DocumentMatch createDocumentMatch() {
+    DocumentMatch documentMatch = new DocumentMatch(new TokenRepo(), blockingKeys);
+    lastDocumentMatch = documentMatch;
+    return documentMatch;
+  }
+
   private void groupSimilar(Map<String, List<Match<Document>>> matchMap, String key,
       Set<Match<Document>> matchGroups) {
     List<Match<Document>> matches = matchMap.get(key);
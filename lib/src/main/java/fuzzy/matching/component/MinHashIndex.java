@@ -0,0 +1,139 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Element;
+import fuzzy.matching.exception.MatchException;
+import fuzzy.matching.util.ChunkedArray;
+import fuzzy.matching.util.PostingList;
+import fuzzy.matching.util.Utils;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>
+ * Locality sensitive hashing index of the MinHash signatures of Elements, giving
+ * the Elements likely to share many Token values with an Element.
+ * </p>
+ * The signature of an Element is the lowest hash of its Token values under each
+ * of bands x rows hash functions. It is cut into bands of rows hashes, and each
+ * band is hashed to a bucket holding the ordinals of the Elements in it. Two
+ * Elements with a Jaccard similarity s of their Token values share at least one
+ * bucket with the probability 1 - (1 - s^rows)^bands, so finding the candidates
+ * of an Element reads a fixed number of buckets, whatever the number of
+ * Elements holding each of its Token values.
+ */
+@SuppressWarnings("rawtypes")
+class MinHashIndex implements CandidateIndex {
+
+  private final int bands;
+  private final int rows;
+  private final long[] seeds;
+  private final Map<Long, PostingList> buckets = new ConcurrentHashMap<>();
+  private final ChunkedArray<TokenSet> tokenSets = new ChunkedArray<>();
+
+  /**
+   * Constructor for MinHashIndex.
+   *
+   * @param bands - the number of bands of the signature
+   * @param rows  - the number of hashes in each band
+   */
+  MinHashIndex(int bands, int rows) {
+    if (bands < 1 || rows < 1) {
+      throw new MatchException(
+          "MinHash bands and rows must be positive : " + bands + " x " + rows);
+    }
+    this.bands = bands;
+    this.rows = rows;
+    this.seeds = new long[bands * rows];
+    long seed = 0;
+    for (int i = 0; i < seeds.length; i++) {
+      seed += 0x9E3779B97F4A7C15L;
+      seeds[i] = Utils.mix64(seed);
+    }
+  }
+
+  /**
+   * Puts the Element in the bucket of each band of its signature.
+   */
+  @Override
+  public void put(Element element, int ordinal) {
+    TokenSet tokenSet = new TokenSet(element);
+    tokenSets.set(ordinal, tokenSet);
+    if (tokenSet.size() > 0) {
+      long[] signature = getSignature(tokenSet);
+      for (int band = 0; band < bands; band++) {
+        buckets.compute(getBucket(signature, band), (bucket, postingList) -> {
+          PostingList next = postingList != null ? postingList : new PostingList();
+          next.add(ordinal);
+          return next;
+        });
+      }
+    }
+  }
+
+  /**
+   * Removes the Element from the bucket of each band of its signature.
+   */
+  @Override
+  public void remove(int ordinal) {
+    TokenSet tokenSet = tokenSets.get(ordinal);
+    if (tokenSet == null) {
+      return;
+    }
+    tokenSets.set(ordinal, null);
+    if (tokenSet.size() > 0) {
+      long[] signature = getSignature(tokenSet);
+      for (int band = 0; band < bands; band++) {
+        buckets.computeIfPresent(getBucket(signature, band), (bucket, postingList) -> {
+          postingList.remove(ordinal);
+          return postingList.size() > 0 ? postingList : null;
+        });
+      }
+    }
+  }
+
+  /**
+   * Gives the ordinals of the Elements sharing a bucket with the TokenSet.
+   */
+  @Override
+  public void getCandidates(TokenSet tokenSet, IntConsumer consumer) {
+    if (tokenSet.size() > 0) {
+      long[] signature = getSignature(tokenSet);
+      for (int band = 0; band < bands; band++) {
+        PostingList postingList = buckets.get(getBucket(signature, band));
+        if (postingList != null) {
+          postingList.forEach(consumer);
+        }
+      }
+    }
+  }
+
+  @Override
+  public TokenSet getTokenSet(int ordinal) {
+    return tokenSets.get(ordinal);
+  }
+
+  private long[] getSignature(TokenSet tokenSet) {
+    long[] signature = new long[seeds.length];
+    Arrays.fill(signature, Long.MAX_VALUE);
+    for (int index = 0; index < tokenSet.size(); index++) {
+      long spread = Utils.mix64(tokenSet.getHash(index));
+      for (int i = 0; i < seeds.length; i++) {
+        long value = Utils.mix64(spread ^ seeds[i]);
+        if (value < signature[i]) {
+          signature[i] = value;
+        }
+      }
+    }
+    return signature;
+  }
+
+  private long getBucket(long[] signature, int band) {
+    long bucket = band;
+    for (int i = band * rows; i < (band + 1) * rows; i++) {
+      bucket = Utils.mix64(bucket * 31 + signature[i]);
+    }
+    return bucket;
+  }
+}
@@ -0,0 +1,241 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Element;
+import fuzzy.matching.domain.MatchType;
+import fuzzy.matching.domain.Token;
+import fuzzy.matching.exception.MatchException;
+import fuzzy.matching.util.LongRangeIndex;
+import fuzzy.matching.util.SnapshotReader;
+import fuzzy.matching.util.SnapshotWriter;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>
+ * Repo for the NEAREST_NEIGHBORS MatchType, matching numeric and date Tokens
+ * within the neighborhoodRange of each other.
+ * </p>
+ * Integer and Long values are held as long keys, Double and Float values as
+ * double keys, and Date, Instant and LocalDate values as their epoch day, in
+ * sorted primitive arrays, the day of a Date or Instant in the zone of its
+ * Element. A probe is a binary search over them that does not
+ * box the value or its range. Dates match within the dateTolerance of the
+ * Element in days, or a part of 5 years given by its neighborhoodRange.
+ */
+@SuppressWarnings("rawtypes")
+class NumericRepo implements Repo {
+
+  private static final double AGE_PCT_OF = 10D;
+  private static final double DATE_PCT_OF = 1826D; // 5 years of range, in days
+
+  private final LongRangeIndex longIndex = new LongRangeIndex();
+  private final LongRangeIndex doubleIndex = new LongRangeIndex();
+  private final LongRangeIndex dayIndex = new LongRangeIndex();
+
+  @Override
+  public void put(Token token, int ordinal) {
+    Object value = token.getValue();
+    if (value instanceof Integer || value instanceof Long) {
+      longIndex.add(((Number) value).longValue(), ordinal);
+    } else if (isDate(value)) {
+      dayIndex.add(toEpochDay(value, token.getElement().getZoneId()), ordinal);
+    } else if (value instanceof Double || value instanceof Float) {
+      doubleIndex.add(LongRangeIndex.toSortableLong(((Number) value).doubleValue()), ordinal);
+    }
+    // Other types can not be ranged over, and probing with them is rejected
+  }
+
+  @Override
+  public void remove(Token token, int ordinal) {
+    Object value = token.getValue();
+    if (value instanceof Integer || value instanceof Long) {
+      longIndex.remove(((Number) value).longValue(), ordinal);
+    } else if (isDate(value)) {
+      dayIndex.remove(toEpochDay(value, token.getElement().getZoneId()), ordinal);
+    } else if (value instanceof Double || value instanceof Float) {
+      doubleIndex.remove(LongRangeIndex.toSortableLong(((Number) value).doubleValue()), ordinal);
+    }
+  }
+
+  @Override
+  public void get(Token token, IntConsumer consumer) {
+    if (isDate(token.getValue())) {
+      long[] dayBounds = getDayBounds(token);
+      dayIndex.forEachInRange(dayBounds[0], dayBounds[1], consumer);
+      return;
+    }
+    double[] bounds = getBounds(token);
+    longIndex.forEachInRange(
+        (long) Math.ceil(bounds[0]), (long) Math.floor(bounds[1]), consumer);
+    doubleIndex.forEachInRange(LongRangeIndex.toSortableLong(bounds[0]),
+        LongRangeIndex.toSortableLong(bounds[1]), consumer);
+  }
+
+  @Override
+  public void save(SnapshotWriter writer) throws IOException {
+    writer.writeString(MatchType.NEAREST_NEIGHBORS.name());
+    longIndex.writeTo(writer);
+    doubleIndex.writeTo(writer);
+    dayIndex.writeTo(writer);
+  }
+
+  @Override
+  public void restore(SnapshotReader reader) throws IOException {
+    longIndex.readFrom(reader);
+    doubleIndex.readFrom(reader);
+    dayIndex.readFrom(reader);
+  }
+
+  @Override
+  public long saveSegment(SnapshotWriter writer) throws IOException {
+    long longEntriesOffset = writeSegmentEntries(writer, longIndex);
+    long doubleEntriesOffset = writeSegmentEntries(writer, doubleIndex);
+    long dayEntriesOffset = writeSegmentEntries(writer, dayIndex);
+    long headerOffset = writer.getPosition();
+    writer.writeString(MatchType.NEAREST_NEIGHBORS.name());
+    writer.writeInt(longIndex.size());
+    writer.writeLong(longEntriesOffset);
+    writer.writeInt(doubleIndex.size());
+    writer.writeLong(doubleEntriesOffset);
+    writer.writeInt(dayIndex.size());
+    writer.writeLong(dayEntriesOffset);
+    return headerOffset;
+  }
+
+  /**
+   * Copies the keys into a read-only FrozenNumericRepo.
+   *
+   * @return FrozenNumericRepo
+   */
+  FrozenNumericRepo freeze() {
+    return new FrozenNumericRepo(longIndex, doubleIndex, dayIndex);
+  }
+
+  /**
+   * Checks if the value is a date, held by its epoch day.
+   *
+   * @param value Token value
+   * @return true for a Date, Instant or LocalDate
+   */
+  static boolean isDate(Object value) {
+    return value instanceof Date || value instanceof Instant || value instanceof LocalDate;
+  }
+
+  /**
+   * Gets the epoch day of a date, the days since 1970-01-01. A Date or Instant
+   * is on the day it falls on in the zone, the one a LocalDate is given in.
+   *
+   * @param value  a Date, Instant or LocalDate
+   * @param zoneId the zone of the day of a Date or Instant
+   * @return the epoch day
+   */
+  static long toEpochDay(Object value, ZoneId zoneId) {
+    if (value instanceof LocalDate) {
+      return ((LocalDate) value).toEpochDay();
+    }
+    // The time of a java.sql.Date, which can not give an Instant itself
+    Instant instant = value instanceof Instant ? (Instant) value
+        : Instant.ofEpochMilli(((Date) value).getTime());
+    return LocalDate.ofInstant(instant, zoneId).toEpochDay();
+  }
+
+  /**
+   * Gets the range of epoch days matching a date Token.
+   *
+   * @param token Token to be matched, of a date
+   * @return the lower and higher epoch days, included
+   */
+  static long[] getDayBounds(Token token) {
+    Element element = token.getElement();
+    long day = toEpochDay(token.getValue(), element.getZoneId());
+    long tolerance = element.getDateTolerance() >= 0 ? element.getDateTolerance()
+        : (long) Math.abs(DATE_PCT_OF * (1.0 - element.getNeighborhoodRange()));
+    return new long[] { day - tolerance, day + tolerance };
+  }
+
+  /**
+   * Gets the range of values matching a numeric Token, as doubles.
+   *
+   * @param token Token to be matched
+   * @return the lower and higher bounds, included
+   */
+  static double[] getBounds(Token token) {
+    Object value = token.getValue();
+    Element element = token.getElement();
+    double lower;
+    double higher;
+    if (value instanceof Double) {
+      double number = (Double) value;
+      lower = getLower(number, element);
+      higher = getHigher(number, element);
+    } else if (value instanceof Integer) {
+      int number = (Integer) value;
+      lower = (int) getLower(number, element);
+      higher = (int) getHigher(number, element);
+    } else if (value instanceof Long) {
+      long number = (Long) value;
+      lower = (long) getLower(number, element);
+      higher = (long) getHigher(number, element);
+    } else if (value instanceof Float) {
+      float number = (Float) value;
+      lower = (float) getLower(number, element);
+      higher = (float) getHigher(number, element);
+    } else {
+      throw new MatchException("Data Type not supported");
+    }
+    return new double[] { lower, higher };
+  }
+
+  /**
+   * Writes the entries of an index in key order, each as a fixed size long key
+   * and int ordinal, to be searched in place.
+   *
+   * @param writer the segment being written
+   * @param index  the index
+   * @return the offset of the entries
+   * @throws IOException if the segment can not be written
+   */
+  static long writeSegmentEntries(SnapshotWriter writer, LongRangeIndex index)
+      throws IOException {
+    long offset = writer.getPosition();
+    IOException[] failure = new IOException[1];
+    index.forEach((key, value) -> {
+      try {
+        if (failure[0] == null) {
+          writer.writeLong(key);
+          writer.writeInt(value);
+        }
+      } catch (IOException e) {
+        failure[0] = e;
+      }
+    });
+    if (failure[0] != null) {
+      throw failure[0];
+    }
+    return offset;
+  }
+
+  private static double getLower(double number, Element element) {
+    return number - getRange(number, element);
+  }
+
+  private static double getHigher(double number, Element element) {
+    return number + getRange(number, element);
+  }
+
+  private static double getRange(double number, Element element) {
+    double pctOf;
+    switch (element.getElementClassification().getElementType()) {
+      case AGE:
+        pctOf = AGE_PCT_OF;
+        break;
+      default:
+        pctOf = number;
+    }
+    return Math.abs(pctOf * (1.0 - element.getNeighborhoodRange()));
+  }
+}
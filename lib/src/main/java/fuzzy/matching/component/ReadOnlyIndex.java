@@ -0,0 +1,44 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Element;
+import fuzzy.matching.domain.ElementClassification;
+
+/**
+ * A read-only base of a TokenRepo, holding the Elements of the first ordinals
+ * and a Repo per ElementClassification that can only be probed. The Tokens put
+ * in the TokenRepo afterwards are kept in its own Repos.
+ */
+interface ReadOnlyIndex {
+
+  /**
+   * Gets the number of Elements, the TokenRepo gives the next ordinals to the
+   * Elements put in it.
+   *
+   * @return the number of Elements
+   */
+  int getElementCount();
+
+  /**
+   * Gets the number of Elements of an ElementClassification.
+   *
+   * @param elementClassification the ElementClassification
+   * @return the number of Elements
+   */
+  int getElementCount(ElementClassification elementClassification);
+
+  /**
+   * Gets the Repo of an ElementClassification.
+   *
+   * @param elementClassification the ElementClassification
+   * @return Repo, null if the index has no Element of it
+   */
+  Repo getRepo(ElementClassification elementClassification);
+
+  /**
+   * Gets the Element of an ordinal.
+   *
+   * @param ordinal Element ordinal, lower than the Element count
+   * @return Element
+   */
+  Element getElement(int ordinal);
+}
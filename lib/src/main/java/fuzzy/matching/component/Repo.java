@@ -0,0 +1,176 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Element;
+import fuzzy.matching.domain.Token;
+import fuzzy.matching.domain.MatchType;
+import fuzzy.matching.exception.MatchException;
+import fuzzy.matching.util.MappedFile;
+import fuzzy.matching.util.SnapshotReader;
+import fuzzy.matching.util.SnapshotWriter;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Stores the Tokens of a single ElementClassification against the ordinals of
+ * their Elements, and finds the ordinals matching a Token according to the
+ * MatchType.
+ */
+@SuppressWarnings("rawtypes")
+interface Repo {
+
+  /**
+   * Puts the Token in the Repo.
+   *
+   * @param token   Token to be put in the Repo
+   * @param ordinal ordinal of the Element the Token belongs to
+   */
+  void put(Token token, int ordinal);
+
+  /**
+   * Removes the Token put for the ordinal from the Repo, and the value once no
+   * Element holds it.
+   *
+   * @param token   Token put in the Repo
+   * @param ordinal ordinal of the Element the Token belongs to
+   */
+  void remove(Token token, int ordinal);
+
+  /**
+   * Gives the ordinals of the Elements matching the given Token. An ordinal
+   * matching through more than one stored Token can be given more than once.
+   *
+   * @param token    Token to be matched
+   * @param consumer receives each matching ordinal
+   */
+  void get(Token token, IntConsumer consumer);
+
+  /**
+   * Gets the number of Elements holding the value of the Token, or for
+   * EQUALITY_DISTANCE the sum over every value within the edit distance of it,
+   * the values the Token matches. Repos that do not keep a posting list per
+   * value give 0.
+   *
+   * @param token Token whose value is counted
+   * @return document frequency of the value
+   */
+  default int getDocumentFrequency(Token token) {
+    return 0;
+  }
+
+  /**
+   * Gets a test of whether the Element of an ordinal matches the given Token, to
+   * check known candidates without listing every match of the Token.
+   *
+   * @param token Token to be matched
+   * @return test of an Element ordinal
+   */
+  default IntPredicate getMatcher(Token token) {
+    BitSet ordinals = new BitSet();
+    get(token, ordinals::set);
+    return ordinals::get;
+  }
+
+  /**
+   * Writes the Repo to a snapshot, starting with its MatchType and settings.
+   *
+   * @param writer the snapshot being written
+   * @throws IOException if the snapshot can not be written
+   */
+  void save(SnapshotWriter writer) throws IOException;
+
+  /**
+   * Puts the Tokens written by save, after the settings.
+   *
+   * @param reader the snapshot being read
+   * @throws IOException if the snapshot can not be read
+   */
+  void restore(SnapshotReader reader) throws IOException;
+
+  /**
+   * Writes the Repo as a section of a segment, laid out to be queried in place.
+   * The data comes first, followed by a header with its MatchType, settings and
+   * the offsets of the data.
+   *
+   * @param writer the segment being written
+   * @return the offset of the header
+   * @throws IOException if the segment can not be written
+   */
+  long saveSegment(SnapshotWriter writer) throws IOException;
+
+  /**
+   * Creates the Repo for the MatchType of the first Element put.
+   *
+   * @param element the first Element to be put in the Repo
+   * @return Repo
+   */
+  static Repo create(Element element) {
+    switch (element.getMatchType()) {
+      case EQUALITY:
+        return new EqualityRepo();
+      case EQUALITY_DISTANCE:
+        return new EditDistanceRepo(element);
+      case NEAREST_NEIGHBORS:
+        return new NumericRepo();
+      case GEO_DISTANCE:
+        return new GeoRepo();
+      default:
+        throw new MatchException("Match Type not supported");
+    }
+  }
+
+  /**
+   * Reads a Repo written by save.
+   *
+   * @param reader the snapshot being read
+   * @return Repo
+   * @throws IOException if the snapshot can not be read
+   */
+  static Repo load(SnapshotReader reader) throws IOException {
+    Repo repo;
+    switch (MatchType.valueOf(reader.readString())) {
+      case EQUALITY:
+        repo = new EqualityRepo();
+        break;
+      case EQUALITY_DISTANCE:
+        repo = new EditDistanceRepo(reader.readVarInt(), reader.readBoolean());
+        break;
+      case NEAREST_NEIGHBORS:
+        repo = new NumericRepo();
+        break;
+      case GEO_DISTANCE:
+        repo = new GeoRepo();
+        break;
+      default:
+        throw new MatchException("Match Type not supported");
+    }
+    repo.restore(reader);
+    return repo;
+  }
+
+  /**
+   * Opens a Repo written by saveSegment, queried in place in the mapped segment.
+   *
+   * @param file         the mapped segment
+   * @param headerOffset the offset of the header of the Repo
+   * @return a Repo that can not be put to
+   */
+  static Repo open(MappedFile file, long headerOffset) {
+    MappedFile.Cursor header = file.cursor(headerOffset);
+    MatchType matchType = MatchType.valueOf(header.readString());
+    switch (matchType) {
+      case EQUALITY:
+        return new SegmentTermRepo(file, matchType, 0, false, header);
+      case EQUALITY_DISTANCE:
+        return new SegmentTermRepo(
+            file, matchType, header.readVarInt(), header.readBoolean(), header);
+      case NEAREST_NEIGHBORS:
+        return new SegmentNumericRepo(file, header);
+      case GEO_DISTANCE:
+        return new SegmentGeoRepo(file, header);
+      default:
+        throw new MatchException("Match Type not supported");
+    }
+  }
+}
@@ -0,0 +1,203 @@
+package fuzzy.matching.component;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * <p>
+ * Counts the Token hits of each Element ordinal while an Element is matched.
+ * </p>
+ * Counts are held in an int array indexed by ordinal, with the list of the
+ * ordinals touched so far, so clearing it costs only what was counted and it can
+ * be reused from one Element to the next. An ordinal is counted at most once per
+ * probe, as a Repo can give it more than once for the same Token.
+ * The ordinals hit by the current probe are kept as well, so the Token can be
+ * weighed by how many Elements it hit once the probe is over.
+ * Candidates found otherwise can be touched without a hit, and their hits
+ * counted directly.
+ * An ordinal rejected by the candidate filter is neither counted nor touched,
+ * only seen by the probe, and the filter is asked once per ordinal.
+ * It is not safe for concurrent use, each thread holds its own.
+ */
+class ScoreAccumulator {
+
+  private static final int INITIAL_CAPACITY = 64;
+  private static final byte ACCEPTED = 1;
+  private static final byte REJECTED = 2;
+
+  private int[] counts = new int[INITIAL_CAPACITY];
+  private double[] weights = new double[INITIAL_CAPACITY];
+  private int[] probes = new int[INITIAL_CAPACITY];
+  private int[] touched = new int[INITIAL_CAPACITY];
+  private int touchedCount;
+  private int[] probeHits = new int[INITIAL_CAPACITY];
+  private int probeHitCount;
+  private int probeSeenCount;
+  private int probe;
+  private IntPredicate candidateFilter;
+  private byte[] verdicts = new byte[INITIAL_CAPACITY];
+  private int[] judged = new int[INITIAL_CAPACITY];
+  private int judgedCount;
+
+  /**
+   * Sets the filter of the ordinals counted, until cleared.
+   *
+   * @param candidateFilter accepts the ordinals to be counted, null for all
+   */
+  void setCandidateFilter(IntPredicate candidateFilter) {
+    this.candidateFilter = candidateFilter;
+  }
+
+  /**
+   * Starts counting the hits of the next Token.
+   */
+  void startProbe() {
+    if (++probe == 0) {
+      Arrays.fill(probes, 0);
+      probe = 1;
+    }
+    probeHitCount = 0;
+    probeSeenCount = 0;
+  }
+
+  /**
+   * Counts a hit of the current Token on the ordinal.
+   *
+   * @param ordinal Element ordinal
+   */
+  void add(int ordinal) {
+    ensureCapacity(ordinal);
+    if (probes[ordinal] == probe) {
+      return;
+    }
+    probes[ordinal] = probe;
+    probeSeenCount++;
+    if (!isCandidate(ordinal)) {
+      return;
+    }
+    if (probeHitCount == probeHits.length) {
+      probeHits = Arrays.copyOf(probeHits, probeHitCount * 2);
+    }
+    probeHits[probeHitCount++] = ordinal;
+    if (counts[ordinal]++ == 0) {
+      if (touchedCount == touched.length) {
+        touched = Arrays.copyOf(touched, touchedCount * 2);
+      }
+      touched[touchedCount++] = ordinal;
+    }
+  }
+
+  /**
+   * Touches the ordinal as a candidate, with no hit counted. Candidates are
+   * touched in a probe of their own, before any hit is counted.
+   *
+   * @param ordinal Element ordinal
+   */
+  void touch(int ordinal) {
+    ensureCapacity(ordinal);
+    if (probes[ordinal] == probe) {
+      return;
+    }
+    probes[ordinal] = probe;
+    if (!isCandidate(ordinal)) {
+      return;
+    }
+    if (touchedCount == touched.length) {
+      touched = Arrays.copyOf(touched, touchedCount * 2);
+    }
+    touched[touchedCount++] = ordinal;
+  }
+
+  /**
+   * Counts hits of Tokens with their weight on a touched ordinal, outside of
+   * any probe.
+   *
+   * @param ordinal Element ordinal, already touched
+   * @param count   the number of hits
+   * @param weight  the weight of all the hits
+   */
+  void hit(int ordinal, int count, double weight) {
+    counts[ordinal] += count;
+    weights[ordinal] += weight;
+  }
+
+  /**
+   * Gets the number of ordinals hit by the current Token, the ones rejected by
+   * the candidate filter included, as a Token is weighed by all the Elements
+   * it hit.
+   *
+   * @return the number of ordinals hit since startProbe
+   */
+  int getProbeHitCount() {
+    return probeSeenCount;
+  }
+
+  /**
+   * Adds the weight of the current Token to every ordinal it hit.
+   *
+   * @param weight the weight of the Token
+   */
+  void weighProbe(double weight) {
+    for (int i = 0; i < probeHitCount; i++) {
+      weights[probeHits[i]] += weight;
+    }
+  }
+
+  int getTouchedCount() {
+    return touchedCount;
+  }
+
+  int getTouched(int index) {
+    return touched[index];
+  }
+
+  int getCount(int ordinal) {
+    return counts[ordinal];
+  }
+
+  double getWeight(int ordinal) {
+    return weights[ordinal];
+  }
+
+  /**
+   * Clears the counts and the candidate filter, for the next Element.
+   */
+  void clear() {
+    for (int i = 0; i < touchedCount; i++) {
+      counts[touched[i]] = 0;
+      weights[touched[i]] = 0;
+    }
+    for (int i = 0; i < judgedCount; i++) {
+      verdicts[judged[i]] = 0;
+    }
+    touchedCount = 0;
+    probeHitCount = 0;
+    probeSeenCount = 0;
+    judgedCount = 0;
+    candidateFilter = null;
+  }
+
+  private boolean isCandidate(int ordinal) {
+    if (candidateFilter == null) {
+      return true;
+    }
+    if (verdicts[ordinal] == 0) {
+      verdicts[ordinal] = candidateFilter.test(ordinal) ? ACCEPTED : REJECTED;
+      if (judgedCount == judged.length) {
+        judged = Arrays.copyOf(judged, judgedCount * 2);
+      }
+      judged[judgedCount++] = ordinal;
+    }
+    return verdicts[ordinal] == ACCEPTED;
+  }
+
+  private void ensureCapacity(int ordinal) {
+    if (ordinal >= counts.length) {
+      int capacity = Math.max(ordinal + 1, counts.length * 2);
+      counts = Arrays.copyOf(counts, capacity);
+      weights = Arrays.copyOf(weights, capacity);
+      probes = Arrays.copyOf(probes, capacity);
+      verdicts = Arrays.copyOf(verdicts, capacity);
+    }
+  }
+}
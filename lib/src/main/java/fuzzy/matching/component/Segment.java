@@ -0,0 +1,223 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Document;
+import fuzzy.matching.domain.Element;
+import fuzzy.matching.domain.ElementClassification;
+import fuzzy.matching.domain.ElementType;
+import fuzzy.matching.domain.MatchType;
+import fuzzy.matching.exception.MatchException;
+import fuzzy.matching.util.ChunkedArray;
+import fuzzy.matching.util.MappedFile;
+import fuzzy.matching.util.SnapshotWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * A read-only index file, memory mapped and queried in place, so opening it
+ * does not read its Tokens, and a process holds only the pages it touches.
+ * </p>
+ * The file holds the Documents with their Elements, an index of the Documents
+ * and of the Document of each Element ordinal, one section per
+ * ElementClassification written by Repo.saveSegment, and a directory of the
+ * sections. A trailer at the end of the file holds the offsets of the indexes
+ * and of the directory. An Element is created the first time its ordinal is
+ * matched, along with the other Elements of its Document.
+ */
+@SuppressWarnings("rawtypes")
+class Segment implements ReadOnlyIndex {
+
+  private static final int SEGMENT_MAGIC = 0x465A5347; // FZSG
+  private static final int SEGMENT_VERSION = 4;
+  private static final int TRAILER_SIZE = 3 * Long.BYTES + 4 * Integer.BYTES;
+
+  private final MappedFile file;
+  private final long documentIndexOffset;
+  private final long elementDocumentsOffset;
+  private final int elementCount;
+  private final Map<ElementClassification, Repo> repoMap = new HashMap<>();
+  private final Map<ElementClassification, Integer> elementCounts = new HashMap<>();
+  private final ChunkedArray<Element> elements = new ChunkedArray<>();
+
+  private Segment(MappedFile file, Path path) {
+    this.file = file;
+    long trailerOffset = file.size() - TRAILER_SIZE;
+    if (trailerOffset < 0 || file.getInt(file.size() - Integer.BYTES) != SEGMENT_MAGIC) {
+      throw new MatchException("Not a segment file : " + path);
+    }
+    MappedFile.Cursor trailer = file.cursor(trailerOffset);
+    long directoryOffset = trailer.readLong();
+    this.documentIndexOffset = trailer.readLong();
+    this.elementDocumentsOffset = trailer.readLong();
+    this.elementCount = trailer.readInt();
+    trailer.readInt(); // document count
+    int version = trailer.readInt();
+    if (version != SEGMENT_VERSION) {
+      throw new MatchException("Segment version not supported : " + version);
+    }
+
+    MappedFile.Cursor directory = file.cursor(directoryOffset);
+    int repoCount = directory.readVarInt();
+    for (int i = 0; i < repoCount; i++) {
+      ElementClassification elementClassification = new ElementClassification(
+          ElementType.valueOf(directory.readString()), directory.readString());
+      elementCounts.put(elementClassification, directory.readInt());
+      repoMap.put(elementClassification, Repo.open(file, directory.readLong()));
+    }
+  }
+
+  /**
+   * Maps a segment file written by write.
+   *
+   * @param path the segment file
+   * @return Segment
+   */
+  static Segment open(Path path) {
+    return new Segment(MappedFile.open(path), path);
+  }
+
+  /**
+   * Writes the Elements of the registry and the Repos as a segment. Every
+   * Element must belong to a Document.
+   *
+   * @param elementRegistry the Elements, in ordinal order
+   * @param repoMap         the Repo of each ElementClassification
+   * @param writer          the segment being written
+   * @throws IOException if the segment can not be written
+   */
+  static void write(ElementRegistry elementRegistry, Map<ElementClassification, Repo> repoMap,
+      SnapshotWriter writer) throws IOException {
+    int count = elementRegistry.size();
+    Map<Document, List<Integer>> documentOrdinals = new LinkedHashMap<>();
+    for (int ordinal = 0; ordinal < count; ordinal++) {
+      Document document = elementRegistry.get(ordinal).getDocument();
+      if (document == null) {
+        throw new MatchException("Element without a Document can not be written to a segment");
+      }
+      documentOrdinals.computeIfAbsent(document, key -> new ArrayList<>()).add(ordinal);
+    }
+
+    long[] documentOffsets = new long[documentOrdinals.size()];
+    int[] elementDocuments = new int[count];
+    int documentIndex = 0;
+    for (Map.Entry<Document, List<Integer>> entry : documentOrdinals.entrySet()) {
+      documentOffsets[documentIndex] = writer.getPosition();
+      writer.writeString(entry.getKey().getKey());
+      writer.writeDouble(entry.getKey().getThreshold());
+      writer.writeValue(entry.getKey().isSource());
+      writer.writeVarInt(entry.getValue().size());
+      for (int ordinal : entry.getValue()) {
+        writer.writeVarInt(ordinal);
+        ElementRegistry.writeElement(writer, elementRegistry.get(ordinal));
+        elementDocuments[ordinal] = documentIndex;
+      }
+      documentIndex++;
+    }
+    long documentIndexOffset = writer.getPosition();
+    for (long documentOffset : documentOffsets) {
+      writer.writeLong(documentOffset);
+    }
+    long elementDocumentsOffset = writer.getPosition();
+    for (int elementDocument : elementDocuments) {
+      writer.writeInt(elementDocument);
+    }
+
+    Map<ElementClassification, Long> headerOffsets = new LinkedHashMap<>();
+    for (Map.Entry<ElementClassification, Repo> entry : repoMap.entrySet()) {
+      headerOffsets.put(entry.getKey(), entry.getValue().saveSegment(writer));
+    }
+    long directoryOffset = writer.getPosition();
+    writer.writeVarInt(headerOffsets.size());
+    for (Map.Entry<ElementClassification, Long> entry : headerOffsets.entrySet()) {
+      writer.writeString(entry.getKey().getElementType().name());
+      writer.writeString(entry.getKey().getVariance());
+      writer.writeInt(elementRegistry.getCount(entry.getKey()));
+      writer.writeLong(entry.getValue());
+    }
+
+    writer.writeLong(directoryOffset);
+    writer.writeLong(documentIndexOffset);
+    writer.writeLong(elementDocumentsOffset);
+    writer.writeInt(count);
+    writer.writeInt(documentOffsets.length);
+    writer.writeInt(SEGMENT_VERSION);
+    writer.writeInt(SEGMENT_MAGIC);
+  }
+
+  @Override
+  public int getElementCount() {
+    return elementCount;
+  }
+
+  @Override
+  public int getElementCount(ElementClassification elementClassification) {
+    return elementCounts.getOrDefault(elementClassification, 0);
+  }
+
+  @Override
+  public Repo getRepo(ElementClassification elementClassification) {
+    return repoMap.get(elementClassification);
+  }
+
+  /**
+   * Gets the Element of an ordinal, creating it with the other Elements of its
+   * Document the first time.
+   *
+   * @param ordinal Element ordinal, lower than the Element count
+   * @return Element
+   */
+  @Override
+  public Element getElement(int ordinal) {
+    Element element = elements.get(ordinal);
+    if (element == null) {
+      synchronized (this) {
+        element = elements.get(ordinal);
+        if (element == null) {
+          readDocument(file.getInt(elementDocumentsOffset + (long) ordinal * Integer.BYTES));
+          element = elements.get(ordinal);
+        }
+      }
+    }
+    return element;
+  }
+
+  private void readDocument(int documentIndex) {
+    MappedFile.Cursor cursor = file.cursor(
+        file.getLong(documentIndexOffset + (long) documentIndex * Long.BYTES));
+    Document.Builder documentBuilder = new Document.Builder(cursor.readString())
+        .setThreshold(cursor.readDouble());
+    Boolean source = (Boolean) cursor.readValue();
+    int count = cursor.readVarInt();
+    int[] ordinals = new int[count];
+    Element[] readElements = new Element[count];
+    for (int i = 0; i < count; i++) {
+      ordinals[i] = cursor.readVarInt();
+      readElements[i] = new Element.Builder()
+          .setType(ElementType.valueOf(cursor.readString()))
+          .setVariance(cursor.readString())
+          .setValue(cursor.readValue())
+          .setWeight(cursor.readDouble())
+          .setThreshold(cursor.readDouble())
+          .setNeighborhoodRange(cursor.readDouble())
+          .setMatchType(MatchType.valueOf(cursor.readString()))
+          .setMaxEditDistance(cursor.readVarInt())
+          .setTranspositions(cursor.readBoolean())
+          .setDateTolerance(cursor.readInt())
+          .setZoneId(ZoneId.of(cursor.readString()))
+          .setRadius(cursor.readDouble())
+          .createElement();
+      documentBuilder.addElement(readElements[i]);
+    }
+    documentBuilder.createDocument().setSource(source);
+    // Published once in their Document, as it is part of their hash
+    for (int i = 0; i < count; i++) {
+      elements.set(ordinals[i], readElements[i]);
+    }
+  }
+}
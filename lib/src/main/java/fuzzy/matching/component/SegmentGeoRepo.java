@@ -0,0 +1,87 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Token;
+import fuzzy.matching.exception.MatchException;
+import fuzzy.matching.util.LongRangeIndex;
+import fuzzy.matching.util.MappedFile;
+import fuzzy.matching.util.SnapshotReader;
+import fuzzy.matching.util.SnapshotWriter;
+import java.util.function.IntConsumer;
+
+/**
+ * Read-only Repo for the GEO_DISTANCE MatchType, searching the sorted point
+ * keys written by GeoRepo.saveSegment in place. Every entry is a long key and
+ * an int ordinal, so each cell covering the radius of a Token is found by a
+ * binary search of the keys.
+ */
+class SegmentGeoRepo implements Repo {
+
+  private static final int ENTRY_SIZE = Long.BYTES + Integer.BYTES;
+
+  private final MappedFile file;
+  private final int count;
+  private final long entriesOffset;
+
+  /**
+   * Constructor for SegmentGeoRepo.
+   *
+   * @param file   - the mapped segment
+   * @param header - the header, read past the MatchType
+   */
+  SegmentGeoRepo(MappedFile file, MappedFile.Cursor header) {
+    this.file = file;
+    this.count = header.readInt();
+    this.entriesOffset = header.readLong();
+  }
+
+  @Override
+  public void put(Token token, int ordinal) {
+    throw new MatchException("Segment is read-only");
+  }
+
+  @Override
+  public void remove(Token token, int ordinal) {
+    throw new MatchException("Segment is read-only");
+  }
+
+  @Override
+  public void get(Token token, IntConsumer consumer) {
+    GeoRepo.get(token, this::forEachEntryInRange, consumer);
+  }
+
+  @Override
+  public void save(SnapshotWriter writer) {
+    throw new MatchException("Segment can not be saved to a snapshot");
+  }
+
+  @Override
+  public void restore(SnapshotReader reader) {
+    throw new MatchException("Segment is read-only");
+  }
+
+  @Override
+  public long saveSegment(SnapshotWriter writer) {
+    throw new MatchException("Segment can not be saved to a segment");
+  }
+
+  private void forEachEntryInRange(long from, long to, LongRangeIndex.EntryConsumer consumer) {
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (file.getLong(entriesOffset + (long) middle * ENTRY_SIZE) < from) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    for (long position = entriesOffset + (long) low * ENTRY_SIZE; low < count; low++,
+        position += ENTRY_SIZE) {
+      long key = file.getLong(position);
+      if (key > to) {
+        return;
+      }
+      consumer.accept(key, file.getInt(position + Long.BYTES));
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Token;
+import fuzzy.matching.exception.MatchException;
+import fuzzy.matching.util.LongRangeIndex;
+import fuzzy.matching.util.MappedFile;
+import fuzzy.matching.util.SnapshotReader;
+import fuzzy.matching.util.SnapshotWriter;
+import java.util.function.IntConsumer;
+
+/**
+ * Read-only Repo for the NEAREST_NEIGHBORS MatchType, searching the sorted keys
+ * written by NumericRepo.saveSegment in place. Every entry is a long key and an
+ * int ordinal, so the range of a Token is found by a binary search of the keys.
+ */
+class SegmentNumericRepo implements Repo {
+
+  private static final int ENTRY_SIZE = Long.BYTES + Integer.BYTES;
+
+  private final MappedFile file;
+  private final int longCount;
+  private final long longEntriesOffset;
+  private final int doubleCount;
+  private final long doubleEntriesOffset;
+  private final int dayCount;
+  private final long dayEntriesOffset;
+
+  /**
+   * Constructor for SegmentNumericRepo.
+   *
+   * @param file   - the mapped segment
+   * @param header - the header, read past the MatchType
+   */
+  SegmentNumericRepo(MappedFile file, MappedFile.Cursor header) {
+    this.file = file;
+    this.longCount = header.readInt();
+    this.longEntriesOffset = header.readLong();
+    this.doubleCount = header.readInt();
+    this.doubleEntriesOffset = header.readLong();
+    this.dayCount = header.readInt();
+    this.dayEntriesOffset = header.readLong();
+  }
+
+  @Override
+  public void put(Token token, int ordinal) {
+    throw new MatchException("Segment is read-only");
+  }
+
+  @Override
+  public void remove(Token token, int ordinal) {
+    throw new MatchException("Segment is read-only");
+  }
+
+  @Override
+  public void get(Token token, IntConsumer consumer) {
+    if (NumericRepo.isDate(token.getValue())) {
+      long[] dayBounds = NumericRepo.getDayBounds(token);
+      forEachInRange(dayEntriesOffset, dayCount, dayBounds[0], dayBounds[1], consumer);
+      return;
+    }
+    double[] bounds = NumericRepo.getBounds(token);
+    forEachInRange(longEntriesOffset, longCount,
+        (long) Math.ceil(bounds[0]), (long) Math.floor(bounds[1]), consumer);
+    forEachInRange(doubleEntriesOffset, doubleCount, LongRangeIndex.toSortableLong(bounds[0]),
+        LongRangeIndex.toSortableLong(bounds[1]), consumer);
+  }
+
+  @Override
+  public void save(SnapshotWriter writer) {
+    throw new MatchException("Segment can not be saved to a snapshot");
+  }
+
+  @Override
+  public void restore(SnapshotReader reader) {
+    throw new MatchException("Segment is read-only");
+  }
+
+  @Override
+  public long saveSegment(SnapshotWriter writer) {
+    throw new MatchException("Segment can not be saved to a segment");
+  }
+
+  private void forEachInRange(long entriesOffset, int count, long from, long to,
+      IntConsumer consumer) {
+    if (from > to) {
+      return;
+    }
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (file.getLong(entriesOffset + (long) middle * ENTRY_SIZE) < from) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    for (long position = entriesOffset + (long) low * ENTRY_SIZE;
+        low < count && file.getLong(position) <= to; low++, position += ENTRY_SIZE) {
+      consumer.accept(file.getInt(position + Long.BYTES));
+    }
+  }
+}
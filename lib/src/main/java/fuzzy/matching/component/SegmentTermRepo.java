@@ -0,0 +1,210 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.MatchType;
+import fuzzy.matching.domain.Token;
+import fuzzy.matching.exception.MatchException;
+import fuzzy.matching.util.MappedFile;
+import fuzzy.matching.util.SnapshotReader;
+import fuzzy.matching.util.SnapshotWriter;
+import fuzzy.matching.util.Utils;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntConsumer;
+import org.apache.lucene.util.automaton.CharacterRunAutomaton;
+import org.apache.lucene.util.automaton.LevenshteinAutomata;
+
+/**
+ * <p>
+ * Read-only Repo for the EQUALITY and EQUALITY_DISTANCE MatchTypes, searching
+ * the sorted terms written by TokenDictionary.writeSegment in place.
+ * </p>
+ * An EQUALITY Token is found by a binary search of the terms. An
+ * EQUALITY_DISTANCE Token walks the terms in order with a Levenshtein automaton,
+ * and skips every term sharing a prefix the automaton can not go past, so only
+ * the prefixes that can still end within the edit distance are read.
+ */
+class SegmentTermRepo implements Repo {
+
+  private static final int TERM_INDEX_STRIDE = 2 * Long.BYTES;
+
+  private final MappedFile file;
+  private final MatchType matchType;
+  private final int maxEditDistance;
+  private final boolean transpositions;
+  private final int termCount;
+  private final long termIndexOffset;
+
+  /**
+   * Constructor for SegmentTermRepo.
+   *
+   * @param file            - the mapped segment
+   * @param matchType       - EQUALITY or EQUALITY_DISTANCE
+   * @param maxEditDistance - the edit distance for EQUALITY_DISTANCE
+   * @param transpositions  - if swapping 2 adjacent characters counts as a
+   *                        single edit
+   * @param header          - the header, read past the settings
+   */
+  SegmentTermRepo(MappedFile file, MatchType matchType, int maxEditDistance,
+      boolean transpositions, MappedFile.Cursor header) {
+    this.file = file;
+    this.matchType = matchType;
+    this.maxEditDistance = maxEditDistance;
+    this.transpositions = transpositions;
+    this.termCount = header.readInt();
+    this.termIndexOffset = header.readLong();
+  }
+
+  @Override
+  public void put(Token token, int ordinal) {
+    throw new MatchException("Segment is read-only");
+  }
+
+  @Override
+  public void remove(Token token, int ordinal) {
+    throw new MatchException("Segment is read-only");
+  }
+
+  @Override
+  public void get(Token token, IntConsumer consumer) {
+    if (matchType == MatchType.EQUALITY) {
+      byte[] key = SnapshotWriter.toKey(token.getValue());
+      int term = lowerBound(key, 0);
+      if (term < termCount && compareTerm(term, key) == 0) {
+        readPostings(term, consumer);
+      }
+    } else {
+      search(token.getValue().toString(), term -> readPostings(term, consumer));
+    }
+  }
+
+  @Override
+  public int getDocumentFrequency(Token token) {
+    int[] documentFrequency = new int[1];
+    if (matchType == MatchType.EQUALITY) {
+      byte[] key = SnapshotWriter.toKey(token.getValue());
+      int term = lowerBound(key, 0);
+      if (term < termCount && compareTerm(term, key) == 0) {
+        documentFrequency[0] = getPostingCount(term);
+      }
+    } else {
+      search(token.getValue().toString(), term -> documentFrequency[0] += getPostingCount(term));
+    }
+    return documentFrequency[0];
+  }
+
+  @Override
+  public void save(SnapshotWriter writer) {
+    throw new MatchException("Segment can not be saved to a snapshot");
+  }
+
+  @Override
+  public void restore(SnapshotReader reader) {
+    throw new MatchException("Segment is read-only");
+  }
+
+  @Override
+  public long saveSegment(SnapshotWriter writer) {
+    throw new MatchException("Segment can not be saved to a segment");
+  }
+
+  private void search(String query, IntConsumer termConsumer) {
+    if (maxEditDistance <= LevenshteinAutomata.MAXIMUM_SUPPORTED_DISTANCE) {
+      searchAutomaton(query, termConsumer);
+    } else if (!transpositions) {
+      searchLinear(query, termConsumer);
+    } else {
+      throw new MatchException("Edit distance not supported : " + maxEditDistance);
+    }
+  }
+
+  private void searchAutomaton(String query, IntConsumer termConsumer) {
+    CharacterRunAutomaton levenshtein = new CharacterRunAutomaton(
+        new LevenshteinAutomata(query, transpositions).toAutomaton(maxEditDistance));
+    int term = 0;
+    while (term < termCount) {
+      MappedFile.Cursor cursor = file.cursor(getTermOffset(term));
+      int length = cursor.readVarInt();
+      long start = cursor.getPosition();
+      long end = start + length;
+      // The first byte of the key is its type tag
+      long position = start + 1;
+      int state = 0;
+      while (position < end && state != -1) {
+        int lead = file.getByte(position) & 0xFF;
+        int byteCount = lead < 0x80 ? 1 : lead < 0xE0 ? 2 : lead < 0xF0 ? 3 : 4;
+        int codePoint = byteCount == 1 ? lead : lead & (0xFF >>> (byteCount + 1));
+        for (int i = 1; i < byteCount; i++) {
+          codePoint = (codePoint << 6) | (file.getByte(position + i) & 0x3F);
+        }
+        state = levenshtein.step(state, codePoint);
+        position += byteCount;
+      }
+      if (state == -1) {
+        // UTF-8 never holds 0xFF, no term with this prefix sorts after the bound
+        byte[] bound = new byte[(int) (position - start) + 1];
+        for (int i = 0; i < bound.length - 1; i++) {
+          bound[i] = file.getByte(start + i);
+        }
+        bound[bound.length - 1] = (byte) 0xFF;
+        term = lowerBound(bound, term + 1);
+      } else {
+        if (levenshtein.isAccept(state)) {
+          termConsumer.accept(term);
+        }
+        term++;
+      }
+    }
+  }
+
+  private void searchLinear(String query, IntConsumer termConsumer) {
+    for (int term = 0; term < termCount; term++) {
+      MappedFile.Cursor cursor = file.cursor(getTermOffset(term));
+      byte[] key = cursor.readBytes(cursor.readVarInt());
+      String value = new String(key, 1, key.length - 1, StandardCharsets.UTF_8);
+      if (Utils.editDistanceWithin(query, value, maxEditDistance)) {
+        termConsumer.accept(term);
+      }
+    }
+  }
+
+  private int lowerBound(byte[] key, int from) {
+    int low = from;
+    int high = termCount;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (compareTerm(middle, key) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private int compareTerm(int term, byte[] key) {
+    MappedFile.Cursor cursor = file.cursor(getTermOffset(term));
+    int length = cursor.readVarInt();
+    return file.compare(cursor.getPosition(), length, key);
+  }
+
+  private void readPostings(int term, IntConsumer consumer) {
+    MappedFile.Cursor cursor = file.cursor(getPostingsOffset(term));
+    int count = cursor.readVarInt();
+    int ordinal = -1;
+    for (int i = 0; i < count; i++) {
+      ordinal += cursor.readVarInt();
+      consumer.accept(ordinal);
+    }
+  }
+
+  private int getPostingCount(int term) {
+    return file.cursor(getPostingsOffset(term)).readVarInt();
+  }
+
+  private long getTermOffset(int term) {
+    return file.getLong(termIndexOffset + (long) term * TERM_INDEX_STRIDE);
+  }
+
+  private long getPostingsOffset(int term) {
+    return file.getLong(termIndexOffset + (long) term * TERM_INDEX_STRIDE + Long.BYTES);
+  }
+}
@@ -0,0 +1,164 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Element;
+import fuzzy.matching.exception.MatchException;
+import fuzzy.matching.util.ChunkedArray;
+import fuzzy.matching.util.PostingList;
+import fuzzy.matching.util.Utils;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>
+ * Index of the 64 bit SimHash fingerprints of Elements, giving the Elements
+ * whose fingerprint is within a Hamming distance of the fingerprint of an
+ * Element, the near duplicates of long TEXT.
+ * </p>
+ * Each Token value adds the number of Tokens holding it to the bits set in its
+ * hash, and takes it from the bits clear, and the fingerprint has the bits
+ * that came out positive. The fingerprint is cut into one more block than the
+ * highest distance, so two fingerprints within the distance have at least one
+ * block the same. Each block is the key of a table, as the prefix of the
+ * fingerprint permuted to put the block first, so an Element reads one bucket
+ * per table, and only the fingerprints in it are compared in full.
+ */
+@SuppressWarnings("rawtypes")
+class SimHashIndex implements CandidateIndex {
+
+  static final int MAX_DISTANCE = 15;
+
+  private final int maxDistance;
+  private final int[] blockStarts;
+  private final Map<Long, PostingList> buckets = new ConcurrentHashMap<>();
+  private final ChunkedArray<Entry> entries = new ChunkedArray<>();
+
+  /**
+   * Constructor for SimHashIndex.
+   *
+   * @param maxDistance - the highest Hamming distance of the fingerprints of
+   *                    candidates, from 0 to MAX_DISTANCE
+   */
+  SimHashIndex(int maxDistance) {
+    if (maxDistance < 0 || maxDistance > MAX_DISTANCE) {
+      throw new MatchException("SimHash distance not supported : " + maxDistance);
+    }
+    this.maxDistance = maxDistance;
+    int blocks = maxDistance + 1;
+    this.blockStarts = new int[blocks + 1];
+    for (int block = 0; block < blocks; block++) {
+      int width = Long.SIZE / blocks + (block < Long.SIZE % blocks ? 1 : 0);
+      blockStarts[block + 1] = blockStarts[block] + width;
+    }
+  }
+
+  /**
+   * Puts the Element in the bucket of each block of its fingerprint.
+   */
+  @Override
+  public void put(Element element, int ordinal) {
+    TokenSet tokenSet = new TokenSet(element);
+    long fingerprint = getFingerprint(tokenSet);
+    entries.set(ordinal, new Entry(tokenSet, fingerprint));
+    if (tokenSet.size() > 0) {
+      for (int block = 0; block < blockStarts.length - 1; block++) {
+        buckets.compute(getBucket(fingerprint, block), (bucket, postingList) -> {
+          PostingList next = postingList != null ? postingList : new PostingList();
+          next.add(ordinal);
+          return next;
+        });
+      }
+    }
+  }
+
+  /**
+   * Removes the Element from the bucket of each block of its fingerprint.
+   */
+  @Override
+  public void remove(int ordinal) {
+    Entry entry = entries.get(ordinal);
+    if (entry == null) {
+      return;
+    }
+    entries.set(ordinal, null);
+    if (entry.tokenSet.size() > 0) {
+      for (int block = 0; block < blockStarts.length - 1; block++) {
+        buckets.computeIfPresent(getBucket(entry.fingerprint, block), (bucket, postingList) -> {
+          postingList.remove(ordinal);
+          return postingList.size() > 0 ? postingList : null;
+        });
+      }
+    }
+  }
+
+  /**
+   * Gives the ordinals of the Elements whose fingerprint is within the distance.
+   */
+  @Override
+  public void getCandidates(TokenSet tokenSet, IntConsumer consumer) {
+    if (tokenSet.size() > 0) {
+      long fingerprint = getFingerprint(tokenSet);
+      for (int block = 0; block < blockStarts.length - 1; block++) {
+        PostingList postingList = buckets.get(getBucket(fingerprint, block));
+        if (postingList != null) {
+          postingList.forEach(ordinal -> {
+            Entry entry = entries.get(ordinal);
+            if (entry != null && Long.bitCount(fingerprint ^ entry.fingerprint) <= maxDistance) {
+              consumer.accept(ordinal);
+            }
+          });
+        }
+      }
+    }
+  }
+
+  @Override
+  public TokenSet getTokenSet(int ordinal) {
+    Entry entry = entries.get(ordinal);
+    return entry != null ? entry.tokenSet : null;
+  }
+
+  /**
+   * Gets the SimHash fingerprint of the Token values, each weighed by the number
+   * of Tokens holding it.
+   *
+   * @param tokenSet TokenSet of an Element
+   * @return the fingerprint
+   */
+  static long getFingerprint(TokenSet tokenSet) {
+    int[] sums = new int[Long.SIZE];
+    for (int index = 0; index < tokenSet.size(); index++) {
+      long hash = Utils.mix64(tokenSet.getHash(index));
+      int count = tokenSet.getCount(index);
+      for (int bit = 0; bit < Long.SIZE; bit++) {
+        sums[bit] += (hash >>> bit & 1) != 0 ? count : -count;
+      }
+    }
+    long fingerprint = 0;
+    for (int bit = 0; bit < Long.SIZE; bit++) {
+      if (sums[bit] > 0) {
+        fingerprint |= 1L << bit;
+      }
+    }
+    return fingerprint;
+  }
+
+  private long getBucket(long fingerprint, int block) {
+    int width = blockStarts[block + 1] - blockStarts[block];
+    long key = fingerprint >>> blockStarts[block];
+    if (width < Long.SIZE) {
+      key &= (1L << width) - 1;
+    }
+    return Utils.mix64(Utils.mix64(block) + key);
+  }
+
+  private static class Entry {
+    private final TokenSet tokenSet;
+    private final long fingerprint;
+
+    Entry(TokenSet tokenSet, long fingerprint) {
+      this.tokenSet = tokenSet;
+      this.fingerprint = fingerprint;
+    }
+  }
+}
@@ -0,0 +1,292 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.util.ChunkedArray;
+import fuzzy.matching.util.PostingList;
+import fuzzy.matching.util.SnapshotReader;
+import fuzzy.matching.util.SnapshotWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Interns the distinct Token values of a single ElementClassification as dense
+ * int ids, each holding the PostingList of the Element ordinals with that value.
+ * </p>
+ * It is safe for concurrent use, a new value is given its id and PostingList
+ * before any writer can add to it. A PostingList emptied by a removal is retired
+ * with the id of its value, and a writer adding to it interns the value again.
+ * The ids retired are given to new values, so the ids in use stay as many as
+ * the values, and a PostingList found by id is checked to still be the one of
+ * the value.
+ */
+class TokenDictionary {
+
+  private final Map<Object, Integer> ids = new ConcurrentHashMap<>();
+  private final ChunkedArray<Object> values = new ChunkedArray<>();
+  private final ChunkedArray<PostingList> postings = new ChunkedArray<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final ConcurrentLinkedDeque<Integer> freeIds = new ConcurrentLinkedDeque<>();
+  private final BiConsumer<Object, PostingList> newValueListener;
+  private final Consumer<Object> retiredValueListener;
+
+  TokenDictionary() {
+    this((value, postingList) -> {
+    }, value -> {
+    });
+  }
+
+  /**
+   * Constructor for TokenDictionary.
+   *
+   * @param newValueListener     - called with each new value and its PostingList,
+   *                             before they are visible to other writers
+   * @param retiredValueListener - called with each value whose PostingList is
+   *                             retired, before the value can be interned again
+   */
+  TokenDictionary(BiConsumer<Object, PostingList> newValueListener,
+      Consumer<Object> retiredValueListener) {
+    this.newValueListener = newValueListener;
+    this.retiredValueListener = retiredValueListener;
+  }
+
+  /**
+   * Adds an Element ordinal to the PostingList of the value.
+   *
+   * @param value   Token value
+   * @param ordinal Element ordinal
+   */
+  void add(Object value, int ordinal) {
+    int id = intern(value);
+    PostingList postingList = postings.get(id);
+    if (postingList != null) {
+      synchronized (postingList) {
+        if (isPostingsOf(value, id, postingList)) {
+          postingList.add(ordinal);
+          return;
+        }
+      }
+    }
+    // Retired by a removal in between, a retirement holds the entry of the value too
+    ids.compute(value, (key, current) -> {
+      int currentId = current != null ? current : newId(key);
+      PostingList currentPostings = postings.get(currentId);
+      synchronized (currentPostings) {
+        currentPostings.add(ordinal);
+      }
+      return currentId;
+    });
+  }
+
+  /**
+   * Removes an Element ordinal from the PostingList of the value, retiring the
+   * value once its PostingList is empty.
+   *
+   * @param value   Token value
+   * @param ordinal Element ordinal
+   * @return true if the ordinal was removed
+   */
+  boolean remove(Object value, int ordinal) {
+    int id = getId(value);
+    PostingList postingList = id >= 0 ? postings.get(id) : null;
+    if (postingList == null) {
+      return false;
+    }
+    synchronized (postingList) {
+      if (!isPostingsOf(value, id, postingList) || !postingList.remove(ordinal)) {
+        return false;
+      }
+      if (postingList.size() > 0) {
+        return true;
+      }
+    }
+    retire(value, id, postingList);
+    return true;
+  }
+
+  /**
+   * Retires the value with its id, unless its PostingList was added to since
+   * it was emptied, then gives the id to new values.
+   */
+  private void retire(Object value, int id, PostingList postingList) {
+    boolean[] retired = new boolean[1];
+    ids.computeIfPresent(value, (key, current) -> {
+      synchronized (postingList) {
+        if (current != id || postings.get(id) != postingList || postingList.size() > 0) {
+          return current;
+        }
+        retiredValueListener.accept(key);
+        postings.set(id, null);
+        values.set(id, null);
+      }
+      retired[0] = true;
+      return null;
+    });
+    if (retired[0]) {
+      freeIds.addFirst(id);
+    }
+  }
+
+  /**
+   * Gets the id of the value, giving it the next one if it has none yet.
+   *
+   * @param value Token value
+   * @return id of the value
+   */
+  int intern(Object value) {
+    Integer id = ids.get(value);
+    if (id != null) {
+      return id;
+    }
+    return ids.computeIfAbsent(value, this::newId);
+  }
+
+  private int newId(Object value) {
+    Integer free = freeIds.pollFirst();
+    int next = free != null ? free : size.getAndIncrement();
+    PostingList postingList = new PostingList();
+    values.set(next, value);
+    postings.set(next, postingList);
+    newValueListener.accept(value, postingList);
+    return next;
+  }
+
+  private boolean isPostingsOf(Object value, int id, PostingList postingList) {
+    return postings.get(id) == postingList && value.equals(values.get(id));
+  }
+
+  /**
+   * Gets the id of the value.
+   *
+   * @param value Token value
+   * @return id of the value, -1 if it was never added
+   */
+  int getId(Object value) {
+    Integer id = ids.get(value);
+    return id != null ? id : -1;
+  }
+
+  Object getValue(int id) {
+    return values.get(id);
+  }
+
+  PostingList getPostings(int id) {
+    return postings.get(id);
+  }
+
+  /**
+   * Gets the PostingList of the value.
+   *
+   * @param value Token value
+   * @return PostingList, null if the value was never added or is retired
+   */
+  PostingList findPostings(Object value) {
+    Integer id = ids.get(value);
+    if (id == null) {
+      return null;
+    }
+    PostingList postingList = postings.get(id);
+    // The id may have been retired and given to another value since it was got
+    return postingList != null && isPostingsOf(value, id, postingList) ? postingList : null;
+  }
+
+  /**
+   * Gets the number of ids given, including the ones retired and not given
+   * again yet.
+   *
+   * @return the number of ids
+   */
+  int size() {
+    return size.get();
+  }
+
+  /**
+   * Writes every value with its PostingList, in id order, without the values
+   * retired.
+   *
+   * @param writer the snapshot being written
+   * @throws IOException if the snapshot can not be written
+   */
+  void writeTo(SnapshotWriter writer) throws IOException {
+    int[] ids = getLiveIds();
+    writer.writeVarInt(ids.length);
+    for (int id : ids) {
+      writer.writeValue(getValue(id));
+      getPostings(id).writeTo(writer);
+    }
+  }
+
+  /**
+   * Writes the values as keys sorted by their bytes, each with its PostingList,
+   * followed by an index of the offsets of each key and PostingList, in key
+   * order, to be searched in place. The values retired are left out.
+   *
+   * @param writer the segment being written
+   * @return the offset of the index
+   * @throws IOException if the segment can not be written
+   */
+  long writeSegment(SnapshotWriter writer) throws IOException {
+    int[] ids = getLiveIds();
+    int count = ids.length;
+    byte[][] keys = new byte[count][];
+    Integer[] order = new Integer[count];
+    for (int i = 0; i < count; i++) {
+      keys[i] = SnapshotWriter.toKey(getValue(ids[i]));
+      order[i] = i;
+    }
+    Arrays.sort(order, (index1, index2) -> Arrays.compareUnsigned(keys[index1], keys[index2]));
+
+    long[] offsets = new long[2 * count];
+    for (int i = 0; i < count; i++) {
+      offsets[2 * i] = writer.getPosition();
+      writer.writeVarInt(keys[order[i]].length);
+      writer.writeBytes(keys[order[i]]);
+      offsets[2 * i + 1] = writer.getPosition();
+      getPostings(ids[order[i]]).writeTo(writer);
+    }
+    long indexOffset = writer.getPosition();
+    for (long offset : offsets) {
+      writer.writeLong(offset);
+    }
+    return indexOffset;
+  }
+
+  /**
+   * Gets the number of values not retired, the ones written.
+   *
+   * @return the number of values
+   */
+  int getLiveCount() {
+    return getLiveIds().length;
+  }
+
+  private int[] getLiveIds() {
+    int count = size();
+    int[] ids = new int[count];
+    int liveCount = 0;
+    for (int id = 0; id < count; id++) {
+      if (getPostings(id) != null) {
+        ids[liveCount++] = id;
+      }
+    }
+    return Arrays.copyOf(ids, liveCount);
+  }
+
+  /**
+   * Adds the values and PostingLists written by writeTo.
+   *
+   * @param reader the snapshot being read
+   * @throws IOException if the snapshot can not be read
+   */
+  void readFrom(SnapshotReader reader) throws IOException {
+    int count = reader.readVarInt();
+    for (int i = 0; i < count; i++) {
+      getPostings(intern(reader.readValue())).readFrom(reader);
+    }
+  }
+}
@@ -1,30 +1,86 @@
 package fuzzy.matching.component;
 
-import static fuzzy.matching.util.Utils.editDistance;
-
+import fuzzy.matching.domain.Document;
 import fuzzy.matching.domain.Element;
 import fuzzy.matching.domain.ElementClassification;
+import fuzzy.matching.domain.ElementType;
 import fuzzy.matching.domain.MatchType;
 import fuzzy.matching.domain.Token;
+import fuzzy.matching.domain.TokenWeighting;
 import fuzzy.matching.exception.MatchException;
-import java.util.Date;
+import fuzzy.matching.util.SnapshotReader;
+import fuzzy.matching.util.SnapshotWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
 
 /**
  * Repository to store the Tokens.
  */
 @SuppressWarnings("rawtypes")
-public class TokenRepo {
+public class TokenRepo implements AutoCloseable {
+
+  private static final int SNAPSHOT_MAGIC = 0x465A4D52; // FZMR
+  private static final int SNAPSHOT_VERSION = 4;
 
-  private Map<ElementClassification, Repo> repoMap;
+  private TokenShard[] shards;
+  private ElementRegistry elementRegistry;
+  private ReadOnlyIndex base;
+  private final Map<ElementClassification, Integer> documentFrequencyCaps =
+      new ConcurrentHashMap<>();
+  private final Map<ElementClassification, Map<Object, Integer>> demotedTokens =
+      new ConcurrentHashMap<>();
+  private final Map<ElementClassification, TokenWeighting> tokenWeightings =
+      new ConcurrentHashMap<>();
+  private final Map<ElementClassification, CandidateIndex> candidateIndexes =
+      new ConcurrentHashMap<>();
 
   public TokenRepo() {
-    this.repoMap = new ConcurrentHashMap<>();
+    this(1);
+  }
+
+  /**
+   * Constructor for TokenRepo, partitioned by Token value hash across shards.
+   * Each shard beyond the first holds a worker thread, released by close. An
+   * EQUALITY Token is probed on the shard of its value only, other Tokens on
+   * every shard.
+   *
+   * @param shardCount - the number of shards, 1 for an unsharded TokenRepo
+   */
+  public TokenRepo(int shardCount) {
+    if (shardCount < 1) {
+      throw new MatchException("Shard count must be positive : " + shardCount);
+    }
+    this.shards = new TokenShard[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new TokenShard(i, shardCount > 1);
+    }
+    this.elementRegistry = new ElementRegistry();
+  }
+
+  private TokenRepo(ReadOnlyIndex base) {
+    this.shards = new TokenShard[] { new TokenShard(0, false) };
+    this.elementRegistry = new ElementRegistry(base.getElementCount());
+    this.base = base;
+  }
+
+  public int getShardCount() {
+    return shards.length;
   }
 
   /**
@@ -33,155 +89,672 @@ public class TokenRepo {
    * @param token Token to be put in the Repo
    */
   public void put(Token token) {
+    if (candidateIndexes.containsKey(token.getElement().getElementClassification())) {
+      throw new MatchException("Elements with indexed candidates are put whole : "
+          + token.getElement().getElementClassification());
+    }
+    put(token, elementRegistry.register(token.getElement()));
+  }
 
-    ElementClassification elementClassification = token.getElement().getElementClassification();
-    Repo repo = repoMap.get(elementClassification);
+  /**
+   * Puts all the Tokens of the Element in the Repo. The Element is given an int
+   * ordinal, and each Token value is interned per ElementClassification with a
+   * posting list of those ordinals, so the Repo holds no Token. In a sharded
+   * TokenRepo, the Tokens are handed to the workers of their shards, and are
+   * found by every probe made after this returns.
+   *
+   * @param element Element whose Tokens are put in the Repo
+   */
+  public void put(Element element) {
+    int ordinal = elementRegistry.register(element);
+    CandidateIndex candidateIndex = candidateIndexes.get(element.getElementClassification());
+    if (candidateIndex != null) {
+      candidateIndex.put(element, ordinal);
+    }
+    applyToShards(element.getTokens(), (shard, token) -> shard.put(token, ordinal));
+  }
 
-    if (repo == null) {
-      repo = new Repo(token.getElement().getMatchType());
-      repoMap.put(elementClassification, repo);
+  /**
+   * Removes the Element from the Repo, taking out exactly the Tokens it put and
+   * its entry in the candidate index of its ElementClassification. Its ordinal
+   * is released once its Tokens are taken out, and only given to a later
+   * Element once the probes started before have ended. The Elements of a
+   * segment or frozen index are not removed.
+   *
+   * @param element Element to be removed, or an equal one
+   * @return true if the Element was in the Repo
+   */
+  public boolean remove(Element element) {
+    int ordinal = elementRegistry.getOrdinal(element);
+    Element registered = ordinal >= 0 ? elementRegistry.get(ordinal) : null;
+    if (registered == null || !elementRegistry.unregister(registered)) {
+      return false;
+    }
+    CandidateIndex candidateIndex = candidateIndexes.get(registered.getElementClassification());
+    if (candidateIndex != null) {
+      candidateIndex.remove(ordinal);
     }
-    repo.put(token, token.getElement());
+    // The Tokens of the Element put, not of the one given
+    applyToShards(registered.getTokens(), (shard, token) -> shard.remove(token, ordinal))
+        .thenRun(() -> elementRegistry.release(ordinal));
+    return true;
   }
 
   /**
-   * Gets the Set of Elements for the given Token.
+   * Removes all the Elements of the Document from the Repo. The Elements put
+   * with the Document of the same key are removed, so a Document can be
+   * removed with another version of it.
+   *
+   * @param document Document to be removed
+   * @return true if the Document was in the Repo
+   */
+  public boolean remove(Document document) {
+    Document registered = elementRegistry.getDocument(document);
+    if (registered == null) {
+      return false;
+    }
+    registered.getPreProcessedElement().forEach(this::remove);
+    elementRegistry.unregister(registered);
+    return true;
+  }
+
+  /**
+   * Replaces the version of the Document in the Repo, if any, by this one. The
+   * Tokens of the previous version are taken out, then the ones of this version
+   * are put.
+   *
+   * @param document the new version of the Document
+   */
+  public void update(Document document) {
+    remove(document);
+    document.getPreProcessedElement().forEach(this::put);
+  }
+
+  /**
+   * Puts the Tokens of all the Elements of the Documents in the Repo, spreading
+   * the work across the available cores.
+   *
+   * @param documents Documents to be put in the Repo
+   */
+  public void putAll(Collection<Document> documents) {
+    documents.parallelStream()
+        .flatMap(document -> document.getPreProcessedElement().stream())
+        .forEach(this::put);
+  }
+
+  /**
+   * Gets the Set of Elements for the given Token. It is safe to put and get
+   * Tokens from any number of threads at once, a Token is found by every get
+   * that starts after its put has returned.
    *
    * @param token Token to be matched
    * @return Set of Elements
    */
   public Set<Element> get(Token token) {
-    Repo repo = repoMap.get(token.getElement().getElementClassification());
-    if (repo != null) {
-      return repo.get(token);
+    ElementClassification elementClassification = token.getElement().getElementClassification();
+    if (!getRepos(elementClassification).isEmpty()) {
+      Set<Element> matchingElements = new HashSet<>();
+      long readEpoch = startRead();
+      try {
+        get(token, ordinal -> {
+          Element element = getElement(ordinal);
+          if (element != null) {
+            matchingElements.add(element);
+          }
+        });
+      } finally {
+        endRead(readEpoch);
+      }
+      return matchingElements;
     }
     return null;
   }
 
-  private class Repo {
-
-    MatchType matchType;
+  /**
+   * Starts a read of Element ordinals, so the ordinals of the Elements removed
+   * meanwhile are not given to other Elements until it ends.
+   *
+   * @return the epoch of the read, to end it with
+   */
+  long startRead() {
+    return elementRegistry.startRead();
+  }
 
-    Map<Object, Set<Element>> tokenElementSet;
+  /**
+   * Ends a read of Element ordinals.
+   *
+   * @param readEpoch the epoch given by startRead
+   */
+  void endRead(long readEpoch) {
+    elementRegistry.endRead(readEpoch);
+  }
 
-    TreeSet<Object> tokenBinaryTree;
-    int maxEditDistance;
+  /**
+   * Gives the ordinals of the Elements matching the given Token. An ordinal can
+   * be given more than once.
+   *
+   * @param token    Token to be matched
+   * @param consumer receives each matching ordinal
+   */
+  void get(Token token, IntConsumer consumer) {
+    if (shards.length > 1) {
+      probe(List.of(token), consumer, index -> {
+      });
+      return;
+    }
+    getFromBase(token, consumer);
+    shards[0].get(token, consumer);
+  }
 
-    private static final Double AGE_PCT_OF = 10D;
-    private static final Double DATE_PCT_OF = 15777e7D; // 5 years of range
-    private static final Integer MAX_EDIT = 1;
+  /**
+   * Gives the ordinals of the Elements matching each of the Tokens in turn, all
+   * the ordinals of a Token before the next one. In a sharded TokenRepo, the
+   * shards are probed in parallel for all the Tokens before any is given. The
+   * posting lists are still read under their locks, and a segment or frozen
+   * index the Repo is built on is read from the calling thread.
+   *
+   * @param tokens   Tokens to be matched
+   * @param consumer receives each matching ordinal
+   * @param probeEnd receives the index of each Token once its ordinals are given
+   */
+  void probe(List<Token> tokens, IntConsumer consumer, IntConsumer probeEnd) {
+    if (shards.length == 1) {
+      for (int i = 0; i < tokens.size(); i++) {
+        get(tokens.get(i), consumer);
+        probeEnd.accept(i);
+      }
+      return;
+    }
 
-    Repo(MatchType matchType) {
-      this.matchType = matchType;
-      if (MatchType.NEAREST_NEIGHBORS.equals(matchType)) {
-        tokenBinaryTree = new TreeSet<>();
-        tokenElementSet = new ConcurrentHashMap<>();
+    int[] routes = new int[tokens.size()];
+    boolean[] routed = new boolean[shards.length];
+    for (int i = 0; i < routes.length; i++) {
+      Token token = tokens.get(i);
+      if (token.getElement().getMatchType() == MatchType.EQUALITY) {
+        routes[i] = getShardIndex(token);
+        routed[routes[i]] = true;
+      } else {
+        routes[i] = TokenShard.ALL_SHARDS;
+        Arrays.fill(routed, true);
       }
-      if (MatchType.EQUALITY.equals(matchType)) {
-        tokenElementSet = new ConcurrentHashMap<>();
+    }
+    List<CompletableFuture<int[][]>> futures = new ArrayList<>();
+    for (int i = 0; i < shards.length; i++) {
+      if (routed[i]) {
+        TokenShard shard = shards[i];
+        futures.add(CompletableFuture.supplyAsync(
+            () -> shard.getHits(tokens, routes), shard.getWorker()));
       }
-      if (MatchType.EQUALITY_DISTANCE.equals(matchType)) {
-        tokenElementSet = new ConcurrentHashMap<>();
-        maxEditDistance = MAX_EDIT;
+    }
+    List<int[][]> shardHits = new ArrayList<>(futures.size());
+    try {
+      for (CompletableFuture<int[][]> future : futures) {
+        shardHits.add(future.join());
       }
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException
+          ? (RuntimeException) e.getCause() : new MatchException("Failure in probing shards", e);
     }
 
-    void put(Token token, Element element) {
-      if (MatchType.NEAREST_NEIGHBORS.equals(matchType)) {
-        tokenBinaryTree.add(token.getValue());
-        Set<Element> elements = tokenElementSet.getOrDefault(token.getValue(), new HashSet<>());
-        elements.add(element);
-        tokenElementSet.put(token.getValue(), elements);
+    for (int i = 0; i < routes.length; i++) {
+      getFromBase(tokens.get(i), consumer);
+      for (int[][] hits : shardHits) {
+        if (hits[i] != null) {
+          for (int ordinal : hits[i]) {
+            consumer.accept(ordinal);
+          }
+        }
       }
+      probeEnd.accept(i);
+    }
+  }
 
-      if (MatchType.EQUALITY.equals(matchType) || MatchType.EQUALITY_DISTANCE.equals(matchType)) {
-        Set<Element> elements = tokenElementSet.getOrDefault(token.getValue(), new HashSet<>());
-        elements.add(element);
-        tokenElementSet.put(token.getValue(), elements);
-      }
+  /**
+   * Sets the document frequency cap of an ElementClassification. A Token value
+   * held by more Elements than the cap is demoted to a stop Token, it no longer
+   * gives candidates when matched and only counts for the candidates found by
+   * other Tokens.
+   *
+   * @param elementClassification the ElementClassification
+   * @param cap                   the highest document frequency of a Token giving
+   *                              candidates
+   */
+  public void setDocumentFrequencyCap(ElementClassification elementClassification, int cap) {
+    if (cap < 1) {
+      throw new MatchException("Document frequency cap must be positive : " + cap);
     }
+    documentFrequencyCaps.put(elementClassification, cap);
+  }
 
-    Set<Element> get(Token token) {
-      switch (matchType) {
-        case EQUALITY:
-          return tokenElementSet.get(token.getValue());
-        case EQUALITY_DISTANCE:
-          Set<Element> matchingElements = new HashSet<>();
-          for (Map.Entry<Object, Set<Element>> entry : tokenElementSet.entrySet()) {
-            Object storedToken = entry.getKey();
-            int distance = editDistance(token.getValue().toString(), storedToken.toString());
-            if (distance <= maxEditDistance) {
-              matchingElements.addAll(entry.getValue());
-            }
-          }
-          return matchingElements;
-        case NEAREST_NEIGHBORS:
-          TokenRange tokenRange;
-          switch (token.getElement().getElementClassification().getElementType()) {
-            case AGE:
-              tokenRange = new TokenRange(
-                  token, token.getElement().getNeighborhoodRange(), AGE_PCT_OF);
-              break;
-            case DATE:
-              tokenRange = new TokenRange(
-                  token, token.getElement().getNeighborhoodRange(), DATE_PCT_OF);
-              break;
-            default:
-              tokenRange = new TokenRange(token, token.getElement().getNeighborhoodRange());
-          }
-          return tokenBinaryTree.subSet(tokenRange.lower, true, tokenRange.higher, true)
-              .stream()
-              .flatMap(val -> tokenElementSet.get(val).stream()).collect(Collectors.toSet());
-        default:
+  /**
+   * Gets the Token values demoted to stop Tokens so far, per
+   * ElementClassification, with their document frequency when last matched.
+   *
+   * @return the demoted Token values
+   */
+  public Map<ElementClassification, Map<Object, Integer>> getDemotedTokens() {
+    Map<ElementClassification, Map<Object, Integer>> report = new HashMap<>();
+    demotedTokens.forEach((elementClassification, values) ->
+        report.put(elementClassification, new HashMap<>(values)));
+    return report;
+  }
+
+  /**
+   * Sets how the Tokens of an ElementClassification are weighted when its
+   * Elements are scored, COUNT by default.
+   *
+   * @param elementClassification the ElementClassification
+   * @param tokenWeighting        the TokenWeighting
+   */
+  public void setTokenWeighting(ElementClassification elementClassification,
+      TokenWeighting tokenWeighting) {
+    tokenWeightings.put(elementClassification, tokenWeighting);
+  }
+
+  public TokenWeighting getTokenWeighting(ElementClassification elementClassification) {
+    return tokenWeightings.getOrDefault(elementClassification, TokenWeighting.COUNT);
+  }
+
+  /**
+   * <p>
+   * Sets an ElementClassification of EQUALITY n-gram Tokens, such as EMAIL, to
+   * take its candidates from a MinHash LSH index, instead of every Element
+   * sharing a Token.
+   * </p>
+   * Each Element is given a signature of bands x rows MinHashes, and the
+   * Elements sharing the hashes of any band are its only candidates, with their
+   * Tokens counted as usual. Elements sharing a fraction s of their Token values
+   * are found with the probability 1 - (1 - s^rows)^bands, so more bands find
+   * less similar Elements, and more rows fewer false candidates. The Elements
+   * of the ElementClassification already in the Repo are indexed now, no
+   * Element should be put while it is set.
+   *
+   * @param elementClassification the ElementClassification
+   * @param bands                 the number of bands of the signature
+   * @param rows                  the number of hashes in each band
+   */
+  public void setMinHashCandidates(ElementClassification elementClassification, int bands,
+      int rows) {
+    setCandidateIndex(elementClassification, new MinHashIndex(bands, rows));
+  }
+
+  /**
+   * <p>
+   * Sets an ElementClassification of EQUALITY word Tokens, such as long TEXT,
+   * to take its candidates from a SimHash fingerprint index, instead of every
+   * Element sharing a Token.
+   * </p>
+   * Each Element is given a 64 bit fingerprint of its Token values, and the
+   * Elements whose fingerprint differs in at most maxDistance bits are its only
+   * candidates, with their Tokens counted as usual. A small distance finds the
+   * near duplicates only, each distance more splits the fingerprint in smaller
+   * blocks and reads larger buckets. The Elements of the ElementClassification
+   * already in the Repo are indexed now, no Element should be put while it is
+   * set.
+   *
+   * @param elementClassification the ElementClassification
+   * @param maxDistance           the highest Hamming distance of the fingerprints
+   *                              of candidates, up to 15
+   */
+  public void setSimHashCandidates(ElementClassification elementClassification,
+      int maxDistance) {
+    setCandidateIndex(elementClassification, new SimHashIndex(maxDistance));
+  }
+
+  /**
+   * Gets the index giving the candidates of an ElementClassification.
+   *
+   * @param elementClassification the ElementClassification
+   * @return CandidateIndex, null if the candidates are found by the Tokens
+   */
+  CandidateIndex getCandidateIndex(ElementClassification elementClassification) {
+    return candidateIndexes.get(elementClassification);
+  }
+
+  /**
+   * Gets the number of Elements put of an ElementClassification.
+   *
+   * @param elementClassification the ElementClassification
+   * @return the number of Elements
+   */
+  public int getElementCount(ElementClassification elementClassification) {
+    int count = elementRegistry.getCount(elementClassification);
+    if (base != null) {
+      count += base.getElementCount(elementClassification);
+    }
+    return count;
+  }
+
+  /**
+   * Gets the number of Elements holding the value of the Token, or for
+   * EQUALITY_DISTANCE the sum over every value within the edit distance of it.
+   * It is 0 for the NEAREST_NEIGHBORS and GEO_DISTANCE MatchTypes, which keep no
+   * posting list per value.
+   *
+   * @param token Token whose value is counted
+   * @return document frequency of the value
+   */
+  public int getDocumentFrequency(Token token) {
+    int documentFrequency = 0;
+    for (Repo repo : getRepos(token.getElement().getElementClassification())) {
+      documentFrequency += repo.getDocumentFrequency(token);
+    }
+    return documentFrequency;
+  }
+
+  /**
+   * Checks if the Token is held by more Elements than the document frequency cap
+   * of its ElementClassification, and reports it if so.
+   *
+   * @param token Token to be matched
+   * @return true if the Token should only count for known candidates
+   */
+  boolean isDemoted(Token token) {
+    ElementClassification elementClassification = token.getElement().getElementClassification();
+    Integer cap = documentFrequencyCaps.get(elementClassification);
+    if (cap == null) {
+      return false;
+    }
+    int documentFrequency = getDocumentFrequency(token);
+    if (documentFrequency <= cap) {
+      return false;
+    }
+    demotedTokens.computeIfAbsent(elementClassification, key -> new ConcurrentHashMap<>())
+        .put(token.getValue(), documentFrequency);
+    return true;
+  }
+
+  /**
+   * Counts a hit of a Token on each candidate already touched in the accumulator
+   * that it matches, without listing every match of the Token.
+   *
+   * @param token       Token to be matched
+   * @param accumulator the hits counted so far
+   */
+  void verify(Token token, ScoreAccumulator accumulator) {
+    List<IntPredicate> matchers = new ArrayList<>();
+    for (Repo repo : getRepos(token.getElement().getElementClassification())) {
+      matchers.add(repo.getMatcher(token));
+    }
+    for (int i = 0; i < accumulator.getTouchedCount(); i++) {
+      int ordinal = accumulator.getTouched(i);
+      for (IntPredicate matcher : matchers) {
+        if (matcher.test(ordinal)) {
+          accumulator.add(ordinal);
           break;
+        }
       }
-      return null;
     }
   }
 
-  private class TokenRange {
+  /**
+   * Gets the Element of an ordinal given by get.
+   *
+   * @param ordinal Element ordinal
+   * @return Element, null if it was removed since
+   */
+  Element getElement(int ordinal) {
+    if (base != null && ordinal < base.getElementCount()) {
+      return base.getElement(ordinal);
+    }
+    return elementRegistry.get(ordinal);
+  }
 
-    private final Object lower;
-    private final Object higher;
+  /**
+   * Gives the Element its ordinal before its Tokens are put, so the Elements put
+   * at once have their ordinals in a given order, above the ordinals of the
+   * Elements put before.
+   *
+   * @param element Element to be put
+   * @return ordinal of the Element
+   */
+  int register(Element element) {
+    return elementRegistry.registerNext(element);
+  }
 
-    TokenRange(Token token, double pct, Double pctOf) {
-      Object value = token.getValue();
-      if (value instanceof Double) {
-        this.lower = getLower((Double) value, pct, pctOf).doubleValue();
-        this.higher = getHigher((Double) value, pct, pctOf).doubleValue();
-      } else if (value instanceof Integer) {
-        this.lower = getLower((Integer) value, pct, pctOf).intValue();
-        this.higher = getHigher((Integer) value, pct, pctOf).intValue();
-      } else if (value instanceof Long) {
-        this.lower = getLower((Long) value, pct, pctOf).longValue();
-        this.higher = getHigher((Long) value, pct, pctOf).longValue();
-      } else if (value instanceof Float) {
-        this.lower = getLower((Float) value, pct, pctOf).floatValue();
-        this.higher = getHigher((Float) value, pct, pctOf).floatValue();
-      } else if (value instanceof Date) {
-        this.lower = new Date(getLower(((Date) value).getTime(), pct, pctOf).longValue());
-        this.higher = new Date(getHigher(((Date) value).getTime(), pct, pctOf).longValue());
-      } else {
-        throw new MatchException("Data Type not supported");
+  /**
+   * Gets the ordinal of an Element put in the Repo.
+   *
+   * @param element Element put
+   * @return ordinal of the Element, -1 if it was not put
+   */
+  int getOrdinal(Element element) {
+    return elementRegistry.getOrdinal(element);
+  }
+
+  /**
+   * <p>
+   * Saves the Repo to a snapshot file, replacing any file at the path.
+   * </p>
+   * The snapshot holds the Elements with their Documents and settings, the
+   * interned Token values with their posting lists, and the numeric keys. It is
+   * written to a temporary file first, then moved to the path. No Token should
+   * be put while it is saved. A Repo whose removed Elements left ordinals not
+   * given again has no dense ordinals, and can not be saved.
+   *
+   * @param path the snapshot file
+   */
+  public void save(Path path) {
+    if (base != null || shards.length > 1) {
+      throw new MatchException("Only an unsharded in memory Repo can be saved : " + path);
+    }
+    if (elementRegistry.hasFreeOrdinals()) {
+      throw new MatchException("A Repo with removed Elements can not be saved : " + path);
+    }
+    Map<ElementClassification, Repo> repoMap = shards[0].getRepoMap();
+    Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+    try {
+      try (SnapshotWriter writer = new SnapshotWriter(tempPath)) {
+        writer.writeInt(SNAPSHOT_MAGIC);
+        writer.writeInt(SNAPSHOT_VERSION);
+        elementRegistry.writeTo(writer);
+        writer.writeVarInt(repoMap.size());
+        for (Map.Entry<ElementClassification, Repo> entry : repoMap.entrySet()) {
+          writer.writeString(entry.getKey().getElementType().name());
+          writer.writeString(entry.getKey().getVariance());
+          entry.getValue().save(writer);
+        }
       }
+      Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new MatchException("Failure in saving the snapshot : " + path, e);
     }
+  }
 
-    TokenRange(Token token, double pct) {
-      this(token, pct, null);
+  /**
+   * <p>
+   * Loads a Repo from a snapshot file written by save.
+   * </p>
+   * The Elements are created again with their Documents. Custom functions are
+   * not part of the snapshot, the Elements use the functions of their
+   * ElementType.
+   *
+   * @param path the snapshot file
+   * @return TokenRepo
+   */
+  public static TokenRepo load(Path path) {
+    TokenRepo tokenRepo = new TokenRepo();
+    try (SnapshotReader reader = new SnapshotReader(path)) {
+      if (reader.readInt() != SNAPSHOT_MAGIC) {
+        throw new MatchException("Not a snapshot file : " + path);
+      }
+      int version = reader.readInt();
+      if (version != SNAPSHOT_VERSION) {
+        throw new MatchException("Snapshot version not supported : " + version);
+      }
+      tokenRepo.elementRegistry.readFrom(reader);
+      int repoCount = reader.readVarInt();
+      for (int i = 0; i < repoCount; i++) {
+        ElementClassification elementClassification = new ElementClassification(
+            ElementType.valueOf(reader.readString()), reader.readString());
+        tokenRepo.shards[0].getRepoMap().put(elementClassification, Repo.load(reader));
+      }
+    } catch (IOException e) {
+      throw new MatchException("Failure in loading the snapshot : " + path, e);
+    }
+    return tokenRepo;
+  }
+
+  /**
+   * <p>
+   * Writes the Repo as a segment file, replacing any file at the path.
+   * </p>
+   * Every Element must belong to a Document. The segment is written to a
+   * temporary file first, then moved to the path. No Token should be put while
+   * it is written. A Repo whose removed Elements left ordinals not given again
+   * can not be written.
+   *
+   * @param path the segment file
+   */
+  public void writeSegment(Path path) {
+    if (base != null || shards.length > 1) {
+      throw new MatchException("Only an unsharded in memory Repo can be written : " + path);
+    }
+    if (elementRegistry.hasFreeOrdinals()) {
+      throw new MatchException("A Repo with removed Elements can not be written : " + path);
+    }
+    Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+    try {
+      try (SnapshotWriter writer = new SnapshotWriter(tempPath)) {
+        Segment.write(elementRegistry, shards[0].getRepoMap(), writer);
+      }
+      Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new MatchException("Failure in writing the segment : " + path, e);
+    }
+  }
+
+  /**
+   * <p>
+   * Opens a Repo over a segment file written by writeSegment.
+   * </p>
+   * The segment is memory mapped and queried in place, and its Elements are
+   * only created when matched, so opening it takes the same time whatever its
+   * size. Tokens put in the Repo are kept in memory and matched along with the
+   * segment. The file must not change while the Repo is in use.
+   *
+   * @param path the segment file
+   * @return TokenRepo
+   */
+  public static TokenRepo openSegment(Path path) {
+    return new TokenRepo(Segment.open(path));
+  }
+
+  /**
+   * <p>
+   * Bulk builds a Repo of all the Elements of the Documents, frozen into a
+   * compact read-only index.
+   * </p>
+   * The Tokens are collected and the postings of each value written in one pass,
+   * into an open addressed term table and a single array of ordinals per
+   * ElementClassification, with no concurrent map. The index is probed from any
+   * number of threads without synchronization. Tokens put in the Repo afterwards
+   * are kept in memory and matched along with the index.
+   *
+   * @param documents Documents to be put in the Repo
+   * @return TokenRepo
+   */
+  public static TokenRepo build(Collection<Document> documents) {
+    return new TokenRepo(FrozenIndex.build(documents));
+  }
+
+  /**
+   * Stops the workers of the shards, once the puts and probes already handed to
+   * them are done.
+   */
+  @Override
+  public void close() {
+    for (TokenShard shard : shards) {
+      shard.shutdown();
     }
+  }
 
-    private Number getLower(Number number, double pct, Double pctOf) {
-      Double dpctOf = pctOf != null ? pctOf : number.doubleValue();
-      Double pctVal = Math.abs(dpctOf * (1.0 - pct));
-      return number.doubleValue() - pctVal;
+  private void setCandidateIndex(ElementClassification elementClassification,
+      CandidateIndex candidateIndex) {
+    int elementCount = (base != null ? base.getElementCount() : 0) + elementRegistry.size();
+    for (int ordinal = 0; ordinal < elementCount; ordinal++) {
+      Element element = getElement(ordinal);
+      if (element != null && element.getElementClassification().equals(elementClassification)) {
+        candidateIndex.put(element, ordinal);
+      }
     }
+    candidateIndexes.put(elementClassification, candidateIndex);
+  }
 
-    private Number getHigher(Number number, double pct, Double pctOf) {
-      Double dpctOf = pctOf != null ? pctOf : number.doubleValue();
-      Double pctVal = Math.abs(dpctOf * (1.0 - pct));
-      return number.doubleValue() + pctVal;
+  private void put(Token token, int ordinal) {
+    if (shards.length == 1) {
+      shards[0].put(token, ordinal);
+      return;
     }
+    TokenShard shard = shards[getShardIndex(token)];
+    shard.getWorker().execute(() -> shard.put(token, ordinal));
+  }
 
+  /**
+   * Applies an action to each Token on its shard. In a sharded TokenRepo, the
+   * Tokens are handed to the workers of their shards, and the future completes
+   * once every worker has applied them.
+   */
+  @SuppressWarnings("unchecked")
+  private CompletableFuture<Void> applyToShards(List<Token> tokens,
+      BiConsumer<TokenShard, Token> action) {
+    if (shards.length == 1) {
+      tokens.forEach(token -> action.accept(shards[0], token));
+      return CompletableFuture.completedFuture(null);
+    }
+    List<Token>[] shardTokens = new List[shards.length];
+    for (Token token : tokens) {
+      int shard = getShardIndex(token);
+      if (shardTokens[shard] == null) {
+        shardTokens[shard] = new ArrayList<>();
+      }
+      shardTokens[shard].add(token);
+    }
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < shards.length; i++) {
+      if (shardTokens[i] != null) {
+        TokenShard shard = shards[i];
+        List<Token> shardActions = shardTokens[i];
+        futures.add(CompletableFuture.runAsync(
+            () -> shardActions.forEach(token -> action.accept(shard, token)), shard.getWorker()));
+      }
+    }
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
   }
 
+  private int getShardIndex(Token token) {
+    int hash = 31 * token.getElement().getElementClassification().hashCode()
+        + token.getValue().hashCode();
+    return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+  }
+
+  private void getFromBase(Token token, IntConsumer consumer) {
+    if (base != null) {
+      Repo baseRepo = base.getRepo(token.getElement().getElementClassification());
+      if (baseRepo != null) {
+        baseRepo.get(token, consumer);
+      }
+    }
+  }
+
+  /**
+   * Gets the Repos holding the Tokens of an ElementClassification, reading them
+   * from the calling thread. In a sharded TokenRepo, the puts still queued for a
+   * worker are not seen.
+   */
+  private List<Repo> getRepos(ElementClassification elementClassification) {
+    List<Repo> repos = new ArrayList<>(shards.length + 1);
+    if (base != null && base.getRepo(elementClassification) != null) {
+      repos.add(base.getRepo(elementClassification));
+    }
+    for (TokenShard shard : shards) {
+      Repo repo = shard.getRepo(elementClassification);
+      if (repo != null) {
+        repos.add(repo);
+      }
+    }
+    return repos;
+  }
 }
@@ -0,0 +1,106 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Element;
+import fuzzy.matching.domain.MatchType;
+import fuzzy.matching.domain.Token;
+import fuzzy.matching.exception.MatchException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>
+ * The distinct Token values of an Element sorted by hash, each with a Token
+ * holding it and the number of Tokens holding it.
+ * </p>
+ * The values shared by two Elements are found by merging their hashes, so the
+ * Tokens of an Element are counted on a candidate without reading any posting
+ * list. It is not changed once built.
+ */
+@SuppressWarnings("rawtypes")
+class TokenSet {
+
+  private final int[] hashes;
+  private final Token[] tokens;
+  private final int[] counts;
+
+  /**
+   * Constructor for TokenSet.
+   *
+   * @param element - the Element, of the EQUALITY MatchType
+   */
+  @SuppressWarnings("unchecked")
+  TokenSet(Element element) {
+    if (element.getMatchType() != MatchType.EQUALITY) {
+      throw new MatchException("Candidate index needs EQUALITY Tokens : "
+          + element.getElementClassification());
+    }
+    List<Token> elementTokens = element.getTokens();
+    Map<Object, Integer> ids = new HashMap<>();
+    List<Token> distinctTokens = new ArrayList<>();
+    int[] distinctCounts = new int[elementTokens.size()];
+    for (Token token : elementTokens) {
+      int id = ids.computeIfAbsent(token.getValue(), value -> {
+        distinctTokens.add(token);
+        return distinctTokens.size() - 1;
+      });
+      distinctCounts[id]++;
+    }
+    Integer[] order = new Integer[distinctTokens.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (id1, id2) -> Integer.compare(
+        distinctTokens.get(id1).getValue().hashCode(),
+        distinctTokens.get(id2).getValue().hashCode()));
+    this.hashes = new int[order.length];
+    this.tokens = new Token[order.length];
+    this.counts = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      tokens[i] = distinctTokens.get(order[i]);
+      hashes[i] = tokens[i].getValue().hashCode();
+      counts[i] = distinctCounts[order[i]];
+    }
+  }
+
+  int size() {
+    return hashes.length;
+  }
+
+  int getHash(int index) {
+    return hashes[index];
+  }
+
+  Token getToken(int index) {
+    return tokens[index];
+  }
+
+  int getCount(int index) {
+    return counts[index];
+  }
+
+  /**
+   * Gives the index of each value of this TokenSet also held by the other.
+   *
+   * @param other    the TokenSet to be compared with
+   * @param consumer receives the index in this TokenSet of each shared value
+   */
+  void intersect(TokenSet other, IntConsumer consumer) {
+    int j = 0;
+    for (int i = 0; i < hashes.length && j < other.hashes.length; i++) {
+      while (j < other.hashes.length && other.hashes[j] < hashes[i]) {
+        j++;
+      }
+      // Values with the same hash are compared one by one
+      for (int k = j; k < other.hashes.length && other.hashes[k] == hashes[i]; k++) {
+        if (other.tokens[k].getValue().equals(tokens[i].getValue())) {
+          consumer.accept(i);
+          break;
+        }
+      }
+    }
+  }
+}
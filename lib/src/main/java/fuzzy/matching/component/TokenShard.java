@@ -0,0 +1,141 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.ElementClassification;
+import fuzzy.matching.domain.Token;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>
+ * A partition of the Repos of a TokenRepo, holding the Tokens whose values hash
+ * to it.
+ * </p>
+ * A shard of a sharded TokenRepo is owned by a single worker thread, which runs
+ * its puts, removals and probes in the order they are submitted, so a probe
+ * sees every put submitted before it and the Repos are only ever written by one
+ * thread. Their posting lists keep their locks, as the Repos are the ones of an
+ * unsharded TokenRepo.
+ * The single shard of an unsharded TokenRepo has no worker, and is used from
+ * the calling threads.
+ */
+@SuppressWarnings("rawtypes")
+class TokenShard {
+
+  static final int ALL_SHARDS = -1;
+
+  private final int index;
+  private final Map<ElementClassification, Repo> repoMap = new ConcurrentHashMap<>();
+  private final ExecutorService worker;
+
+  /**
+   * Constructor for TokenShard.
+   *
+   * @param index     - the index of the shard in its TokenRepo
+   * @param hasWorker - if the shard is owned by a worker thread
+   */
+  TokenShard(int index, boolean hasWorker) {
+    this.index = index;
+    this.worker = hasWorker ? Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "token-shard-" + index);
+      thread.setDaemon(true);
+      return thread;
+    }) : null;
+  }
+
+  Map<ElementClassification, Repo> getRepoMap() {
+    return repoMap;
+  }
+
+  Repo getRepo(ElementClassification elementClassification) {
+    return repoMap.get(elementClassification);
+  }
+
+  ExecutorService getWorker() {
+    return worker;
+  }
+
+  /**
+   * Puts the Token in the Repo of its ElementClassification, creating it for the
+   * first Token.
+   *
+   * @param token   Token to be put
+   * @param ordinal ordinal of the Element the Token belongs to
+   */
+  void put(Token token, int ordinal) {
+    ElementClassification elementClassification = token.getElement().getElementClassification();
+    Repo repo = repoMap.computeIfAbsent(
+        elementClassification, classification -> Repo.create(token.getElement()));
+    repo.put(token, ordinal);
+  }
+
+  /**
+   * Removes the Token put for the ordinal from the Repo of its
+   * ElementClassification.
+   *
+   * @param token   Token put
+   * @param ordinal ordinal of the Element the Token belongs to
+   */
+  void remove(Token token, int ordinal) {
+    Repo repo = repoMap.get(token.getElement().getElementClassification());
+    if (repo != null) {
+      repo.remove(token, ordinal);
+    }
+  }
+
+  /**
+   * Gives the ordinals of the Elements matching the given Token in this shard.
+   *
+   * @param token    Token to be matched
+   * @param consumer receives each matching ordinal
+   */
+  void get(Token token, IntConsumer consumer) {
+    Repo repo = repoMap.get(token.getElement().getElementClassification());
+    if (repo != null) {
+      repo.get(token, consumer);
+    }
+  }
+
+  /**
+   * Gets the ordinals matching each of the Tokens routed to this shard.
+   *
+   * @param tokens Tokens to be matched
+   * @param routes the shard of each Token, or ALL_SHARDS
+   * @return the ordinals of each Token, null for the Tokens not routed here
+   */
+  int[][] getHits(List<Token> tokens, int[] routes) {
+    int[][] hits = new int[tokens.size()][];
+    HitBuffer buffer = new HitBuffer();
+    for (int i = 0; i < hits.length; i++) {
+      if (routes[i] == ALL_SHARDS || routes[i] == index) {
+        buffer.size = 0;
+        get(tokens.get(i), buffer);
+        hits[i] = Arrays.copyOf(buffer.ordinals, buffer.size);
+      }
+    }
+    return hits;
+  }
+
+  void shutdown() {
+    if (worker != null) {
+      worker.shutdown();
+    }
+  }
+
+  private static class HitBuffer implements IntConsumer {
+    private int[] ordinals = new int[16];
+    private int size;
+
+    @Override
+    public void accept(int ordinal) {
+      if (size == ordinals.length) {
+        ordinals = Arrays.copyOf(ordinals, size * 2);
+      }
+      ordinals[size++] = ordinal;
+    }
+  }
+}
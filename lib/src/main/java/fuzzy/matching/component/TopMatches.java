@@ -0,0 +1,220 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Document;
+import fuzzy.matching.domain.Element;
+import fuzzy.matching.domain.ElementClassification;
+import fuzzy.matching.domain.Match;
+import fuzzy.matching.domain.Score;
+import fuzzy.matching.exception.MatchException;
+import fuzzy.matching.function.ScoringFunction;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * <p>
+ * Keeps the k best matches of a query Document in a bounded min-heap.
+ * </p>
+ * Each candidate is given an upper bound of its score from its Element scores,
+ * and the candidates are scored from the highest bound down. Once k matches are
+ * kept, the score of the worst of them is the threshold a candidate must reach,
+ * and scoring stops at the first bound below it, so the candidates scored
+ * depend on k, not on the matches above the threshold of the Document. Matches
+ * of the same score are ordered by the key of the Document matched.
+ */
+@SuppressWarnings("rawtypes")
+class TopMatches {
+
+  // The worst match first, the one dropped when a better one comes
+  private static final Comparator<Match<Document>> WORST_FIRST =
+      Comparator.<Match<Document>>comparingDouble(Match::getResult)
+          .thenComparing(match -> match.getMatchedWith().getKey(), Comparator.reverseOrder());
+  // Margin for the rounding of the scores against their bounds
+  private static final double EPSILON = 1e-9;
+  // Whether a Document class keeps the default scoring function, the one bounded
+  private static final ClassValue<Boolean> DEFAULT_SCORING = new ClassValue<>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      try {
+        return type.getMethod("getScoringFunction").getDeclaringClass() == Document.class;
+      } catch (NoSuchMethodException e) {
+        return false;
+      }
+    }
+  };
+
+  private final Document document;
+  private final int k;
+  private final PriorityQueue<Match<Document>> heap;
+  private final List<Candidate> candidates = new ArrayList<>();
+  private int scoredCount;
+
+  /**
+   * Constructor for TopMatches.
+   *
+   * @param document - the query Document
+   * @param k        - the number of matches kept
+   */
+  TopMatches(Document document, int k) {
+    if (k < 1) {
+      throw new MatchException("At least one match must be kept : " + k);
+    }
+    this.document = document;
+    this.k = k;
+    this.heap = new PriorityQueue<>(k, WORST_FIRST);
+  }
+
+  /**
+   * Adds a Document matching some Elements of the query Document, to be scored
+   * if its bound can beat the matches kept.
+   *
+   * @param candidate   the Document matched
+   * @param childScores the scores of the Elements matched
+   */
+  void addCandidate(Document candidate, List<Score> childScores) {
+    candidates.add(new Candidate(candidate, childScores,
+        getScoreBound(document, candidate, childScores)));
+  }
+
+  /**
+   * Scores the candidates from the highest bound down, until no bound left can
+   * beat the worst match kept.
+   *
+   * @return the best matches, the best first
+   */
+  List<Match<Document>> getMatches() {
+    candidates.sort(Comparator.comparingDouble((Candidate candidate) -> candidate.bound)
+        .reversed());
+    for (Candidate candidate : candidates) {
+      if (candidate.bound + EPSILON < getThreshold()) {
+        break;
+      }
+      scoredCount++;
+      Match<Document> match = new Match<>(document, candidate.document, candidate.childScores);
+      // Document match Found
+      if (match.getResult() > document.getThreshold()) {
+        offer(match);
+      }
+    }
+    List<Match<Document>> matches = new ArrayList<>(heap);
+    matches.sort(WORST_FIRST.reversed());
+    return matches;
+  }
+
+  int getCandidateCount() {
+    return candidates.size();
+  }
+
+  int getScoredCount() {
+    return scoredCount;
+  }
+
+  private double getThreshold() {
+    double threshold = document.getThreshold();
+    return heap.size() < k ? threshold : Math.max(threshold, heap.peek().getResult());
+  }
+
+  private void offer(Match<Document> match) {
+    if (heap.size() < k) {
+      heap.add(match);
+    } else if (WORST_FIRST.compare(match, heap.peek()) > 0) {
+      heap.poll();
+      heap.add(match);
+    }
+  }
+
+  /**
+   * <p>
+   * Gets an upper bound of the score of a Document matched, from the scores of
+   * its Elements matched, with the default scoring function of the Documents.
+   * </p>
+   * The scores of the Elements give the sums of the scoring function exactly,
+   * only the child count and the unmatched child count are not counted. The
+   * child count is between the Element counts of the larger Document and of
+   * both, and every ElementClassification matched is in both, so is not
+   * unmatched. The score only rises or falls with the child count in between,
+   * so the higher of the scores at both ends bounds it. A Document with another
+   * scoring function is not bounded.
+   *
+   * @param document    the query Document
+   * @param candidate   the Document matched
+   * @param childScores the scores of the Elements matched
+   * @return the upper bound of the score
+   */
+  static double getScoreBound(Document document, Document candidate, List<Score> childScores) {
+    if (!DEFAULT_SCORING.get(document.getClass())) {
+      return Double.POSITIVE_INFINITY;
+    }
+    // The best score of each Element of the query Document, as the Match keeps
+    Map<Object, Score> bestScores = new HashMap<>();
+    for (Score score : childScores) {
+      bestScores.merge(score.getMatch().getData(), score,
+          (score1, score2) -> score1.getResult() >= score2.getResult() ? score1 : score2);
+    }
+    Set<ElementClassification> classifications = new HashSet<>();
+    double perfectScore = 0;
+    double perfectWeight = 0;
+    int perfectCount = 0;
+    double otherScore = 0;
+    double otherWeight = 0;
+    for (Score score : bestScores.values()) {
+      double weight = score.getMatch().getWeight();
+      if (!(weight > 0)) {
+        return Double.POSITIVE_INFINITY;
+      }
+      if (score.getResult() >= ScoringFunction.EXPONENTIAL_INCREASE_THRESHOLD) {
+        perfectScore += score.getResult() * weight;
+        perfectWeight += weight;
+        perfectCount++;
+      } else {
+        otherScore += score.getResult() * weight;
+        otherWeight += weight;
+      }
+      classifications.add(((Element) score.getMatch().getData()).getElementClassification());
+    }
+    double numerator;
+    double denominator;
+    if (perfectCount > 1 && perfectScore > 1) {
+      numerator = ScoringFunction.getExponentiallyIncreasedValue(perfectScore) + otherScore;
+      denominator = ScoringFunction.getExponentiallyIncreasedValue(perfectWeight) + otherWeight;
+    } else {
+      numerator = perfectScore + otherScore;
+      denominator = perfectWeight + otherWeight;
+    }
+    int elementCount = document.getPreProcessedElement().size();
+    int candidateElementCount = candidate.getPreProcessedElement().size();
+    return Math.max(
+        getScoreBound(numerator, denominator, Math.max(elementCount, candidateElementCount),
+            bestScores.size(), classifications.size()),
+        getScoreBound(numerator, denominator, elementCount + candidateElementCount,
+            bestScores.size(), classifications.size()));
+  }
+
+  private static double getScoreBound(double numerator, double denominator, int childCount,
+      int matchedCount, int matchedClassificationCount) {
+    double unmatchedChildScore = ScoringFunction.DEFAULT_UNMATCHED_CHILD_SCORE
+        * Math.max(0, childCount - matchedClassificationCount);
+    return (numerator + unmatchedChildScore) / (denominator + childCount - matchedCount);
+  }
+
+  /**
+   * A Document matched, with the scores of its Elements and its bound.
+   */
+  private static class Candidate {
+
+    private final Document document;
+    private final List<Score> childScores;
+    private final double bound;
+
+    private Candidate(Document document, List<Score> childScores, double bound) {
+      this.document = document;
+      this.childScores = childScores;
+      this.bound = bound;
+    }
+  }
+}
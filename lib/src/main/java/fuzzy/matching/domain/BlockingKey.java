@@ -0,0 +1,110 @@
+package fuzzy.matching.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.Function;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * <p>
+ * A key computed from the Element values of a Document, so only the Documents
+ * sharing it are compared when matched.
+ * </p>
+ * The key is made of parts, each computed by a BlockingFunction from the
+ * Element of an ElementType, such as the first Soundex code of the NAME and the
+ * zip digits of the ADDRESS. A Document with no Element of one of the types, or
+ * with an empty part, has no value for the key. When the Document has more
+ * than one Element of a type, the lowest part is used.
+ * Each BlockingKey is a blocking pass, two Documents are compared when they
+ * share the value of any of their BlockingKeys.
+ */
+@SuppressWarnings("rawtypes")
+public class BlockingKey {
+
+  private final String name;
+  private final List<ElementType> elementTypes;
+  private final List<Function<Element, String>> functions;
+
+  private BlockingKey(String name, List<ElementType> elementTypes,
+      List<Function<Element, String>> functions) {
+    this.name = name;
+    this.elementTypes = elementTypes;
+    this.functions = functions;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the value of the key for a Document.
+   *
+   * @param document the Document
+   * @return the value, null if the Document has none
+   */
+  public String getValue(Document document) {
+    StringJoiner value = new StringJoiner("|");
+    for (int i = 0; i < elementTypes.size(); i++) {
+      String part = null;
+      for (Element element : document.getPreProcessedElement()) {
+        if (element.getElementClassification().getElementType() == elementTypes.get(i)) {
+          String elementPart = functions.get(i).apply(element);
+          if (StringUtils.isNotEmpty(elementPart)
+              && (part == null || elementPart.compareTo(part) < 0)) {
+            part = elementPart;
+          }
+        }
+      }
+      if (part == null) {
+        return null;
+      }
+      value.add(part);
+    }
+    return value.toString();
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+  /**
+   * <p>
+   * Builder class for BlockingKey.
+   * </p>
+   */
+  public static class Builder {
+    private final String name;
+    private final List<ElementType> elementTypes = new ArrayList<>();
+    private final List<Function<Element, String>> functions = new ArrayList<>();
+
+    /**
+     * Constructor for Builder.
+     *
+     * @param name - the name of the blocking pass, unique among the keys used
+     */
+    public Builder(String name) {
+      this.name = name;
+    }
+
+    /**
+     * <p>
+     * Adds a part of the key, computed from the Element of an ElementType.
+     * </p>
+     *
+     * @param elementType the ElementType of the Element
+     * @param function    the BlockingFunction computing the part
+     * @return Builder
+     */
+    public Builder addPart(ElementType elementType, Function<Element, String> function) {
+      this.elementTypes.add(elementType);
+      this.functions.add(function);
+      return this;
+    }
+
+    public BlockingKey createBlockingKey() {
+      return new BlockingKey(name, new ArrayList<>(elementTypes), new ArrayList<>(functions));
+    }
+  }
+}
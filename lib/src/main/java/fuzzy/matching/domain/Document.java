@@ -1,6 +1,7 @@
 package fuzzy.matching.domain;
 
 import fuzzy.matching.function.ScoringFunction;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
@@ -24,6 +25,8 @@ import org.apache.commons.lang3.StringUtils;
  * <li>elements - A set of Element object to match against</li>
  * <li>threshold - Value above which documents are considered a match, default
  * 0.5</li>
+ * <li>blockingKeys - BlockingKeys restricting the Documents this one is
+ * compared with, to those sharing the value of one of them</li>
  * </ul>
  */
 @SuppressWarnings("rawtypes")
@@ -39,6 +42,7 @@ public class Document implements Matchable {
   private Set<Element> preProcessedElement;
   private double threshold;
   private Boolean source;
+  private List<BlockingKey> blockingKeys = List.of();
 
   public String getKey() {
     return key;
@@ -127,6 +131,10 @@ public class Document implements Matchable {
     return 1.0;
   }
 
+  public List<BlockingKey> getBlockingKeys() {
+    return blockingKeys;
+  }
+
   public Boolean isSource() {
     return source;
   }
@@ -144,6 +152,7 @@ public class Document implements Matchable {
     protected String key;
     protected Set<Element> elements;
     protected double threshold = 0.5;
+    protected List<BlockingKey> blockingKeys = new ArrayList<>();
 
     public Builder(String key) {
       this.key = key;
@@ -170,6 +179,19 @@ public class Document implements Matchable {
       return this;
     }
 
+    /**
+     * <p>
+     * Add a BlockingKey to the Document, as one more blocking pass.
+     * </p>
+     *
+     * @param blockingKey BlockingKey to add
+     * @return Builder
+     */
+    public Builder addBlockingKey(BlockingKey blockingKey) {
+      this.blockingKeys.add(blockingKey);
+      return this;
+    }
+
     /**
      * <p>
      * Add a list of Element to the Document.
@@ -179,6 +201,7 @@ public class Document implements Matchable {
      */
     public Document createDocument() {
       Document doc = new Document(key, elements, threshold);
+      doc.blockingKeys = List.copyOf(blockingKeys);
       doc.elements.stream().forEach(element -> element.setDocument(doc));
       return doc;
     }
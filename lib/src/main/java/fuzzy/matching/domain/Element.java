@@ -3,6 +3,7 @@ package fuzzy.matching.domain;
 import static fuzzy.matching.function.PreProcessFunction.toLowerCase;
 import static fuzzy.matching.function.PreProcessFunction.trim;
 
+import java.time.ZoneId;
 import java.util.AbstractMap;
 import java.util.List;
 import java.util.function.BiFunction;
@@ -31,6 +32,18 @@ import org.apache.commons.lang3.StringUtils;
  * set, the function defined in ElementType is used</li>
  * <li>matchType - MatchType used. If this is not set, the type defined in
  * ElementType is used</li>
+ * <li>maxEditDistance - Relevant for EQUALITY_DISTANCE MatchType. The number of
+ * edits allowed between matching tokens (default 1)</li>
+ * <li>transpositions - Relevant for EQUALITY_DISTANCE MatchType. Counts swapping
+ * 2 adjacent characters as a single edit (default false)</li>
+ * <li>dateTolerance - Relevant for NEAREST_NEIGHBORS MatchType on dates. The
+ * number of days between matching dates. If this is not set, it is given by the
+ * neighborhoodRange, as a part of 5 years</li>
+ * <li>zoneId - Relevant for NEAREST_NEIGHBORS MatchType on dates. The time zone
+ * giving the day of a Date or Instant, to be matched with a LocalDate (default
+ * the system time zone)</li>
+ * <li>radius - Relevant for GEO_DISTANCE MatchType. The distance in kilometers
+ * within which GeoPoints are considered a match (default 1.0)</li>
  * </ul>
  */
 @SuppressWarnings({ "rawtypes", "unchecked" })
@@ -45,6 +58,11 @@ public class Element<T> implements Matchable {
   private Function<Element<T>, Stream<Token>> tokenizerFunction;
   private List<Token> tokens;
   private MatchType matchType;
+  private int maxEditDistance = 1;
+  private boolean transpositions;
+  private int dateTolerance = -1;
+  private ZoneId zoneId = ZoneId.systemDefault();
+  private double radius = 1.0;
 
   private T preProcessedValue;
 
@@ -150,6 +168,26 @@ public class Element<T> implements Matchable {
     return this.matchType;
   }
 
+  public int getMaxEditDistance() {
+    return maxEditDistance;
+  }
+
+  public boolean isTranspositions() {
+    return transpositions;
+  }
+
+  public int getDateTolerance() {
+    return dateTolerance;
+  }
+
+  public ZoneId getZoneId() {
+    return zoneId;
+  }
+
+  public double getRadius() {
+    return radius;
+  }
+
   /**
    * This function returns the tokens for the Element. If the tokens are not
    * already set, it calculates the tokens using the tokenizer function.
@@ -167,6 +205,19 @@ public class Element<T> implements Matchable {
     return ((double) matchingCount / (double) getChildCount(other));
   }
 
+  /**
+   * Gets the score from the weight of the Tokens matched. When every Token
+   * weighs the same, it gives the same score as getScore.
+   *
+   * @param matchingWeight weight of the Tokens matching the other Element
+   * @param totalWeight    weight of all the Tokens of this Element
+   * @param other          Element matched
+   * @return the score
+   */
+  public double getWeightedScore(double matchingWeight, double totalWeight, Element other) {
+    return matchingWeight / totalWeight * getTokens().size() / getChildCount(other);
+  }
+
   /**
    * This gets the Max number of tokens present between matching Elements.
    * For Elements that do not have a balanced set of tokens, it can push the score
@@ -213,6 +264,11 @@ public class Element<T> implements Matchable {
     private double neighborhoodRange = 0.9;
     private Function<T, T> preProcessFunction;
     private MatchType matchType;
+    private int maxEditDistance = 1;
+    private boolean transpositions;
+    private int dateTolerance = -1;
+    private ZoneId zoneId = ZoneId.systemDefault();
+    private double radius = 1.0;
 
     private Function<Element<T>, Stream<Token>> tokenizerFunction;
 
@@ -261,9 +317,45 @@ public class Element<T> implements Matchable {
       return this;
     }
 
+    public Builder setMaxEditDistance(int maxEditDistance) {
+      this.maxEditDistance = maxEditDistance;
+      return this;
+    }
+
+    public Builder setTranspositions(boolean transpositions) {
+      this.transpositions = transpositions;
+      return this;
+    }
+
+    public Builder setDateTolerance(int dateTolerance) {
+      this.dateTolerance = dateTolerance;
+      return this;
+    }
+
+    public Builder setZoneId(ZoneId zoneId) {
+      this.zoneId = zoneId;
+      return this;
+    }
+
+    public Builder setRadius(double radius) {
+      this.radius = radius;
+      return this;
+    }
+
+    /**
+     * Creates the Element.
+     *
+     * @return Element
+     */
     public Element createElement() {
-      return new Element<T>(type, variance, value, weight, threshold,
+      Element<T> element = new Element<T>(type, variance, value, weight, threshold,
           neighborhoodRange, preProcessFunction, tokenizerFunction, matchType);
+      element.maxEditDistance = maxEditDistance;
+      element.transpositions = transpositions;
+      element.dateTolerance = dateTolerance;
+      element.zoneId = zoneId;
+      element.radius = radius;
+      return element;
     }
   }
 
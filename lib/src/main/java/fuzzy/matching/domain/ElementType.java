@@ -2,6 +2,7 @@ package fuzzy.matching.domain;
 
 import static fuzzy.matching.domain.MatchType.EQUALITY;
 import static fuzzy.matching.domain.MatchType.EQUALITY_DISTANCE;
+import static fuzzy.matching.domain.MatchType.GEO_DISTANCE;
 import static fuzzy.matching.domain.MatchType.NEAREST_NEIGHBORS;
 import static fuzzy.matching.function.PreProcessFunction.addressPreprocessing;
 import static fuzzy.matching.function.PreProcessFunction.idTypePreProcessing;
@@ -45,7 +46,8 @@ public enum ElementType {
   PATH,
   ID,
   PRICE,
-  GENRE;
+  GENRE,
+  GEO;
 
   protected Function getPreProcessFunction() {
     switch (this) {
@@ -109,6 +111,8 @@ public enum ElementType {
       case ID:
       case PRICE:
         return EQUALITY_DISTANCE;
+      case GEO:
+        return GEO_DISTANCE;
       default:
         return EQUALITY;
     }
@@ -0,0 +1,93 @@
+package fuzzy.matching.domain;
+
+import fuzzy.matching.exception.MatchException;
+
+/**
+ * <p>
+ * A point on the Earth, given by its latitude and longitude in degrees. This is
+ * the value of a GEO Element.
+ * </p>
+ * Distances between points are great-circle distances in kilometers, on a
+ * sphere of the mean radius of the Earth.
+ */
+public class GeoPoint {
+
+  public static final double EARTH_RADIUS = 6371.0088;
+
+  private final double latitude;
+  private final double longitude;
+
+  /**
+   * Constructor for GeoPoint.
+   *
+   * @param latitude  - the latitude, from -90 to 90 degrees
+   * @param longitude - the longitude, from -180 to 180 degrees
+   */
+  public GeoPoint(double latitude, double longitude) {
+    if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+      throw new MatchException("Coordinates out of range : " + latitude + ", " + longitude);
+    }
+    this.latitude = latitude;
+    this.longitude = longitude;
+  }
+
+  public double getLatitude() {
+    return latitude;
+  }
+
+  public double getLongitude() {
+    return longitude;
+  }
+
+  /**
+   * Gets the distance to another point, by the haversine formula.
+   *
+   * @param other the other point
+   * @return the distance in kilometers
+   */
+  public double distanceTo(GeoPoint other) {
+    return distance(latitude, longitude, other.latitude, other.longitude);
+  }
+
+  /**
+   * Gets the distance between two points, by the haversine formula.
+   *
+   * @param latitude1  the latitude of the first point, in degrees
+   * @param longitude1 the longitude of the first point, in degrees
+   * @param latitude2  the latitude of the second point, in degrees
+   * @param longitude2 the longitude of the second point, in degrees
+   * @return the distance in kilometers
+   */
+  public static double distance(double latitude1, double longitude1, double latitude2,
+      double longitude2) {
+    double sinLatitude = Math.sin(Math.toRadians(latitude2 - latitude1) / 2);
+    double sinLongitude = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+    double a = sinLatitude * sinLatitude + Math.cos(Math.toRadians(latitude1))
+        * Math.cos(Math.toRadians(latitude2)) * sinLongitude * sinLongitude;
+    return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+  }
+
+  @Override
+  public String toString() {
+    return "{" + latitude + ", " + longitude + '}';
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    GeoPoint geoPoint = (GeoPoint) o;
+    return Double.compare(latitude, geoPoint.latitude) == 0
+        && Double.compare(longitude, geoPoint.longitude) == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Double.hashCode(latitude) + Double.hashCode(longitude);
+  }
+}
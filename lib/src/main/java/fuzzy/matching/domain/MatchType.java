@@ -6,5 +6,6 @@ package fuzzy.matching.domain;
 public enum MatchType {
   EQUALITY,
   EQUALITY_DISTANCE,
-  NEAREST_NEIGHBORS
+  NEAREST_NEIGHBORS,
+  GEO_DISTANCE
 }
@@ -0,0 +1,12 @@
+package fuzzy.matching.domain;
+
+/**
+ * Enum to define how the Tokens of an Element are weighted when it is scored.
+ * COUNT weighs every Token the same, IDF weighs a Token by the inverse of the
+ * number of Elements it matches, so sharing a rare Token scores higher than
+ * sharing a common one.
+ */
+public enum TokenWeighting {
+  COUNT,
+  IDF
+}
@@ -0,0 +1,68 @@
+package fuzzy.matching.function;
+
+import fuzzy.matching.domain.Element;
+import java.util.Objects;
+import java.util.function.Function;
+import org.apache.commons.codec.language.Soundex;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A functional interface to compute the parts of a BlockingKey from Elements.
+ * These functions are applied to the pre-processed value of the Element, and
+ * give an empty String when the value has no part.
+ */
+@SuppressWarnings("rawtypes")
+public class BlockingFunction {
+
+  private static final Soundex soundex = new Soundex();
+
+  /**
+   * Uses the whole pre-processed value.
+   *
+   * @return the function to get the value
+   */
+  public static Function<Element, String> value() {
+    return BlockingFunction::getValue;
+  }
+
+  /**
+   * Uses the Soundex code of the first word of the value, such as the first
+   * name of a NAME.
+   *
+   * @return the function to get the first Soundex code
+   */
+  public static Function<Element, String> firstSoundex() {
+    return element -> {
+      String[] words = StringUtils.split(getValue(element));
+      return words.length > 0 ? soundex.encode(words[0]) : "";
+    };
+  }
+
+  /**
+   * Uses the first characters of the value.
+   *
+   * @param count the number of characters
+   * @return the function to get the first characters
+   */
+  public static Function<Element, String> firstCharacters(int count) {
+    return element -> StringUtils.left(getValue(element), count);
+  }
+
+  /**
+   * Uses the last digits of the value, such as the zip code of an ADDRESS. A
+   * value with fewer digits has no part.
+   *
+   * @param count the number of digits
+   * @return the function to get the last digits
+   */
+  public static Function<Element, String> lastDigits(int count) {
+    return element -> {
+      String digits = getValue(element).replaceAll("[^0-9]", "");
+      return digits.length() >= count ? digits.substring(digits.length() - count) : "";
+    };
+  }
+
+  private static String getValue(Element element) {
+    return Objects.toString(element.getPreProcessedValue(), "");
+  }
+}
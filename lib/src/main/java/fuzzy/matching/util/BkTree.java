@@ -0,0 +1,155 @@
+package fuzzy.matching.util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+
+/**
+ * <p>
+ * A BK-tree (Burkhard-Keller metric tree) over String terms using the
+ * Levenshtein edit distance.
+ * </p>
+ * Every child of a node is stored under its distance to that node, so by the
+ * triangle inequality a search for terms within distance k of a query only has
+ * to descend into children whose distance lies in [d - k, d + k], where d is
+ * the distance between the query and the node. This keeps fuzzy lookups to a
+ * small part of the vocabulary instead of a scan over every term.
+ * A term removed keeps its node, with no value, to route the searches of the
+ * terms below it, and is given a value again if it is put back.
+ * The tree is safe for concurrent use without locking, a child is added by
+ * swapping in a copy of the children of its parent with compare-and-set.
+ *
+ * @param <T> the type of value held against each term
+ */
+public class BkTree<T> implements FuzzyDictionary<T> {
+
+  private final AtomicReference<Node<T>> root = new AtomicReference<>();
+  private final AtomicInteger size = new AtomicInteger();
+
+  @Override
+  public void put(String term, T value) {
+    Node<T> newNode = new Node<>(term, value);
+    Node<T> node = root.get();
+    if (node == null) {
+      if (root.compareAndSet(null, newNode)) {
+        size.incrementAndGet();
+        return;
+      }
+      node = root.get();
+    }
+    while (true) {
+      int distance = Utils.editDistance(
+          term, node.term, Math.max(term.length(), node.term.length()));
+      if (distance == 0) {
+        if (Node.VALUE.getAndSet(node, value) == null) {
+          size.incrementAndGet();
+        }
+        return;
+      }
+      Node<T> child = node.getChild(distance);
+      if (child == null) {
+        if (node.addChild(distance, newNode)) {
+          size.incrementAndGet();
+          return;
+        }
+        // Another writer added a child at this distance first
+        child = node.getChild(distance);
+      }
+      node = child;
+    }
+  }
+
+  @Override
+  public boolean remove(String term) {
+    Node<T> node = root.get();
+    while (node != null) {
+      int distance = Utils.editDistance(
+          term, node.term, Math.max(term.length(), node.term.length()));
+      if (distance == 0) {
+        if (Node.VALUE.getAndSet(node, null) != null) {
+          size.decrementAndGet();
+          return true;
+        }
+        return false;
+      }
+      node = node.getChild(distance);
+    }
+    return false;
+  }
+
+  @Override
+  public void search(String query, int maxDistance, BiConsumer<String, T> consumer) {
+    Node<T> rootNode = root.get();
+    if (rootNode == null) {
+      return;
+    }
+    Deque<Node<T>> candidates = new ArrayDeque<>();
+    candidates.push(rootNode);
+    while (!candidates.isEmpty()) {
+      Node<T> node = candidates.pop();
+      Node<T>[] children = node.children;
+      // Beyond this bound neither the node nor any of its children can match
+      int bound = maxDistance + Math.max(0, children.length - 1);
+      int distance = Utils.editDistance(query, node.term, bound);
+      T value = node.value;
+      if (distance <= maxDistance && value != null) {
+        consumer.accept(node.term, value);
+      }
+      int from = Math.max(1, distance - maxDistance);
+      int to = Math.min(children.length - 1, distance + maxDistance);
+      for (int i = from; i <= to; i++) {
+        if (children[i] != null) {
+          candidates.push(children[i]);
+        }
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    return size.get();
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static class Node<T> {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final AtomicReferenceFieldUpdater<Node, Node[]> CHILDREN =
+        AtomicReferenceFieldUpdater.newUpdater(Node.class, Node[].class, "children");
+    private static final AtomicReferenceFieldUpdater<Node, Object> VALUE =
+        AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "value");
+
+    private final String term;
+    // null once the term is removed
+    private volatile T value;
+    private volatile Node<T>[] children = NO_CHILDREN;
+
+    Node(String term, T value) {
+      this.term = term;
+      this.value = value;
+    }
+
+    Node<T> getChild(int distance) {
+      Node<T>[] current = children;
+      return distance < current.length ? current[distance] : null;
+    }
+
+    boolean addChild(int distance, Node<T> child) {
+      while (true) {
+        Node<T>[] current = children;
+        if (distance < current.length && current[distance] != null) {
+          return false;
+        }
+        Node<T>[] next = Arrays.copyOf(current, Math.max(current.length, distance + 1));
+        next[distance] = child;
+        if (CHILDREN.compareAndSet(this, current, next)) {
+          return true;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package fuzzy.matching.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * An array indexed by dense int ids that grows in fixed size chunks, so growing
+ * it never copies the values already held.
+ * </p>
+ * Readers do not lock and see a value once its set has returned. Setting a
+ * value into a chunk that is already allocated does not lock either.
+ *
+ * @param <T> the type of value held at each index
+ */
+public class ChunkedArray<T> {
+
+  private static final int CHUNK_BITS = 10;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+  private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+
+  private volatile Object[][] chunks = new Object[1][];
+
+  /**
+   * Gets the value at the index.
+   *
+   * @param index the index, not negative
+   * @return the value, null if none was set
+   */
+  @SuppressWarnings("unchecked")
+  public T get(int index) {
+    Object[][] current = chunks;
+    int chunk = index >>> CHUNK_BITS;
+    if (chunk >= current.length || current[chunk] == null) {
+      return null;
+    }
+    return (T) VALUES.getAcquire(current[chunk], index & CHUNK_MASK);
+  }
+
+  /**
+   * Sets the value at the index.
+   *
+   * @param index the index, not negative
+   * @param value the value
+   */
+  public void set(int index, T value) {
+    VALUES.setRelease(getChunk(index >>> CHUNK_BITS), index & CHUNK_MASK, value);
+  }
+
+  private Object[] getChunk(int chunk) {
+    Object[][] current = chunks;
+    if (chunk < current.length && current[chunk] != null) {
+      return current[chunk];
+    }
+    synchronized (this) {
+      current = chunks;
+      if (chunk >= current.length || current[chunk] == null) {
+        // Readers may hold the current chunks, so they are replaced by a copy
+        Object[][] next = Arrays.copyOf(current, chunk < current.length
+            ? current.length : Math.max(chunk + 1, current.length * 2));
+        next[chunk] = new Object[CHUNK_SIZE];
+        chunks = next;
+        current = next;
+      }
+      return current[chunk];
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package fuzzy.matching.util;
+
+import java.util.function.BiConsumer;
+
+/**
+ * A dictionary of String terms, each holding a value, that can be searched for
+ * the terms within an edit distance of a query.
+ *
+ * @param <T> the type of value held against each term
+ */
+public interface FuzzyDictionary<T> {
+
+  /**
+   * Adds a term to the dictionary, replacing the value if the term is already
+   * present.
+   *
+   * @param term  the term to add
+   * @param value the value to hold against the term
+   */
+  void put(String term, T value);
+
+  /**
+   * Removes a term from the dictionary.
+   *
+   * @param term the term to remove
+   * @return true if the term was removed
+   */
+  boolean remove(String term);
+
+  /**
+   * Finds all the terms within the given edit distance of the query.
+   *
+   * @param query       the term to search for
+   * @param maxDistance the maximum edit distance, inclusive
+   * @param consumer    receives each matching term and its value
+   */
+  void search(String query, int maxDistance, BiConsumer<String, T> consumer);
+
+  int size();
+}
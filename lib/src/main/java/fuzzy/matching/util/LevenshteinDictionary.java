@@ -0,0 +1,220 @@
+package fuzzy.matching.util;
+
+import fuzzy.matching.exception.MatchException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.automaton.Automata;
+import org.apache.lucene.util.automaton.Automaton;
+import org.apache.lucene.util.automaton.CharacterRunAutomaton;
+import org.apache.lucene.util.automaton.LevenshteinAutomata;
+import org.apache.lucene.util.automaton.Transition;
+
+/**
+ * <p>
+ * A term dictionary held as a minimal acyclic automaton, searched by walking it
+ * in step with a Lucene LevenshteinAutomata built for the query.
+ * </p>
+ * Only the prefixes of the dictionary that can still end within the edit
+ * distance are visited, so the cost of a search does not grow with the size of
+ * the vocabulary, and allowing 2 edits or transpositions stays cheap.
+ * The automaton is immutable, terms added after it was built are kept aside and
+ * checked one by one until there are enough of them to rebuild it. Terms
+ * removed are skipped until there are enough of them to rebuild it as well.
+ * The dictionary is safe for concurrent use without locking, a writer that finds
+ * a rebuild running leaves its term aside for the next one.
+ *
+ * @param <T> the type of value held against each term
+ */
+public class LevenshteinDictionary<T> implements FuzzyDictionary<T> {
+
+  private static final int MIN_PENDING_TERMS = 64;
+  private static final int PENDING_TERMS_RATIO = 8;
+
+  private final boolean transpositions;
+  private final Map<String, Entry<T>> entries = new ConcurrentHashMap<>();
+  private final Queue<Entry<T>> pendingEntries = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+  private final AtomicInteger removedCount = new AtomicInteger();
+  private final AtomicBoolean building = new AtomicBoolean();
+  private volatile Snapshot snapshot = new Snapshot(null, 0, 0);
+
+  /**
+   * Constructor for LevenshteinDictionary.
+   *
+   * @param transpositions - if swapping 2 adjacent characters counts as a single
+   *                       edit
+   */
+  public LevenshteinDictionary(boolean transpositions) {
+    this.transpositions = transpositions;
+  }
+
+  @Override
+  public void put(String term, T value) {
+    Entry<T> entry = new Entry<>(term, value);
+    Entry<T> previous = entries.putIfAbsent(term, entry);
+    if (previous != null) {
+      previous.value = value;
+      return;
+    }
+    pendingEntries.add(entry);
+    if (pendingCount.incrementAndGet() > Math.max(MIN_PENDING_TERMS,
+        entries.size() / PENDING_TERMS_RATIO)) {
+      tryBuild();
+    }
+  }
+
+  @Override
+  public boolean remove(String term) {
+    Entry<T> entry = entries.remove(term);
+    if (entry == null) {
+      return false;
+    }
+    entry.value = null;
+    if (removedCount.incrementAndGet() > Math.max(MIN_PENDING_TERMS,
+        entries.size() / PENDING_TERMS_RATIO)) {
+      tryBuild();
+    }
+    return true;
+  }
+
+  @Override
+  public void search(String query, int maxDistance, BiConsumer<String, T> consumer) {
+    if (maxDistance > LevenshteinAutomata.MAXIMUM_SUPPORTED_DISTANCE) {
+      throw new MatchException("Edit distance not supported : " + maxDistance);
+    }
+    CharacterRunAutomaton levenshtein = new CharacterRunAutomaton(
+        new LevenshteinAutomata(query, transpositions).toAutomaton(maxDistance));
+
+    while (true) {
+      Snapshot current = snapshot;
+      List<Entry<T>> matches = new ArrayList<>();
+      if (current.automaton != null) {
+        intersect(current, levenshtein, 0, 0, new int[current.maxTermLength], 0,
+            new Transition(), matches);
+      }
+      for (Entry<T> entry : pendingEntries) {
+        // Terms of a newer automaton are still pending for this one
+        int generation = entry.generation;
+        if ((generation == 0 || generation > current.generation)
+            && levenshtein.run(entry.term)) {
+          matches.add(entry);
+        }
+      }
+      // A rebuild in the meantime may have taken terms out of the pending ones
+      if (snapshot == current) {
+        for (Entry<T> entry : matches) {
+          T value = entry.value;
+          if (value != null) {
+            consumer.accept(entry.term, value);
+          }
+        }
+        return;
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    return entries.size();
+  }
+
+  private void tryBuild() {
+    if (building.compareAndSet(false, true)) {
+      try {
+        build();
+      } finally {
+        building.set(false);
+      }
+    }
+  }
+
+  private void build() {
+    removedCount.set(0);
+    int generation = snapshot.generation + 1;
+    // The automaton builder needs the terms in unicode (UTF-8 byte) order
+    List<BytesRef> terms = new ArrayList<>(entries.size());
+    int maxTermLength = 0;
+    for (Entry<T> entry : entries.values()) {
+      terms.add(new BytesRef(entry.term));
+      maxTermLength = Math.max(maxTermLength, entry.term.codePointCount(0, entry.term.length()));
+      if (entry.generation == 0) {
+        entry.generation = generation;
+      }
+    }
+    terms.sort(null);
+    snapshot = new Snapshot(Automata.makeStringUnion(terms), maxTermLength, generation);
+
+    int removed = 0;
+    for (Iterator<Entry<T>> iterator = pendingEntries.iterator(); iterator.hasNext();) {
+      Entry<T> entry = iterator.next();
+      if (entry.generation != 0 || entry.value == null) {
+        iterator.remove();
+        removed++;
+      }
+    }
+    pendingCount.addAndGet(-removed);
+  }
+
+  private void intersect(Snapshot current, CharacterRunAutomaton levenshtein, int state,
+      int levenshteinState, int[] codePoints, int length, Transition transition,
+      List<Entry<T>> matches) {
+    Automaton automaton = current.automaton;
+    if (automaton.isAccept(state) && levenshtein.isAccept(levenshteinState)) {
+      // A term removed, or put back since, is no longer the one of this automaton
+      Entry<T> entry = entries.get(new String(codePoints, 0, length));
+      if (entry != null && entry.generation != 0 && entry.generation <= current.generation) {
+        matches.add(entry);
+      }
+    }
+    int count = automaton.getNumTransitions(state);
+    for (int i = 0; i < count; i++) {
+      automaton.getTransition(state, i, transition);
+      int dest = transition.dest;
+      for (int codePoint = transition.min; codePoint <= transition.max; codePoint++) {
+        int nextLevenshteinState = levenshtein.step(levenshteinState, codePoint);
+        if (nextLevenshteinState == -1) {
+          continue;
+        }
+        codePoints[length] = codePoint;
+        intersect(current, levenshtein, dest, nextLevenshteinState, codePoints, length + 1,
+            transition, matches);
+        // the recursive call reuses the transition
+        automaton.getTransition(state, i, transition);
+      }
+    }
+  }
+
+  private static class Entry<T> {
+    private final String term;
+    // null once the term is removed
+    private volatile T value;
+    // The first automaton holding the term, 0 while it is only pending
+    private volatile int generation;
+
+    Entry(String term, T value) {
+      this.term = term;
+      this.value = value;
+    }
+  }
+
+  private static class Snapshot {
+    private final Automaton automaton;
+    private final int maxTermLength;
+    private final int generation;
+
+    Snapshot(Automaton automaton, int maxTermLength, int generation) {
+      this.automaton = automaton;
+      this.maxTermLength = maxTermLength;
+      this.generation = generation;
+    }
+  }
+}
@@ -0,0 +1,550 @@
+package fuzzy.matching.util;
+
+import fuzzy.matching.exception.MatchException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>
+ * An index of int values by primitive long keys, answering inclusive range
+ * queries without boxing the keys or the values.
+ * </p>
+ * Entries are kept in sorted key arrays with parallel value arrays. New entries
+ * go to a small buffer, which is sorted and merged into runs whose sizes double
+ * from one level to the next, so adding an entry costs O(log n) amortized, and
+ * a range query is a binary search in each of the O(log n) runs.
+ * An entry removed is masked by a small sorted array of removed entries, until
+ * there are enough of them for the runs to be merged into one without them.
+ * The index is safe for concurrent use. Writers claim buffer slots with an
+ * atomic counter, and the writer of the last slot merges the full buffer into
+ * new runs, which are published at once, so readers never lock. Removals, and
+ * the merges of the runs, are serialized on the index.
+ */
+public class LongRangeIndex {
+
+  private static final int BUFFER_SIZE = 64;
+  private static final int MAX_REMOVED = 4096;
+  private static final int REMOVED_RATIO = 8;
+  private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(int[].class);
+
+  private volatile State state = new State(new long[0][], new int[0][]);
+  private volatile Removed removed = new Removed(new int[0], new long[0]);
+  private final AtomicInteger size = new AtomicInteger();
+
+  /**
+   * Adds a value against a key. A key can hold any number of values.
+   *
+   * @param key   the key
+   * @param value the value, not negative
+   */
+  public void add(long key, int value) {
+    if (value < 0) {
+      throw new MatchException("Value can not be negative : " + value);
+    }
+    if (removed.contains(key, value) && unmask(key, value)) {
+      return;
+    }
+    while (true) {
+      State current = state;
+      int slot = current.claimed.getAndIncrement();
+      if (slot < BUFFER_SIZE) {
+        current.bufferKeys[slot] = key;
+        // A value marks the slot as written, so it is set after the key. It is held
+        // complemented, as a slot not yet written reads 0
+        VALUES.setRelease(current.bufferValues, slot, ~value);
+        size.incrementAndGet();
+        if (slot == BUFFER_SIZE - 1) {
+          flush(current);
+        }
+        return;
+      }
+      // The buffer is full, the writer of its last slot is replacing it
+      while (state == current) {
+        Thread.onSpinWait();
+      }
+    }
+  }
+
+  /**
+   * Removes a value held against a key.
+   *
+   * @param key   the key
+   * @param value the value
+   * @return true if the value was removed
+   */
+  public synchronized boolean remove(long key, int value) {
+    Removed current = removed;
+    if (current.contains(key, value)) {
+      return false;
+    }
+    boolean[] found = new boolean[1];
+    forEachEntryInRange(state, key, key, (entryKey, entryValue) -> {
+      found[0] |= entryValue == value;
+    });
+    if (!found[0]) {
+      return false;
+    }
+    removed = current.with(key, value);
+    int live = size.decrementAndGet();
+    // Masks are copied on each removal, and looked up for every entry given
+    if (removed.values.length > Math.min(MAX_REMOVED, Math.max(BUFFER_SIZE, live / REMOVED_RATIO))) {
+      compact();
+    }
+    return true;
+  }
+
+  /**
+   * Gives every value with a key in the range, bounds included.
+   *
+   * @param from     the lower key
+   * @param to       the higher key
+   * @param consumer receives each value in range
+   */
+  public void forEachInRange(long from, long to, IntConsumer consumer) {
+    if (from > to) {
+      return;
+    }
+    Removed currentRemoved = removed;
+    if (currentRemoved.values.length > 0) {
+      forEachEntryInRange(state, from, to, (key, value) -> {
+        if (!currentRemoved.contains(key, value)) {
+          consumer.accept(value);
+        }
+      });
+      return;
+    }
+    State current = state;
+    int buffered = Math.min(current.claimed.get(), BUFFER_SIZE);
+    for (int i = 0; i < buffered; i++) {
+      int value = (int) VALUES.getAcquire(current.bufferValues, i);
+      if (value != 0 && current.bufferKeys[i] >= from && current.bufferKeys[i] <= to) {
+        consumer.accept(~value);
+      }
+    }
+    for (int run = 0; run < current.runKeys.length; run++) {
+      long[] keys = current.runKeys[run];
+      if (keys == null) {
+        continue;
+      }
+      int[] values = current.runValues[run];
+      for (int i = lowerBound(keys, from); i < keys.length && keys[i] <= to; i++) {
+        consumer.accept(values[i]);
+      }
+    }
+  }
+
+  /**
+   * Gives every entry with a key in the range, bounds included, in no
+   * particular order.
+   *
+   * @param from     the lower key
+   * @param to       the higher key
+   * @param consumer receives each key and value in range
+   */
+  public void forEachEntryInRange(long from, long to, EntryConsumer consumer) {
+    if (from > to) {
+      return;
+    }
+    Removed currentRemoved = removed;
+    if (currentRemoved.values.length == 0) {
+      forEachEntryInRange(state, from, to, consumer);
+      return;
+    }
+    forEachEntryInRange(state, from, to, (key, value) -> {
+      if (!currentRemoved.contains(key, value)) {
+        consumer.accept(key, value);
+      }
+    });
+  }
+
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * Gives every entry in ascending key order.
+   *
+   * @param consumer receives each key and value
+   */
+  public void forEach(EntryConsumer consumer) {
+    // Read first, as a merge publishes its runs before taking their entries out of it
+    Removed currentRemoved = removed;
+    State current = state;
+    int buffered = Math.min(current.claimed.get(), BUFFER_SIZE);
+    int count = 0;
+    long[] bufferKeys = new long[buffered];
+    int[] bufferValues = new int[buffered];
+    for (int i = 0; i < buffered; i++) {
+      int value = (int) VALUES.getAcquire(current.bufferValues, i);
+      if (value != 0) {
+        bufferKeys[count] = current.bufferKeys[i];
+        bufferValues[count++] = ~value;
+      }
+    }
+    long[][] keys = Arrays.copyOf(current.runKeys, current.runKeys.length + 1);
+    int[][] values = Arrays.copyOf(current.runValues, current.runValues.length + 1);
+    keys[keys.length - 1] = Arrays.copyOf(bufferKeys, count);
+    values[values.length - 1] = Arrays.copyOf(bufferValues, count);
+    sort(keys[keys.length - 1], values[values.length - 1]);
+
+    int[] positions = new int[keys.length];
+    while (true) {
+      int min = -1;
+      for (int run = 0; run < keys.length; run++) {
+        if (keys[run] != null && positions[run] < keys[run].length
+            && (min == -1 || keys[run][positions[run]] < keys[min][positions[min]])) {
+          min = run;
+        }
+      }
+      if (min == -1) {
+        return;
+      }
+      long key = keys[min][positions[min]];
+      int value = values[min][positions[min]++];
+      if (!currentRemoved.contains(key, value)) {
+        consumer.accept(key, value);
+      }
+    }
+  }
+
+  /**
+   * Writes the entries as their count and key, value pairs.
+   *
+   * @param writer the snapshot being written
+   * @throws IOException if the snapshot can not be written
+   */
+  public void writeTo(SnapshotWriter writer) throws IOException {
+    // Read first, as a merge publishes its runs before taking their entries out of it
+    Removed currentRemoved = removed;
+    State current = state;
+    int[] count = new int[1];
+    forEachEntry(current, (key, value) -> {
+      if (!currentRemoved.contains(key, value)) {
+        count[0]++;
+      }
+    });
+    writer.writeVarInt(count[0]);
+    IOException[] failure = new IOException[1];
+    forEachEntry(current, (key, value) -> {
+      try {
+        if (failure[0] == null && !currentRemoved.contains(key, value)) {
+          writer.writeLong(key);
+          writer.writeVarInt(value);
+        }
+      } catch (IOException e) {
+        failure[0] = e;
+      }
+    });
+    if (failure[0] != null) {
+      throw failure[0];
+    }
+  }
+
+  /**
+   * Adds the entries written by writeTo.
+   *
+   * @param reader the snapshot being read
+   * @throws IOException if the snapshot can not be read
+   */
+  public void readFrom(SnapshotReader reader) throws IOException {
+    int count = reader.readVarInt();
+    for (int i = 0; i < count; i++) {
+      add(reader.readLong(), reader.readVarInt());
+    }
+  }
+
+  /**
+   * Maps a double to a long with the same ordering, as given by
+   * Double.compare, so double keys can be held in this index.
+   *
+   * @param value the double value
+   * @return the sortable long key
+   */
+  public static long toSortableLong(double value) {
+    long bits = Double.doubleToLongBits(value);
+    return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+  }
+
+  /**
+   * Receives an entry of the index.
+   */
+  @FunctionalInterface
+  public interface EntryConsumer {
+
+    void accept(long key, int value);
+  }
+
+  /**
+   * Takes an entry removed but not yet merged away out of the removed ones,
+   * instead of adding it again.
+   */
+  private synchronized boolean unmask(long key, int value) {
+    Removed current = removed;
+    int position = current.indexOf(key, value);
+    if (position < 0) {
+      return false;
+    }
+    boolean[] dropped = new boolean[current.values.length];
+    dropped[position] = true;
+    removed = current.without(dropped);
+    size.incrementAndGet();
+    return true;
+  }
+
+  private synchronized void flush(State current) {
+    // Writers of the other slots may still be setting them
+    for (int i = 0; i < BUFFER_SIZE; i++) {
+      while ((int) VALUES.getAcquire(current.bufferValues, i) == 0) {
+        Thread.onSpinWait();
+      }
+    }
+    long[] keys = current.bufferKeys.clone();
+    int[] values = new int[BUFFER_SIZE];
+    for (int i = 0; i < BUFFER_SIZE; i++) {
+      values[i] = ~current.bufferValues[i];
+    }
+    sort(keys, values);
+
+    // The runs may have been compacted since the slots were claimed, sharing the buffer
+    State latest = state;
+    long[][] runKeys = latest.runKeys.clone();
+    int[][] runValues = latest.runValues.clone();
+    for (int run = 0;; run++) {
+      if (run == runKeys.length) {
+        runKeys = Arrays.copyOf(runKeys, run + 1);
+        runValues = Arrays.copyOf(runValues, run + 1);
+      }
+      if (runKeys[run] == null) {
+        runKeys[run] = keys;
+        runValues[run] = values;
+        break;
+      }
+      // Carry the merged entries to the next run, as a binary counter does
+      long[] mergedKeys = new long[runKeys[run].length + keys.length];
+      int[] mergedValues = new int[mergedKeys.length];
+      merge(runKeys[run], runValues[run], keys, values, mergedKeys, mergedValues);
+      runKeys[run] = null;
+      runValues[run] = null;
+      keys = mergedKeys;
+      values = mergedValues;
+    }
+    state = new State(runKeys, runValues);
+  }
+
+  /**
+   * Merges the runs into a single one without the removed entries, sharing the
+   * buffer with the current state. The removed entries still in the buffer stay
+   * masked.
+   */
+  private void compact() {
+    State current = state;
+    Removed currentRemoved = removed;
+    boolean[] matched = new boolean[currentRemoved.values.length];
+    long[] keys = new long[0];
+    int[] values = new int[0];
+    for (int run = 0; run < current.runKeys.length; run++) {
+      long[] runKeys = current.runKeys[run];
+      if (runKeys == null) {
+        continue;
+      }
+      long[] keptKeys = new long[runKeys.length];
+      int[] keptValues = new int[runKeys.length];
+      int kept = 0;
+      for (int i = 0; i < runKeys.length; i++) {
+        int position = currentRemoved.indexOf(runKeys[i], current.runValues[run][i]);
+        if (position >= 0) {
+          matched[position] = true;
+        } else {
+          keptKeys[kept] = runKeys[i];
+          keptValues[kept++] = current.runValues[run][i];
+        }
+      }
+      long[] mergedKeys = new long[keys.length + kept];
+      int[] mergedValues = new int[mergedKeys.length];
+      merge(keys, values, Arrays.copyOf(keptKeys, kept), Arrays.copyOf(keptValues, kept),
+          mergedKeys, mergedValues);
+      keys = mergedKeys;
+      values = mergedValues;
+    }
+    state = new State(new long[][] { keys }, new int[][] { values }, current);
+    removed = currentRemoved.without(matched);
+  }
+
+  /**
+   * Gives every entry of the state, removed or not, in no particular order.
+   */
+  private static void forEachEntry(State current, EntryConsumer consumer) {
+    forEachEntryInRange(current, Long.MIN_VALUE, Long.MAX_VALUE, consumer);
+  }
+
+  /**
+   * Gives every entry of the state with a key in the range, removed or not, in
+   * no particular order.
+   */
+  private static void forEachEntryInRange(State current, long from, long to,
+      EntryConsumer consumer) {
+    int buffered = Math.min(current.claimed.get(), BUFFER_SIZE);
+    for (int i = 0; i < buffered; i++) {
+      int value = (int) VALUES.getAcquire(current.bufferValues, i);
+      if (value != 0 && current.bufferKeys[i] >= from && current.bufferKeys[i] <= to) {
+        consumer.accept(current.bufferKeys[i], ~value);
+      }
+    }
+    for (int run = 0; run < current.runKeys.length; run++) {
+      long[] keys = current.runKeys[run];
+      if (keys == null) {
+        continue;
+      }
+      int[] values = current.runValues[run];
+      for (int i = lowerBound(keys, from); i < keys.length && keys[i] <= to; i++) {
+        consumer.accept(keys[i], values[i]);
+      }
+    }
+  }
+
+  private static void sort(long[] keys, int[] values) {
+    for (int i = 1; i < keys.length; i++) {
+      long key = keys[i];
+      int value = values[i];
+      int j = i - 1;
+      while (j >= 0 && keys[j] > key) {
+        keys[j + 1] = keys[j];
+        values[j + 1] = values[j];
+        j--;
+      }
+      keys[j + 1] = key;
+      values[j + 1] = value;
+    }
+  }
+
+  private static void merge(long[] keys1, int[] values1, long[] keys2, int[] values2,
+      long[] keys, int[] values) {
+    int i = 0;
+    int j = 0;
+    for (int k = 0; k < keys.length; k++) {
+      if (j == keys2.length || (i < keys1.length && keys1[i] <= keys2[j])) {
+        keys[k] = keys1[i];
+        values[k] = values1[i++];
+      } else {
+        keys[k] = keys2[j];
+        values[k] = values2[j++];
+      }
+    }
+  }
+
+  private static int lowerBound(long[] keys, long key) {
+    int low = 0;
+    int high = keys.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (keys[mid] < key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * The sorted runs, and the buffer of entries added since they were merged.
+   * Runs are never changed once published.
+   */
+  private static class State {
+    private final long[][] runKeys;
+    private final int[][] runValues;
+    private final long[] bufferKeys;
+    private final int[] bufferValues;
+    private final AtomicInteger claimed;
+
+    State(long[][] runKeys, int[][] runValues) {
+      this.runKeys = runKeys;
+      this.runValues = runValues;
+      this.bufferKeys = new long[BUFFER_SIZE];
+      this.bufferValues = new int[BUFFER_SIZE];
+      this.claimed = new AtomicInteger();
+    }
+
+    /**
+     * Constructor for State, with new runs and the buffer of another state.
+     *
+     * @param runKeys   - the keys of the runs
+     * @param runValues - the values of the runs
+     * @param buffered  - the state whose buffer is shared
+     */
+    State(long[][] runKeys, int[][] runValues, State buffered) {
+      this.runKeys = runKeys;
+      this.runValues = runValues;
+      this.bufferKeys = buffered.bufferKeys;
+      this.bufferValues = buffered.bufferValues;
+      this.claimed = buffered.claimed;
+    }
+  }
+
+  /**
+   * The removed entries, sorted by value then key. Never changed once published.
+   */
+  private static class Removed {
+    private final int[] values;
+    private final long[] keys;
+
+    Removed(int[] values, long[] keys) {
+      this.values = values;
+      this.keys = keys;
+    }
+
+    boolean contains(long key, int value) {
+      return values.length > 0 && indexOf(key, value) >= 0;
+    }
+
+    int indexOf(long key, int value) {
+      int position = insertionPoint(key, value);
+      return position < values.length && values[position] == value && keys[position] == key
+          ? position : -1;
+    }
+
+    Removed with(long key, int value) {
+      int position = insertionPoint(key, value);
+      int[] nextValues = new int[values.length + 1];
+      long[] nextKeys = new long[keys.length + 1];
+      System.arraycopy(values, 0, nextValues, 0, position);
+      System.arraycopy(keys, 0, nextKeys, 0, position);
+      nextValues[position] = value;
+      nextKeys[position] = key;
+      System.arraycopy(values, position, nextValues, position + 1, values.length - position);
+      System.arraycopy(keys, position, nextKeys, position + 1, keys.length - position);
+      return new Removed(nextValues, nextKeys);
+    }
+
+    Removed without(boolean[] dropped) {
+      int[] nextValues = new int[values.length];
+      long[] nextKeys = new long[keys.length];
+      int count = 0;
+      for (int i = 0; i < values.length; i++) {
+        if (!dropped[i]) {
+          nextValues[count] = values[i];
+          nextKeys[count++] = keys[i];
+        }
+      }
+      return new Removed(Arrays.copyOf(nextValues, count), Arrays.copyOf(nextKeys, count));
+    }
+
+    private int insertionPoint(long key, int value) {
+      int low = 0;
+      int high = values.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (values[mid] < value || (values[mid] == value && keys[mid] < key)) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+}
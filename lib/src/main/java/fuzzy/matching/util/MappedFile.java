@@ -0,0 +1,259 @@
+package fuzzy.matching.util;
+
+import fuzzy.matching.domain.GeoPoint;
+import fuzzy.matching.exception.MatchException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * <p>
+ * A read-only file mapped in memory with FileChannel.map, read in place at long
+ * positions.
+ * </p>
+ * A single mapping can not exceed 2 GB, so the file is mapped in chunks of 1 GB
+ * and a value straddling 2 chunks is read byte by byte. The mapping shares the
+ * page cache of the operating system, so processes mapping the same file share
+ * its memory. Reads do not change any state, and are safe from any number of
+ * threads.
+ */
+public class MappedFile {
+
+  private static final int CHUNK_BITS = 30;
+  private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+  private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private final MappedByteBuffer[] chunks;
+  private final long size;
+
+  private MappedFile(MappedByteBuffer[] chunks, long size) {
+    this.chunks = chunks;
+    this.size = size;
+  }
+
+  /**
+   * Maps the whole file, read-only.
+   *
+   * @param path the file to map
+   * @return MappedFile
+   */
+  public static MappedFile open(Path path) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_BITS)];
+      for (int i = 0; i < chunks.length; i++) {
+        long position = i * CHUNK_SIZE;
+        chunks[i] = channel.map(
+            FileChannel.MapMode.READ_ONLY, position, Math.min(CHUNK_SIZE, size - position));
+      }
+      return new MappedFile(chunks, size);
+    } catch (IOException e) {
+      throw new MatchException("Failure in mapping the file : " + path, e);
+    }
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public byte getByte(long position) {
+    return chunks[(int) (position >>> CHUNK_BITS)].get((int) (position & CHUNK_MASK));
+  }
+
+  /**
+   * Reads a big-endian int at the position.
+   *
+   * @param position the position in the file
+   * @return the int
+   */
+  public int getInt(long position) {
+    int offset = (int) (position & CHUNK_MASK);
+    if (offset + Integer.BYTES <= CHUNK_SIZE) {
+      return chunks[(int) (position >>> CHUNK_BITS)].getInt(offset);
+    }
+    return (int) getBytes(position, Integer.BYTES);
+  }
+
+  /**
+   * Reads a big-endian long at the position.
+   *
+   * @param position the position in the file
+   * @return the long
+   */
+  public long getLong(long position) {
+    int offset = (int) (position & CHUNK_MASK);
+    if (offset + Long.BYTES <= CHUNK_SIZE) {
+      return chunks[(int) (position >>> CHUNK_BITS)].getLong(offset);
+    }
+    return getBytes(position, Long.BYTES);
+  }
+
+  /**
+   * Compares the bytes at the position with the key, as unsigned bytes.
+   *
+   * @param position the position in the file
+   * @param length   the number of bytes at the position
+   * @param key      the key to compare with
+   * @return a negative int, 0 or a positive int as the bytes are lower than,
+   *         equal to or higher than the key
+   */
+  public int compare(long position, int length, byte[] key) {
+    int common = Math.min(length, key.length);
+    for (int i = 0; i < common; i++) {
+      int difference = (getByte(position + i) & 0xFF) - (key[i] & 0xFF);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return length - key.length;
+  }
+
+  /**
+   * Starts reading sequentially at the position.
+   *
+   * @param position the position in the file
+   * @return Cursor
+   */
+  public Cursor cursor(long position) {
+    return new Cursor(position);
+  }
+
+  private long getBytes(long position, int count) {
+    long value = 0;
+    for (int i = 0; i < count; i++) {
+      value = (value << 8) | (getByte(position + i) & 0xFF);
+    }
+    return value;
+  }
+
+  /**
+   * Reads values in sequence, in the formats written by SnapshotWriter.
+   */
+  public class Cursor {
+    private long position;
+
+    Cursor(long position) {
+      this.position = position;
+    }
+
+    public long getPosition() {
+      return position;
+    }
+
+    public byte readByte() {
+      return getByte(position++);
+    }
+
+    public boolean readBoolean() {
+      return readByte() != 0;
+    }
+
+    /**
+     * Reads a big-endian int.
+     *
+     * @return the int
+     */
+    public int readInt() {
+      int value = getInt(position);
+      position += Integer.BYTES;
+      return value;
+    }
+
+    /**
+     * Reads a big-endian long.
+     *
+     * @return the long
+     */
+    public long readLong() {
+      long value = getLong(position);
+      position += Long.BYTES;
+      return value;
+    }
+
+    public double readDouble() {
+      return Double.longBitsToDouble(readLong());
+    }
+
+    /**
+     * Reads an int written by SnapshotWriter.writeVarInt.
+     *
+     * @return the int
+     */
+    public int readVarInt() {
+      int value = 0;
+      int shift = 0;
+      byte next;
+      do {
+        next = readByte();
+        value |= (next & 0x7F) << shift;
+        shift += 7;
+      } while (next < 0);
+      return value;
+    }
+
+    /**
+     * Reads bytes into a new array.
+     *
+     * @param length the number of bytes
+     * @return the bytes
+     */
+    public byte[] readBytes(int length) {
+      byte[] bytes = new byte[length];
+      for (int i = 0; i < length; i++) {
+        bytes[i] = readByte();
+      }
+      return bytes;
+    }
+
+    /**
+     * Reads a String written by SnapshotWriter.writeString.
+     *
+     * @return the String, can be null
+     */
+    public String readString() {
+      int length = readVarInt() - 1;
+      return length < 0 ? null : new String(readBytes(length), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a value written by SnapshotWriter.writeValue.
+     *
+     * @return the value, can be null
+     */
+    public Object readValue() {
+      byte type = readByte();
+      switch (type) {
+        case SnapshotWriter.NULL:
+          return null;
+        case SnapshotWriter.STRING:
+          return readString();
+        case SnapshotWriter.INTEGER:
+          return readInt();
+        case SnapshotWriter.LONG:
+          return readLong();
+        case SnapshotWriter.DOUBLE:
+          return readDouble();
+        case SnapshotWriter.FLOAT:
+          return Float.intBitsToFloat(readInt());
+        case SnapshotWriter.DATE:
+          return new Date(readLong());
+        case SnapshotWriter.BOOLEAN:
+          return readBoolean();
+        case SnapshotWriter.GEO_POINT:
+          return new GeoPoint(readDouble(), readDouble());
+        case SnapshotWriter.LOCAL_DATE:
+          return LocalDate.ofEpochDay(readLong());
+        case SnapshotWriter.INSTANT:
+          return Instant.ofEpochSecond(readLong(), readInt());
+        default:
+          throw new MatchException("Snapshot value type not supported : " + type);
+      }
+    }
+  }
+}
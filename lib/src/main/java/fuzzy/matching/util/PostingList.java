@@ -0,0 +1,732 @@
+package fuzzy.matching.util;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>
+ * A list of distinct, not negative int ordinals, given in ascending order.
+ * </p>
+ * A list of up to 128 ordinals is held as a sorted int array. A longer one is
+ * held in a compressed body, chosen per list as whichever is smaller of:
+ * <ul>
+ * <li>delta blocks - blocks of 128 ordinals, each a first ordinal followed by
+ * the varint encoded gaps to the next ones, best for sparse lists.</li>
+ * <li>bitmap - roaring style containers over each range of 65536 ordinals, a
+ * sorted array of the low 16 bits up to 4096 ordinals and a bitmap above it,
+ * best for dense lists.</li>
+ * </ul>
+ * New ordinals go to a sorted buffer of up to 128 ordinals. Once full, the ones
+ * above the body are appended to it, ordinals are mostly added in ascending
+ * order. The body is rebuilt, and its form chosen again, when it has doubled in
+ * size or too many ordinals arrive out of order.
+ * An ordinal removed from the buffer is taken out of a copy of it. One removed
+ * from the body is masked by a small sorted array, until there are enough of
+ * them for the body to be rebuilt without them.
+ * Writers are serialized on the list, readers do not lock and see every ordinal
+ * added before they started.
+ */
+public class PostingList {
+
+  private static final int BUFFER_CAPACITY = 128;
+  private static final int INITIAL_CAPACITY = 4;
+  private static final int NO_MORE = -1;
+  private static final int MAX_REMOVED = 4096;
+  private static final int REMOVED_RATIO = 8;
+  private static final int[] NO_ORDINALS = new int[0];
+
+  private volatile State state =
+      new State(null, NO_MORE, new int[INITIAL_CAPACITY], 0, NO_ORDINALS);
+  // The body size when its form was last chosen, only used by writers
+  private int chosenAtSize;
+
+  /**
+   * Adds an ordinal to the list, if not already present.
+   *
+   * @param ordinal the ordinal to add, not negative
+   * @return true if the ordinal was added
+   */
+  public synchronized boolean add(int ordinal) {
+    State current = state;
+    if (ordinal <= current.bodyMax && current.body.contains(ordinal)) {
+      int removedPosition = Arrays.binarySearch(current.removed, ordinal);
+      if (removedPosition < 0) {
+        return false;
+      }
+      // Added back to the body, it is no longer masked
+      state = new State(current.body, current.bodyMax, current.buffer, current.bufferSize,
+          without(current.removed, removedPosition));
+      return true;
+    }
+    int count = current.bufferSize;
+    int position = Arrays.binarySearch(current.buffer, 0, count, ordinal);
+    if (position >= 0) {
+      return false;
+    }
+    if (count == BUFFER_CAPACITY) {
+      current = flush(current);
+      count = current.bufferSize;
+      position = Arrays.binarySearch(current.buffer, 0, count, ordinal);
+    }
+    position = -position - 1;
+    int[] buffer = current.buffer;
+    if (count == buffer.length || position < count) {
+      // Readers may be iterating the buffer, so it is never shifted in place
+      int[] next = new int[count == buffer.length
+          ? Math.min(count * 2, BUFFER_CAPACITY) : buffer.length];
+      System.arraycopy(buffer, 0, next, 0, position);
+      System.arraycopy(buffer, position, next, position + 1, count - position);
+      next[position] = ordinal;
+      state = new State(current.body, current.bodyMax, next, count + 1, current.removed);
+    } else {
+      buffer[position] = ordinal;
+      current.bufferSize = count + 1;
+    }
+    return true;
+  }
+
+  /**
+   * Removes an ordinal from the list, if present.
+   *
+   * @param ordinal the ordinal to remove
+   * @return true if the ordinal was removed
+   */
+  public synchronized boolean remove(int ordinal) {
+    State current = state;
+    int count = current.bufferSize;
+    int position = Arrays.binarySearch(current.buffer, 0, count, ordinal);
+    if (position >= 0) {
+      // Readers may be iterating the buffer, so it is never shifted in place
+      int[] next = new int[current.buffer.length];
+      System.arraycopy(current.buffer, 0, next, 0, position);
+      System.arraycopy(current.buffer, position + 1, next, position, count - position - 1);
+      state = new State(current.body, current.bodyMax, next, count - 1, current.removed);
+      return true;
+    }
+    if (ordinal > current.bodyMax || !current.body.contains(ordinal)) {
+      return false;
+    }
+    int removedPosition = Arrays.binarySearch(current.removed, ordinal);
+    if (removedPosition >= 0) {
+      return false;
+    }
+    removedPosition = -removedPosition - 1;
+    int[] removed = new int[current.removed.length + 1];
+    System.arraycopy(current.removed, 0, removed, 0, removedPosition);
+    System.arraycopy(current.removed, removedPosition, removed, removedPosition + 1,
+        current.removed.length - removedPosition);
+    removed[removedPosition] = ordinal;
+    State next = new State(current.body, current.bodyMax, current.buffer, count, removed);
+    // Masks are copied on each removal, and read past by every cursor of the body
+    if (removed.length > Math.min(MAX_REMOVED,
+        Math.max(BUFFER_CAPACITY, next.bodySize / REMOVED_RATIO))) {
+      next = rebuild(next);
+    }
+    state = next;
+    return true;
+  }
+
+  /**
+   * Gives every ordinal in ascending order.
+   *
+   * @param consumer receives each ordinal
+   */
+  public void forEach(IntConsumer consumer) {
+    Cursor cursor = state.cursor();
+    for (int ordinal = cursor.next(); ordinal != NO_MORE; ordinal = cursor.next()) {
+      consumer.accept(ordinal);
+    }
+  }
+
+  /**
+   * Gives every ordinal held in any of the lists once, in ascending order.
+   *
+   * @param postingLists the lists to be merged
+   * @param consumer     receives each ordinal
+   */
+  public static void union(List<PostingList> postingLists, IntConsumer consumer) {
+    if (postingLists.size() == 1) {
+      postingLists.get(0).forEach(consumer);
+      return;
+    }
+    Cursor[] cursors = new Cursor[postingLists.size()];
+    int[] heads = new int[cursors.length];
+    for (int i = 0; i < cursors.length; i++) {
+      cursors[i] = postingLists.get(i).state.cursor();
+      heads[i] = cursors[i].next();
+    }
+    while (true) {
+      int min = NO_MORE;
+      for (int head : heads) {
+        if (head != NO_MORE && (min == NO_MORE || head < min)) {
+          min = head;
+        }
+      }
+      if (min == NO_MORE) {
+        return;
+      }
+      consumer.accept(min);
+      for (int i = 0; i < heads.length; i++) {
+        if (heads[i] == min) {
+          heads[i] = cursors[i].next();
+        }
+      }
+    }
+  }
+
+  public boolean contains(int ordinal) {
+    State current = state;
+    return (ordinal <= current.bodyMax && current.body.contains(ordinal)
+        && Arrays.binarySearch(current.removed, ordinal) < 0)
+        || Arrays.binarySearch(current.buffer, 0, current.bufferSize, ordinal) >= 0;
+  }
+
+  public int size() {
+    State current = state;
+    return current.bodySize + current.bufferSize;
+  }
+
+  /**
+   * Estimates the heap held by the list, in bytes.
+   *
+   * @return estimated size in bytes
+   */
+  public long getSizeInBytes() {
+    State current = state;
+    long size = 16 + 40 + 16 + 4L * current.buffer.length + 16 + 4L * current.removed.length;
+    return current.body != null ? size + current.body.getSizeInBytes() : size;
+  }
+
+  /**
+   * Writes the ordinals as their count and the gaps between them.
+   *
+   * @param writer the snapshot being written
+   * @throws IOException if the snapshot can not be written
+   */
+  public void writeTo(SnapshotWriter writer) throws IOException {
+    int[] ordinals = merge(state);
+    writer.writeVarInt(ordinals.length);
+    int previous = NO_MORE;
+    for (int ordinal : ordinals) {
+      writer.writeVarInt(ordinal - previous);
+      previous = ordinal;
+    }
+  }
+
+  /**
+   * Adds the ordinals written by writeTo.
+   *
+   * @param reader the snapshot being read
+   * @throws IOException if the snapshot can not be read
+   */
+  public void readFrom(SnapshotReader reader) throws IOException {
+    int count = reader.readVarInt();
+    int ordinal = NO_MORE;
+    for (int i = 0; i < count; i++) {
+      ordinal += reader.readVarInt();
+      add(ordinal);
+    }
+  }
+
+  private State flush(State current) {
+    Body body = current.body;
+    int[] buffer = current.buffer;
+    int count = current.bufferSize;
+    // The buffer is sorted, the ordinals before split are out of order for the body
+    int split = 0;
+    while (split < count && buffer[split] <= current.bodyMax) {
+      split++;
+    }
+    if (body == null || split > BUFFER_CAPACITY / 2 || body.size() >= 2 * chosenAtSize) {
+      State next = rebuild(current);
+      state = next;
+      return next;
+    }
+    for (int i = split; i < count; i++) {
+      body.append(buffer[i]);
+    }
+    int[] remaining = new int[Math.min(Math.max(INITIAL_CAPACITY, split * 2), BUFFER_CAPACITY)];
+    System.arraycopy(buffer, 0, remaining, 0, split);
+    State next = new State(body, body.getMax(), remaining, split, current.removed);
+    state = next;
+    return next;
+  }
+
+  /**
+   * Builds a new body of all the ordinals of the state, choosing its form again,
+   * with an empty buffer and no masked ordinal.
+   */
+  private State rebuild(State current) {
+    int[] ordinals = merge(current);
+    Body body = ordinals.length > 0 && isBitmapSmaller(ordinals)
+        ? new BitmapBody() : new DeltaBlockBody();
+    for (int ordinal : ordinals) {
+      body.append(ordinal);
+    }
+    chosenAtSize = ordinals.length;
+    return new State(body, body.getMax(), new int[INITIAL_CAPACITY], 0, NO_ORDINALS);
+  }
+
+  private static int[] without(int[] ordinals, int position) {
+    int[] next = new int[ordinals.length - 1];
+    System.arraycopy(ordinals, 0, next, 0, position);
+    System.arraycopy(ordinals, position + 1, next, position, next.length - position);
+    return next;
+  }
+
+  private static int[] merge(State current) {
+    int[] ordinals = new int[current.bodySize + current.bufferSize];
+    Cursor cursor = current.cursor();
+    for (int i = 0; i < ordinals.length; i++) {
+      ordinals[i] = cursor.next();
+    }
+    return ordinals;
+  }
+
+  private static boolean isBitmapSmaller(int[] ordinals) {
+    long deltaBlockBytes = 8L * (ordinals.length / DeltaBlockBody.BLOCK_SIZE + 1);
+    long bitmapBytes = 0;
+    int containerCardinality = 0;
+    for (int i = 0; i < ordinals.length; i++) {
+      deltaBlockBytes += i % DeltaBlockBody.BLOCK_SIZE == 0
+          ? 0 : varIntLength(ordinals[i] - ordinals[i - 1]);
+      containerCardinality++;
+      if (i == ordinals.length - 1 || (ordinals[i] >>> 16) != (ordinals[i + 1] >>> 16)) {
+        bitmapBytes += BitmapBody.CONTAINER_OVERHEAD
+            + Math.min(2L * containerCardinality, BitmapBody.BITMAP_BYTES);
+        containerCardinality = 0;
+      }
+    }
+    return bitmapBytes < deltaBlockBytes;
+  }
+
+  private static int varIntLength(int value) {
+    return (38 - Integer.numberOfLeadingZeros(value)) / 7;
+  }
+
+  /**
+   * A published view of the list. The body, bodyMax and the removed ordinals
+   * masked in the body are fixed, the body only ever grows above bodyMax, and
+   * ordinals are added in place to the buffer behind its size.
+   */
+  private static class State {
+    private final Body body;
+    private final int bodyMax;
+    private final int bodySize;
+    private final int[] buffer;
+    private volatile int bufferSize;
+    private final int[] removed;
+
+    State(Body body, int bodyMax, int[] buffer, int bufferSize, int[] removed) {
+      this.body = body;
+      this.bodyMax = bodyMax;
+      this.bodySize = body != null ? body.size() - removed.length : 0;
+      this.buffer = buffer;
+      this.bufferSize = bufferSize;
+      this.removed = removed;
+    }
+
+    Cursor cursor() {
+      int count = bufferSize;
+      Cursor bodyCursor = body == null ? () -> NO_MORE
+          : removed.length > 0 ? skip(body.cursor(bodyMax), removed) : body.cursor(bodyMax);
+      return new Cursor() {
+        private int bodyHead = bodyCursor.next();
+        private int index;
+
+        @Override
+        public int next() {
+          if (index < count && (bodyHead == NO_MORE || buffer[index] < bodyHead)) {
+            return buffer[index++];
+          }
+          int ordinal = bodyHead;
+          if (ordinal != NO_MORE) {
+            bodyHead = bodyCursor.next();
+          }
+          return ordinal;
+        }
+      };
+    }
+  }
+
+  /**
+   * Gives the ordinals of a cursor that are not removed.
+   */
+  private static Cursor skip(Cursor cursor, int[] removed) {
+    return new Cursor() {
+      private int index;
+
+      @Override
+      public int next() {
+        while (true) {
+          int ordinal = cursor.next();
+          while (index < removed.length && removed[index] < ordinal) {
+            index++;
+          }
+          if (index == removed.length || removed[index] != ordinal) {
+            return ordinal;
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * Iterates ordinals in ascending order.
+   */
+  private interface Cursor {
+
+    /**
+     * Gets the next ordinal.
+     *
+     * @return the next ordinal, NO_MORE once all were given
+     */
+    int next();
+  }
+
+  /**
+   * A compressed form of the list. Writers only append ordinals above the
+   * current max, readers are bounded by the max they were published with.
+   */
+  private interface Body {
+
+    void append(int ordinal);
+
+    boolean contains(int ordinal);
+
+    Cursor cursor(int max);
+
+    int getMax();
+
+    int size();
+
+    long getSizeInBytes();
+  }
+
+  /**
+   * Blocks of BLOCK_SIZE ordinals, each a first ordinal and the varint encoded
+   * gaps to the next ones.
+   */
+  private static class DeltaBlockBody implements Body {
+
+    private static final int BLOCK_SIZE = 128;
+
+    private volatile byte[] gaps = new byte[16];
+    private volatile int[] firstOrdinals = new int[1];
+    private volatile int[] blockOffsets = new int[1];
+    private volatile int size;
+    private int gapsLength;
+    private int max = NO_MORE;
+
+    @Override
+    public void append(int ordinal) {
+      int count = size;
+      if (count % BLOCK_SIZE == 0) {
+        int block = count / BLOCK_SIZE;
+        if (block == firstOrdinals.length) {
+          firstOrdinals = Arrays.copyOf(firstOrdinals, block * 2);
+          blockOffsets = Arrays.copyOf(blockOffsets, block * 2);
+        }
+        firstOrdinals[block] = ordinal;
+        blockOffsets[block] = gapsLength;
+      } else {
+        if (gapsLength + 5 > gaps.length) {
+          gaps = Arrays.copyOf(gaps, gaps.length * 2);
+        }
+        byte[] current = gaps;
+        int gap = ordinal - max;
+        while ((gap & ~0x7F) != 0) {
+          current[gapsLength++] = (byte) ((gap & 0x7F) | 0x80);
+          gap >>>= 7;
+        }
+        current[gapsLength++] = (byte) gap;
+      }
+      max = ordinal;
+      size = count + 1;
+    }
+
+    @Override
+    public boolean contains(int ordinal) {
+      int count = size;
+      int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+      int[] firsts = firstOrdinals;
+      int block = Arrays.binarySearch(firsts, 0, blocks, ordinal);
+      if (block >= 0) {
+        return true;
+      }
+      block = -block - 2;
+      if (block < 0) {
+        return false;
+      }
+      Cursor cursor = new BlockCursor(block, count, ordinal);
+      for (int next = cursor.next(); next != NO_MORE; next = cursor.next()) {
+        if (next == ordinal) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public Cursor cursor(int max) {
+      return new BlockCursor(0, size, max);
+    }
+
+    @Override
+    public int getMax() {
+      return max;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public long getSizeInBytes() {
+      return 48 + 16 + gaps.length + 2 * (16 + 4L * firstOrdinals.length);
+    }
+
+    /**
+     * Decodes the ordinals from a block onwards, up to max.
+     */
+    private class BlockCursor implements Cursor {
+      private final int count;
+      private final int max;
+      private final byte[] currentGaps = gaps;
+      private final int[] currentFirstOrdinals = firstOrdinals;
+      private final int[] currentBlockOffsets = blockOffsets;
+      private int index;
+      private int offset;
+      private int ordinal;
+
+      BlockCursor(int block, int count, int max) {
+        this.count = count;
+        this.max = max;
+        this.index = block * BLOCK_SIZE;
+      }
+
+      @Override
+      public int next() {
+        if (index >= count) {
+          return NO_MORE;
+        }
+        if (index % BLOCK_SIZE == 0) {
+          int block = index / BLOCK_SIZE;
+          ordinal = currentFirstOrdinals[block];
+          offset = currentBlockOffsets[block];
+        } else {
+          int gap = 0;
+          int shift = 0;
+          byte next;
+          do {
+            next = currentGaps[offset++];
+            gap |= (next & 0x7F) << shift;
+            shift += 7;
+          } while (next < 0);
+          ordinal += gap;
+        }
+        if (ordinal > max) {
+          index = count;
+          return NO_MORE;
+        }
+        index++;
+        return ordinal;
+      }
+    }
+  }
+
+  /**
+   * Roaring style containers, one per range of 65536 ordinals, holding the low
+   * 16 bits of the ordinals as a sorted array, or as a bitmap once it is the
+   * smaller of the two. An array turned into a bitmap is replaced in a copy of
+   * the containers, and the words of a bitmap are written and read atomically,
+   * so a reader sees either form whole.
+   */
+  private static class BitmapBody implements Body {
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int ARRAY_CAPACITY = 4096;
+    private static final int BITMAP_BYTES = 8192;
+    private static final int CONTAINER_OVERHEAD = 40;
+
+    private volatile int[] keys = new int[1];
+    private volatile Object[] containers = new Object[1];
+    private volatile int containerCount;
+    private int size;
+    private int max = NO_MORE;
+
+    @Override
+    public void append(int ordinal) {
+      int key = ordinal >>> 16;
+      int count = containerCount;
+      if (count == 0 || keys[count - 1] != key) {
+        if (count == keys.length) {
+          keys = Arrays.copyOf(keys, count * 2);
+          containers = Arrays.copyOf(containers, count * 2);
+        }
+        keys[count] = key;
+        containers[count] = new ArrayContainer();
+        containerCount = ++count;
+      }
+      Object container = containers[count - 1];
+      if (container instanceof ArrayContainer) {
+        ArrayContainer array = (ArrayContainer) container;
+        if (array.size < ARRAY_CAPACITY) {
+          array.append((short) ordinal);
+        } else {
+          long[] bitmap = new long[BITMAP_BYTES / 8];
+          for (int i = 0; i < array.size; i++) {
+            int low = array.values[i] & 0xFFFF;
+            bitmap[low >>> 6] |= 1L << low;
+          }
+          bitmap[(ordinal & 0xFFFF) >>> 6] |= 1L << ordinal;
+          Object[] nextContainers = containers.clone();
+          nextContainers[count - 1] = bitmap;
+          containers = nextContainers;
+        }
+      } else {
+        long[] bitmap = (long[]) container;
+        int word = (ordinal & 0xFFFF) >>> 6;
+        WORDS.setRelease(bitmap, word, (long) WORDS.getOpaque(bitmap, word) | 1L << ordinal);
+      }
+      max = ordinal;
+      size++;
+    }
+
+    @Override
+    public boolean contains(int ordinal) {
+      // The count first, the arrays read after it hold at least as many containers
+      int count = containerCount;
+      int index = Arrays.binarySearch(keys, 0, count, ordinal >>> 16);
+      if (index < 0) {
+        return false;
+      }
+      int low = ordinal & 0xFFFF;
+      Object container = containers[index];
+      if (container instanceof ArrayContainer) {
+        ArrayContainer array = (ArrayContainer) container;
+        int lowIndex = 0;
+        int highIndex = array.size - 1;
+        short[] values = array.values;
+        while (lowIndex <= highIndex) {
+          int mid = (lowIndex + highIndex) >>> 1;
+          int value = values[mid] & 0xFFFF;
+          if (value < low) {
+            lowIndex = mid + 1;
+          } else if (value > low) {
+            highIndex = mid - 1;
+          } else {
+            return true;
+          }
+        }
+        return false;
+      }
+      return ((long) WORDS.getAcquire((long[]) container, low >>> 6) & (1L << low)) != 0;
+    }
+
+    @Override
+    public Cursor cursor(int max) {
+      int count = containerCount;
+      int[] currentKeys = keys;
+      Object[] currentContainers = containers;
+      return new Cursor() {
+        private int container = -1;
+        private short[] values;
+        private int valuesSize;
+        private long[] bitmap;
+        private int index;
+        private long word;
+
+        @Override
+        public int next() {
+          while (true) {
+            if (values != null && index < valuesSize) {
+              return bounded(values[index++] & 0xFFFF);
+            }
+            if (bitmap != null) {
+              while (word == 0 && ++index < bitmap.length) {
+                word = (long) WORDS.getAcquire(bitmap, index);
+              }
+              if (word != 0) {
+                int low = index * 64 + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                return bounded(low);
+              }
+            }
+            if (++container >= count) {
+              return NO_MORE;
+            }
+            Object next = currentContainers[container];
+            values = null;
+            bitmap = null;
+            index = 0;
+            if (next instanceof ArrayContainer) {
+              ArrayContainer array = (ArrayContainer) next;
+              valuesSize = array.size;
+              values = array.values;
+            } else {
+              bitmap = (long[]) next;
+              word = (long) WORDS.getAcquire(bitmap, 0);
+            }
+          }
+        }
+
+        private int bounded(int low) {
+          int ordinal = currentKeys[container] << 16 | low;
+          if (ordinal > max) {
+            container = count;
+            values = null;
+            bitmap = null;
+            return NO_MORE;
+          }
+          return ordinal;
+        }
+      };
+    }
+
+    @Override
+    public int getMax() {
+      return max;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public long getSizeInBytes() {
+      long bytes = 40 + 2 * (16 + 4L * keys.length);
+      int count = containerCount;
+      for (int i = 0; i < count; i++) {
+        Object container = containers[i];
+        bytes += container instanceof ArrayContainer
+            ? CONTAINER_OVERHEAD + 2L * ((ArrayContainer) container).values.length
+            : 16 + BITMAP_BYTES;
+      }
+      return bytes;
+    }
+
+    /**
+     * The low 16 bits of up to ARRAY_CAPACITY ordinals, sorted.
+     */
+    private static class ArrayContainer {
+      private volatile short[] values = new short[4];
+      private volatile int size;
+
+      void append(short value) {
+        int count = size;
+        if (count == values.length) {
+          values = Arrays.copyOf(values, Math.min(count * 2, ARRAY_CAPACITY));
+        }
+        values[count] = value;
+        size = count + 1;
+      }
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package fuzzy.matching.util;
+
+import fuzzy.matching.domain.GeoPoint;
+import fuzzy.matching.exception.MatchException;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * <p>
+ * Reads a snapshot file written by SnapshotWriter sequentially through a
+ * FileChannel, filling a large direct buffer so the file is read in big
+ * blocks.
+ * </p>
+ */
+public class SnapshotReader implements Closeable {
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(SnapshotWriter.BUFFER_SIZE);
+
+  /**
+   * Constructor for SnapshotReader.
+   *
+   * @param path - the file to read
+   * @throws IOException if the file can not be opened
+   */
+  public SnapshotReader(Path path) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    buffer.flip();
+  }
+
+  public byte readByte() throws IOException {
+    ensure(1);
+    return buffer.get();
+  }
+
+  public boolean readBoolean() throws IOException {
+    return readByte() != 0;
+  }
+
+  public int readInt() throws IOException {
+    ensure(Integer.BYTES);
+    return buffer.getInt();
+  }
+
+  public long readLong() throws IOException {
+    ensure(Long.BYTES);
+    return buffer.getLong();
+  }
+
+  public double readDouble() throws IOException {
+    ensure(Double.BYTES);
+    return buffer.getDouble();
+  }
+
+  /**
+   * Reads an int written by SnapshotWriter.writeVarInt.
+   *
+   * @return the value
+   * @throws IOException if the file can not be read
+   */
+  public int readVarInt() throws IOException {
+    int value = 0;
+    int shift = 0;
+    byte next;
+    do {
+      next = readByte();
+      value |= (next & 0x7F) << shift;
+      shift += 7;
+    } while (next < 0);
+    return value;
+  }
+
+  /**
+   * Reads a String written by SnapshotWriter.writeString.
+   *
+   * @return the String, can be null
+   * @throws IOException if the file can not be read
+   */
+  public String readString() throws IOException {
+    int length = readVarInt() - 1;
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    int offset = 0;
+    while (offset < length) {
+      ensure(1);
+      int count = Math.min(buffer.remaining(), length - offset);
+      buffer.get(bytes, offset, count);
+      offset += count;
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reads a value written by SnapshotWriter.writeValue.
+   *
+   * @return the value, can be null
+   * @throws IOException if the file can not be read
+   */
+  public Object readValue() throws IOException {
+    byte type = readByte();
+    switch (type) {
+      case SnapshotWriter.NULL:
+        return null;
+      case SnapshotWriter.STRING:
+        return readString();
+      case SnapshotWriter.INTEGER:
+        return readInt();
+      case SnapshotWriter.LONG:
+        return readLong();
+      case SnapshotWriter.DOUBLE:
+        return readDouble();
+      case SnapshotWriter.FLOAT:
+        return Float.intBitsToFloat(readInt());
+      case SnapshotWriter.DATE:
+        return new Date(readLong());
+      case SnapshotWriter.BOOLEAN:
+        return readBoolean();
+      case SnapshotWriter.GEO_POINT:
+        return new GeoPoint(readDouble(), readDouble());
+      case SnapshotWriter.LOCAL_DATE:
+        return LocalDate.ofEpochDay(readLong());
+      case SnapshotWriter.INSTANT:
+        return Instant.ofEpochSecond(readLong(), readInt());
+      default:
+        throw new MatchException("Snapshot value type not supported : " + type);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void ensure(int bytes) throws IOException {
+    if (buffer.remaining() >= bytes) {
+      return;
+    }
+    buffer.compact();
+    try {
+      while (buffer.position() < bytes) {
+        if (channel.read(buffer) < 0) {
+          throw new EOFException("Snapshot ended unexpectedly");
+        }
+      }
+    } finally {
+      buffer.flip();
+    }
+  }
+}
@@ -0,0 +1,241 @@
+package fuzzy.matching.util;
+
+import fuzzy.matching.domain.GeoPoint;
+import fuzzy.matching.exception.MatchException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * <p>
+ * Writes a snapshot file sequentially through a FileChannel, staging the bytes
+ * in a large direct buffer so the file is written in big blocks.
+ * </p>
+ * Values written with writeValue are tagged with their type, and can be read
+ * back by SnapshotReader.readValue.
+ */
+public class SnapshotWriter implements Closeable {
+
+  static final int BUFFER_SIZE = 1 << 20;
+
+  static final byte NULL = 0;
+  static final byte STRING = 1;
+  static final byte INTEGER = 2;
+  static final byte LONG = 3;
+  static final byte DOUBLE = 4;
+  static final byte FLOAT = 5;
+  static final byte DATE = 6;
+  static final byte BOOLEAN = 7;
+  static final byte GEO_POINT = 8;
+  static final byte LOCAL_DATE = 9;
+  static final byte INSTANT = 10;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+  /**
+   * Constructor for SnapshotWriter, replacing any file at the path.
+   *
+   * @param path - the file to write
+   * @throws IOException if the file can not be opened
+   */
+  public SnapshotWriter(Path path) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  public void writeByte(int value) throws IOException {
+    ensure(1);
+    buffer.put((byte) value);
+  }
+
+  public void writeBoolean(boolean value) throws IOException {
+    writeByte(value ? 1 : 0);
+  }
+
+  public void writeInt(int value) throws IOException {
+    ensure(Integer.BYTES);
+    buffer.putInt(value);
+  }
+
+  public void writeLong(long value) throws IOException {
+    ensure(Long.BYTES);
+    buffer.putLong(value);
+  }
+
+  public void writeDouble(double value) throws IOException {
+    ensure(Double.BYTES);
+    buffer.putDouble(value);
+  }
+
+  /**
+   * Writes a not negative int in 1 to 5 bytes, 7 bits at a time.
+   *
+   * @param value the value, not negative
+   * @throws IOException if the file can not be written
+   */
+  public void writeVarInt(int value) throws IOException {
+    ensure(5);
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  /**
+   * Writes the bytes as they are, with no length.
+   *
+   * @param bytes the bytes
+   * @throws IOException if the file can not be written
+   */
+  public void writeBytes(byte[] bytes) throws IOException {
+    int offset = 0;
+    while (offset < bytes.length) {
+      ensure(1);
+      int length = Math.min(buffer.remaining(), bytes.length - offset);
+      buffer.put(bytes, offset, length);
+      offset += length;
+    }
+  }
+
+  /**
+   * Writes a String as its UTF-8 length and bytes.
+   *
+   * @param value the String, can be null
+   * @throws IOException if the file can not be written
+   */
+  public void writeString(String value) throws IOException {
+    if (value == null) {
+      writeVarInt(0);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(bytes.length + 1);
+    writeBytes(bytes);
+  }
+
+  /**
+   * Writes a value tagged with its type.
+   *
+   * @param value a String, Integer, Long, Double, Float, Date or Boolean, can be
+   *              null
+   * @throws IOException if the file can not be written
+   */
+  public void writeValue(Object value) throws IOException {
+    if (value == null) {
+      writeByte(NULL);
+    } else if (value instanceof String) {
+      writeByte(STRING);
+      writeString((String) value);
+    } else if (value instanceof Integer) {
+      writeByte(INTEGER);
+      writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      writeByte(LONG);
+      writeLong((Long) value);
+    } else if (value instanceof Double) {
+      writeByte(DOUBLE);
+      writeDouble((Double) value);
+    } else if (value instanceof Float) {
+      writeByte(FLOAT);
+      writeInt(Float.floatToRawIntBits((Float) value));
+    } else if (value instanceof Date) {
+      writeByte(DATE);
+      writeLong(((Date) value).getTime());
+    } else if (value instanceof Boolean) {
+      writeByte(BOOLEAN);
+      writeBoolean((Boolean) value);
+    } else if (value instanceof LocalDate) {
+      writeByte(LOCAL_DATE);
+      writeLong(((LocalDate) value).toEpochDay());
+    } else if (value instanceof Instant) {
+      writeByte(INSTANT);
+      writeLong(((Instant) value).getEpochSecond());
+      writeInt(((Instant) value).getNano());
+    } else if (value instanceof GeoPoint) {
+      writeByte(GEO_POINT);
+      writeDouble(((GeoPoint) value).getLatitude());
+      writeDouble(((GeoPoint) value).getLongitude());
+    } else {
+      throw new MatchException("Data Type not supported : " + value.getClass().getName());
+    }
+  }
+
+  /**
+   * Gets the position in the file of the next byte written.
+   *
+   * @return the position
+   * @throws IOException if the file position can not be read
+   */
+  public long getPosition() throws IOException {
+    return channel.position() + buffer.position();
+  }
+
+  /**
+   * Encodes a value as a key, its type tag followed by its bytes with no length.
+   * Keys of Strings sort as the Strings do by code point.
+   *
+   * @param value a String, Integer, Long, Double, Float, Date or Boolean
+   * @return the key
+   */
+  public static byte[] toKey(Object value) {
+    if (value instanceof String) {
+      byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+      byte[] key = new byte[bytes.length + 1];
+      key[0] = STRING;
+      System.arraycopy(bytes, 0, key, 1, bytes.length);
+      return key;
+    }
+    ByteBuffer key = ByteBuffer.allocate(1 + Long.BYTES);
+    if (value instanceof Integer) {
+      key.put(INTEGER).putInt((Integer) value);
+    } else if (value instanceof Long) {
+      key.put(LONG).putLong((Long) value);
+    } else if (value instanceof Double) {
+      key.put(DOUBLE).putDouble((Double) value);
+    } else if (value instanceof Float) {
+      key.put(FLOAT).putInt(Float.floatToRawIntBits((Float) value));
+    } else if (value instanceof Date) {
+      key.put(DATE).putLong(((Date) value).getTime());
+    } else if (value instanceof Boolean) {
+      key.put(BOOLEAN).put((byte) ((Boolean) value ? 1 : 0));
+    } else {
+      throw new MatchException("Data Type not supported : "
+          + (value == null ? null : value.getClass().getName()));
+    }
+    return Arrays.copyOf(key.array(), key.position());
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+      channel.force(false);
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void ensure(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      flush();
+    }
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
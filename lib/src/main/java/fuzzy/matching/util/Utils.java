@@ -15,6 +15,11 @@ import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
  */
 public class Utils {
 
+  private static final int MAX_BIT_PARALLEL_LENGTH = Long.SIZE;
+  private static final int ASCII_SIZE = 128;
+  private static final ThreadLocal<EditDistanceBuffers> EDIT_DISTANCE_BUFFERS =
+      ThreadLocal.withInitial(EditDistanceBuffers::new);
+
   /**
    * utility method to get n-grams of a string.
    *
@@ -95,4 +100,187 @@ public class Utils {
 
     return dp[m][n];
   }
+
+  /**
+   * utility method to calculate the edit distance between two strings, bounded
+   * by a maximum distance. Computation stops as soon as the distance is known to
+   * exceed the bound, and no memory is allocated per call.
+   * Strings of up to 64 characters use the Myers/Hyyro bit-parallel algorithm,
+   * longer ones a banded Ukkonen dynamic programming.
+   *
+   * @param s1          A String of the first string
+   * @param s2          A String of the second string
+   * @param maxDistance An integer of the maximum distance of interest
+   * @return the edit distance when it is at most maxDistance, maxDistance + 1
+   *         otherwise
+   */
+  public static int editDistance(String s1, String s2, int maxDistance) {
+    if (maxDistance < 0) {
+      throw new MatchException("Edit distance bound can not be negative");
+    }
+    String shorter = s1.length() <= s2.length() ? s1 : s2;
+    String longer = shorter == s1 ? s2 : s1;
+    int n = longer.length();
+    int m = shorter.length();
+    if (n - m > maxDistance) {
+      return maxDistance + 1;
+    }
+
+    // Common prefix and suffix do not change the distance
+    int start = 0;
+    while (start < m && shorter.charAt(start) == longer.charAt(start)) {
+      start++;
+    }
+    while (m > start && shorter.charAt(m - 1) == longer.charAt(n - 1)) {
+      m--;
+      n--;
+    }
+    if (m == start) {
+      return n - start;
+    }
+
+    if (m - start <= MAX_BIT_PARALLEL_LENGTH) {
+      return bitParallelEditDistance(shorter, longer, start, m, n, maxDistance);
+    }
+    return bandedEditDistance(shorter, longer, start, m, n, maxDistance);
+  }
+
+  /**
+   * utility method to check if two strings are within an edit distance.
+   *
+   * @param s1          A String of the first string
+   * @param s2          A String of the second string
+   * @param maxDistance An integer of the maximum edit distance, inclusive
+   * @return true if the edit distance is at most maxDistance
+   */
+  public static boolean editDistanceWithin(String s1, String s2, int maxDistance) {
+    return editDistance(s1, s2, maxDistance) <= maxDistance;
+  }
+
+  /**
+   * Spreads every bit of a hash over all the bits of the result, with the
+   * finalizer of SplitMix64. It is a bijection, distinct inputs never collide.
+   *
+   * @param value A long of the hash to be spread
+   * @return the spread hash
+   */
+  public static long mix64(long value) {
+    value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+    value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+    return value ^ (value >>> 31);
+  }
+
+  private static int bitParallelEditDistance(String pattern, String text,
+      int start, int patternEnd, int textEnd, int maxDistance) {
+    long[] peq = EDIT_DISTANCE_BUFFERS.get().peq;
+    int m = patternEnd - start;
+    for (int i = 0; i < m; i++) {
+      char c = pattern.charAt(start + i);
+      if (c < ASCII_SIZE) {
+        peq[c] |= 1L << i;
+      }
+    }
+
+    long last = 1L << (m - 1);
+    long pv = -1L;
+    long mv = 0L;
+    int score = m;
+    int result = -1;
+    for (int j = start; j < textEnd; j++) {
+      char c = text.charAt(j);
+      long eq = c < ASCII_SIZE ? peq[c] : getPatternMask(pattern, start, patternEnd, c);
+      long xv = eq | mv;
+      long xh = (((eq & pv) + pv) ^ pv) | eq;
+      long ph = mv | ~(xh | pv);
+      long mh = pv & xh;
+      if ((ph & last) != 0) {
+        score++;
+      } else if ((mh & last) != 0) {
+        score--;
+      }
+      // Every remaining text character can lower the distance by one at most
+      if (score - (textEnd - j - 1) > maxDistance) {
+        result = maxDistance + 1;
+        break;
+      }
+      ph = (ph << 1) | 1L;
+      mh = mh << 1;
+      pv = mh | ~(xv | ph);
+      mv = ph & xv;
+    }
+
+    for (int i = start; i < patternEnd; i++) {
+      char c = pattern.charAt(i);
+      if (c < ASCII_SIZE) {
+        peq[c] = 0L;
+      }
+    }
+    if (result < 0) {
+      result = score <= maxDistance ? score : maxDistance + 1;
+    }
+    return result;
+  }
+
+  private static long getPatternMask(String pattern, int start, int end, char c) {
+    long mask = 0L;
+    for (int i = start; i < end; i++) {
+      if (pattern.charAt(i) == c) {
+        mask |= 1L << (i - start);
+      }
+    }
+    return mask;
+  }
+
+  private static int bandedEditDistance(String s1, String s2,
+      int start, int end1, int end2, int maxDistance) {
+    int m = end1 - start;
+    int n = end2 - start;
+    int far = maxDistance + 1;
+    EditDistanceBuffers buffers = EDIT_DISTANCE_BUFFERS.get();
+    int[] prev = buffers.getRow(0, n + 1);
+    int[] cur = buffers.getRow(1, n + 1);
+
+    for (int j = 0; j <= n; j++) {
+      prev[j] = j <= maxDistance ? j : far;
+    }
+    for (int i = 1; i <= m; i++) {
+      int lo = Math.max(1, i - maxDistance);
+      int hi = Math.min(n, i + maxDistance);
+      cur[lo - 1] = lo == 1 && i <= maxDistance ? i : far;
+      int rowMin = cur[lo - 1];
+      char c = s1.charAt(start + i - 1);
+      for (int j = lo; j <= hi; j++) {
+        int value = prev[j - 1] + (c == s2.charAt(start + j - 1) ? 0 : 1);
+        value = Math.min(value, prev[j] + 1);
+        value = Math.min(value, cur[j - 1] + 1);
+        cur[j] = Math.min(value, far);
+        rowMin = Math.min(rowMin, cur[j]);
+      }
+      if (hi < n) {
+        cur[hi + 1] = far;
+      }
+      if (rowMin > maxDistance) {
+        return far;
+      }
+      int[] swap = prev;
+      prev = cur;
+      cur = swap;
+    }
+    return Math.min(prev[n], far);
+  }
+
+  /**
+   * Per thread scratch space for the bounded edit distance.
+   */
+  private static class EditDistanceBuffers {
+    private final long[] peq = new long[ASCII_SIZE];
+    private final int[][] rows = new int[2][0];
+
+    int[] getRow(int index, int size) {
+      if (rows[index].length < size) {
+        rows[index] = new int[Math.max(size, rows[index].length * 2)];
+      }
+      return rows[index];
+    }
+  }
 }
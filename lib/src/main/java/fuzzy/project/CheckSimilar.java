@@ -1,13 +1,12 @@
 package fuzzy.project;
 
-import fuzzy.matching.component.MatchService;
+import fuzzy.matching.component.MatchIndex;
 import fuzzy.matching.domain.Document;
 import fuzzy.matching.domain.Match;
 import fuzzy.project.domain.UserDocument;
 import fuzzy.project.model.SimilarUser;
 import fuzzy.project.model.User;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -17,9 +16,41 @@ import java.util.TreeSet;
 public class CheckSimilar {
   private final Set<SimilarUser> users;
 
+  /**
+   * Constructs a new CheckSimilar object with the specified user and list of
+   * users, indexed for this user only.
+   *
+   * @param user  the user
+   * @param users the list of users to compare with
+   */
   public CheckSimilar(User user, List<User> users) {
-    this.users = getSimilarUsers(user.toUserDocument(),
-        users.stream().map(User::toUserDocument).toList());
+    try (MatchIndex index = createIndex(users)) {
+      this.users = getSimilarUsers(user.toUserDocument(), index);
+    }
+  }
+
+  /**
+   * Constructs a new CheckSimilar object with the specified user, matched
+   * against an index of users built once with createIndex.
+   *
+   * @param user  the user
+   * @param index the index of the users to compare with
+   */
+  public CheckSimilar(User user, MatchIndex index) {
+    this.users = getSimilarUsers(user.toUserDocument(), index);
+  }
+
+  /**
+   * Creates the index of users to check similar users against, to be reused
+   * for every user checked, and closed once done.
+   *
+   * @param users the list of users
+   * @return the index of the users
+   */
+  public static MatchIndex createIndex(List<User> users) {
+    MatchIndex index = new MatchIndex();
+    index.putAll(users.stream().map(User::toUserDocument).toList());
+    return index;
   }
 
   public Set<SimilarUser> getUsers() {
@@ -30,16 +61,13 @@ public class CheckSimilar {
    * Get similar users.
    *
    * @param user  the user
-   * @param users the list of users
+   * @param index the index of the users
    * @return the set of similar users
    */
-  private Set<SimilarUser> getSimilarUsers(Document user, List<Document> users) {
-    MatchService matchService = new MatchService();
-    Map<Document, List<Match<Document>>> result = matchService.applyMatch(user, users);
-
-    List<Match<Document>> matches = result.values().stream().findFirst().orElse(null);
+  private Set<SimilarUser> getSimilarUsers(Document user, MatchIndex index) {
+    List<Match<Document>> matches = index.query(user);
 
-    if (matches == null) {
+    if (matches.isEmpty()) {
       throw new RuntimeException("No matches found");
     }
 
@@ -1,6 +1,6 @@
 package fuzzy.project;
 
-import fuzzy.matching.component.MatchService;
+import fuzzy.matching.component.MatchIndex;
 import fuzzy.matching.domain.Document;
 import fuzzy.matching.domain.Match;
 import fuzzy.project.domain.UserDocument;
@@ -8,7 +8,6 @@ import fuzzy.project.model.Book;
 import fuzzy.project.model.User;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 /**
@@ -24,8 +23,34 @@ public class Recommendations {
    */
   public Recommendations(User user, List<User> users) {
     this.alreadyRead = new HashSet<>(user.getBookList());
-    this.recommendations = getAllRecommendations(user.toUserRecommendations(),
-        users.stream().map(User::toUserRecommendations).toList());
+    try (MatchIndex index = createIndex(users)) {
+      this.recommendations = getAllRecommendations(user.toUserRecommendations(), index);
+    }
+  }
+
+  /**
+   * Constructs a new Recommendations object with the specified user, matched
+   * against an index of users built once with createIndex.
+   *
+   * @param user  the user
+   * @param index the index of the users to get recommendations from
+   */
+  public Recommendations(User user, MatchIndex index) {
+    this.alreadyRead = new HashSet<>(user.getBookList());
+    this.recommendations = getAllRecommendations(user.toUserRecommendations(), index);
+  }
+
+  /**
+   * Creates the index of users to get recommendations from, to be reused for
+   * every user, and closed once done.
+   *
+   * @param users the list of users
+   * @return the index of the users
+   */
+  public static MatchIndex createIndex(List<User> users) {
+    MatchIndex index = new MatchIndex();
+    index.putAll(users.stream().map(User::toUserRecommendations).toList());
+    return index;
   }
 
   public Set<Book> getRecommendations() {
@@ -38,17 +63,14 @@ public class Recommendations {
    *
    * @param user  The document of the user for whom recommendations are to be
    *              retrieved.
-   * @param users The list of documents of other users.
+   * @param index The index of the documents of other users.
    * @return A set of books that are recommended for the given user.
    * @throws RuntimeException if no matches are found.
    */
-  private Set<Book> getAllRecommendations(Document user, List<Document> users) {
-    MatchService matchService = new MatchService();
-    Map<Document, List<Match<Document>>> result = matchService.applyMatch(user, users);
-
-    List<Match<Document>> matches = result.values().stream().findFirst().orElse(null);
+  private Set<Book> getAllRecommendations(Document user, MatchIndex index) {
+    List<Match<Document>> matches = index.query(user);
 
-    if (matches == null) {
+    if (matches.isEmpty()) {
       throw new RuntimeException("No matches found");
     }
 
@@ -0,0 +1,68 @@
+package fuzzy.matching.component;
+
+import static fuzzy.matching.domain.ElementType.ADDRESS;
+import static fuzzy.matching.domain.ElementType.NAME;
+import static fuzzy.matching.domain.ElementType.PHONE;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import fuzzy.matching.domain.BlockingKey;
+import fuzzy.matching.domain.Document;
+import fuzzy.matching.domain.Match;
+import fuzzy.matching.function.BlockingFunction;
+import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Perf test of matching the big data Documents against each other, and only
+ * within the blocks of a name and zip pass and a phone pass.
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class BlockingPerfTest {
+
+  // The first round includes warming up
+  private static final int ROUNDS = 3;
+
+  @Test
+  public void itShouldApplyMatchWithinBlocks() throws FileNotFoundException {
+    List<BlockingKey> blockingKeys = List.of(
+        new BlockingKey.Builder("name-zip")
+            .addPart(NAME, BlockingFunction.firstSoundex())
+            .addPart(ADDRESS, BlockingFunction.lastDigits(5))
+            .createBlockingKey(),
+        new BlockingKey.Builder("phone")
+            .addPart(PHONE, BlockingFunction.lastDigits(4))
+            .createBlockingKey());
+
+    for (int round = 0; round < ROUNDS; round++) {
+      Set<String> matches = applyMatch(new MatchService(), "no blocking");
+      MatchService blockingMatchService = new MatchService(blockingKeys);
+      Set<String> blockMatches = applyMatch(blockingMatchService, "blocking");
+
+      assertTrue(matches.containsAll(blockMatches));
+      System.out.println("Blocking recall : " + (double) blockMatches.size() / matches.size()
+          + ", comparisons : " + blockingMatchService.getComparisonCounts());
+    }
+  }
+
+  private Set<String> applyMatch(MatchService matchService, String name)
+      throws FileNotFoundException {
+    List<Document> documents = new MatchServicePerfTest().getBigDataDocuments()
+        .collect(Collectors.toList());
+
+    long startTime = System.nanoTime();
+    Map<String, List<Match<Document>>> result = matchService.applyMatchByDocId(documents);
+    long duration = (System.nanoTime() - startTime) / 1000000;
+
+    Set<String> matches = result.values().stream()
+        .flatMap(List::stream)
+        .map(match -> match.getData().getKey() + "-" + match.getMatchedWith().getKey())
+        .collect(Collectors.toSet());
+    System.out.println("Execution time (ms) for " + documents.size() + " documents with "
+        + name + " : " + duration + ", matches : " + matches.size());
+    return matches;
+  }
+}
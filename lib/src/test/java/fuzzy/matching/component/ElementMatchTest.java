@@ -1,14 +1,20 @@
 package fuzzy.matching.component;
 
 import static fuzzy.matching.domain.ElementType.ADDRESS;
+import static fuzzy.matching.domain.ElementType.EMAIL;
 import static fuzzy.matching.domain.ElementType.NAME;
+import static fuzzy.matching.domain.ElementType.TEXT;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import fuzzy.matching.domain.Document;
 import fuzzy.matching.domain.Element;
+import fuzzy.matching.domain.ElementClassification;
 import fuzzy.matching.domain.ElementType;
 import fuzzy.matching.domain.Match;
+import fuzzy.matching.domain.TokenWeighting;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Test;
@@ -109,6 +115,120 @@ public class ElementMatchTest {
     assertEquals(1.0, matchSet.iterator().next().getResult(), 0.0);
   }
 
+  @Test
+  public void itShouldNotCarryScoresToTheNextElement() {
+    Element element1 = getElement(ADDRESS, "123 new Street Minneapolis");
+    Element element2 = getElement(ADDRESS, "123 new Street Minneapolis");
+    Element element3 = getElement(ADDRESS, "456 college raod, Ohio");
+
+    elementMatch.matchElement(element1);
+    Set<Match<Element>> matchSet2 = elementMatch.matchElement(element2);
+    assertEquals(1, matchSet2.size());
+    assertEquals(1.0, matchSet2.iterator().next().getResult(), 0.0);
+
+    Set<Match<Element>> matchSet3 = elementMatch.matchElement(element3);
+    assertEquals(0, matchSet3.size());
+  }
+
+  @Test
+  public void itShouldFilterCandidatesOnceBeforeCountingTheirHits() {
+    Element element1 = getElement(ADDRESS, "123 new Street Minneapolis");
+    Element element2 = getElement(ADDRESS, "123 new Street Minneapolis");
+    Element element3 = getElement(ADDRESS, "123 new Street Minneapolis");
+    elementMatch.matchElement(element1);
+    elementMatch.matchElement(element2, ElementMatch.ALL_CANDIDATES);
+
+    Map<Element, Integer> tested = new HashMap<>();
+    Set<Match<Element>> matchSet = elementMatch.matchElement(element3, matchElement -> {
+      tested.merge(matchElement, 1, Integer::sum);
+      return matchElement == element2;
+    });
+    assertEquals(1, matchSet.size());
+    assertEquals(element2, matchSet.iterator().next().getMatchedWith());
+    // Hit by each of the 4 Tokens, yet filtered once each
+    assertEquals(Map.of(element1, 1, element2, 1), tested);
+  }
+
+  @Test
+  public void itShouldOnlyCountDemotedTokensForOtherCandidates() {
+    ElementMatch cappedElementMatch = new ElementMatch();
+    ElementClassification address = new ElementClassification(ADDRESS, null);
+    cappedElementMatch.getTokenRepo().setDocumentFrequencyCap(address, 2);
+    cappedElementMatch.matchElement(getElement(ADDRESS, "Ohio 111"));
+    cappedElementMatch.matchElement(getElement(ADDRESS, "Ohio 222"));
+    cappedElementMatch.matchElement(getElement(ADDRESS, "Ohio 333"));
+
+    Set<Match<Element>> matchSet = cappedElementMatch.matchElement(
+        getElement(ADDRESS, "Ohio 111"));
+    assertEquals(1, matchSet.size());
+    assertEquals(1.0, matchSet.iterator().next().getResult(), 0.0);
+    // Address words are matched by their Soundex code
+    assertEquals(Map.of("O000", 3), cappedElementMatch.getTokenRepo().getDemotedTokens()
+        .get(address));
+  }
+
+  @Test
+  public void itShouldNotMatchOnCommonTokensWithIdfWeighting() {
+    ElementMatch idfElementMatch = new ElementMatch();
+    idfElementMatch.getTokenRepo().setTokenWeighting(
+        new ElementClassification(ADDRESS, null), TokenWeighting.IDF);
+    idfElementMatch.matchElement(getElement(ADDRESS, "Ohio 111"));
+    idfElementMatch.matchElement(getElement(ADDRESS, "Ohio 222"));
+    idfElementMatch.matchElement(getElement(ADDRESS, "Ohio 333"));
+
+    // Counting Tokens, sharing Ohio scores 0.5 with each of them
+    assertEquals(0, idfElementMatch.matchElement(getElement(ADDRESS, "Ohio 444")).size());
+
+    Set<Match<Element>> matchSet = idfElementMatch.matchElement(getElement(ADDRESS, "Ohio 222"));
+    assertEquals(1.0, matchSet.stream().mapToDouble(Match::getResult).max().getAsDouble(), 0.0);
+  }
+
+  @Test
+  public void itShouldMatchEmailsFromMinHashCandidates() {
+    ElementMatch lshElementMatch = new ElementMatch();
+    ElementClassification email = new ElementClassification(EMAIL, null);
+    Element element1 = getElement(EMAIL, "jparker@gmail.com");
+    lshElementMatch.matchElement(element1);
+    // Indexes the Elements already put
+    lshElementMatch.getTokenRepo().setMinHashCandidates(email, 16, 2);
+    lshElementMatch.matchElement(getElement(EMAIL, "mwilson@gmail.com"));
+
+    Element element3 = getElement(EMAIL, "jparker1@yahoo.com");
+    Set<Match<Element>> matchSet = lshElementMatch.matchElement(element3);
+    assertEquals(1, matchSet.size());
+    Match<Element> match = matchSet.iterator().next();
+    assertEquals(element1, match.getMatchedWith());
+    // Scored on the Tokens as without MinHash, 5 trigrams out of 6
+    assertEquals(5.0 / 6, match.getResult(), 0.0001);
+  }
+
+  @Test
+  public void itShouldOnlyMatchNearDuplicateTextFromSimHashCandidates() {
+    ElementMatch simHashElementMatch = new ElementMatch();
+    simHashElementMatch.getTokenRepo().setSimHashCandidates(
+        new ElementClassification(TEXT, null), 6);
+    Element element1 = getElement(TEXT, "Nineteen Eighty-Four is a dystopian novel by George "
+        + "Orwell, published in 1949. It is set in a totalitarian society where the government, "
+        + "led by the Party and its leader Big Brother, exercises complete control over all "
+        + "aspects of the lives of people.");
+    simHashElementMatch.matchElement(element1);
+    // Shares enough words to match by Token, but is no near duplicate
+    Element element2 = getElement(TEXT, "Brave New World is a dystopian novel by Aldous Huxley, "
+        + "published in 1932. It is set in a World State where citizens are engineered into a "
+        + "hierarchy, and the society is kept content by the drug soma and constant "
+        + "entertainment.");
+    assertEquals(0, simHashElementMatch.matchElement(element2).size());
+    elementMatch.matchElement(element1);
+    assertEquals(1, elementMatch.matchElement(element2).size());
+
+    Set<Match<Element>> matchSet = simHashElementMatch.matchElement(getElement(TEXT,
+        "Nineteen Eighty-Four is a dystopian novel by George Orwell, published in 1949. It is "
+        + "set in a totalitarian society where the state, led by the Party and its leader Big "
+        + "Brother, exercises complete control over all aspects of the lives of people."));
+    assertEquals(1, matchSet.size());
+    assertEquals(element1, matchSet.iterator().next().getMatchedWith());
+  }
+
   private Element getElement(ElementType elementType, String value) {
     Element<String> element = new Element.Builder().setType(elementType)
         .setValue(value).createElement();
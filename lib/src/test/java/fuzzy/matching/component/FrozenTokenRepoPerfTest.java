@@ -0,0 +1,60 @@
+package fuzzy.matching.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import fuzzy.matching.domain.Document;
+import fuzzy.matching.domain.Token;
+import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Perf test of building and probing a frozen TokenRepo with the big data,
+ * against a TokenRepo with the same Documents put one by one.
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class FrozenTokenRepoPerfTest {
+
+  private static final int PROBE_ROUNDS = 5;
+
+  @Test
+  public void itShouldProbeFrozenRepoForBigData() throws FileNotFoundException {
+    List<Document> documents = new MatchServicePerfTest().getBigDataDocuments()
+        .collect(Collectors.toList());
+    List<Token> tokens = documents.stream()
+        .flatMap(document -> document.getPreProcessedElement().stream())
+        .flatMap(element -> ((List<Token>) element.getTokens()).stream())
+        .collect(Collectors.toList());
+
+    long startTime = System.nanoTime();
+    TokenRepo tokenRepo = new TokenRepo();
+    tokenRepo.putAll(documents);
+    long putDuration = (System.nanoTime() - startTime) / 1000000;
+
+    startTime = System.nanoTime();
+    TokenRepo frozenTokenRepo = TokenRepo.build(documents);
+    long buildDuration = (System.nanoTime() - startTime) / 1000000;
+    System.out.println("Build time (ms) for " + documents.size() + " documents, put : "
+        + putDuration + ", frozen : " + buildDuration);
+
+    long hits = probe(tokenRepo, tokens, "put");
+    assertEquals(hits, probe(frozenTokenRepo, tokens, "frozen"));
+  }
+
+  private long probe(TokenRepo tokenRepo, List<Token> tokens, String name) {
+    long hits = 0;
+    long startTime = System.nanoTime();
+    for (int round = 0; round < PROBE_ROUNDS; round++) {
+      long[] roundHits = new long[1];
+      for (Token token : tokens) {
+        tokenRepo.get(token, ordinal -> roundHits[0]++);
+      }
+      hits = roundHits[0];
+    }
+    long duration = (System.nanoTime() - startTime) / 1000000;
+    System.out.println("Probe time (ms) for " + PROBE_ROUNDS + " x " + tokens.size()
+        + " tokens, " + name + " : " + duration);
+    return hits;
+  }
+}
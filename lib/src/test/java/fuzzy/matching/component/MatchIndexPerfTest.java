@@ -0,0 +1,77 @@
+package fuzzy.matching.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import fuzzy.matching.domain.Document;
+import fuzzy.matching.domain.Match;
+import java.io.FileNotFoundException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Perf test of checking single Documents against the big data Documents, by
+ * matching each against the whole list, and by querying an index built once.
+ */
+public class MatchIndexPerfTest {
+
+  private static final int QUERIES = 100;
+  private static final int TOP_K = 5;
+
+  @Test
+  public void itShouldQueryIndexBuiltOnce() throws FileNotFoundException {
+    List<Document> matchWith = new MatchServicePerfTest().getBigDataDocuments()
+        .skip(QUERIES).collect(Collectors.toList());
+    List<Document> queries = new MatchServicePerfTest().getBigDataDocuments()
+        .limit(QUERIES).collect(Collectors.toList());
+
+    long startTime = System.nanoTime();
+    MatchIndex matchIndex = new MatchIndex();
+    matchIndex.putAll(matchWith);
+    System.out.println("Build time (ms) for " + matchWith.size() + " documents : "
+        + (System.nanoTime() - startTime) / 1000000);
+
+    // The first pass includes warming up
+    for (int pass = 0; pass < 2; pass++) {
+      long queryTime = 0;
+      long topQueryTime = 0;
+      long applyMatchTime = 0;
+      for (Document query : queries) {
+        startTime = System.nanoTime();
+        List<Match<Document>> queryMatches = matchIndex.query(query);
+        queryTime += System.nanoTime() - startTime;
+        Set<String> matches = getMatchedKeys(queryMatches);
+
+        startTime = System.nanoTime();
+        List<Match<Document>> topMatches = matchIndex.query(query, TOP_K);
+        topQueryTime += System.nanoTime() - startTime;
+        assertEquals(queryMatches.stream().map(Match::getResult)
+            .sorted(Comparator.reverseOrder()).limit(TOP_K).collect(Collectors.toList()),
+            topMatches.stream().map(Match::getResult).collect(Collectors.toList()));
+
+        startTime = System.nanoTime();
+        Set<String> applyMatches = new MatchService().applyMatch(query, matchWith).values()
+            .stream()
+            .flatMap(List::stream)
+            .filter(match -> match.getData() == query)
+            .map(match -> match.getMatchedWith().getKey())
+            .collect(Collectors.toSet());
+        applyMatchTime += System.nanoTime() - startTime;
+
+        assertEquals(applyMatches, matches);
+      }
+      System.out.println("Average time (ms) per document, applyMatch : "
+          + applyMatchTime / QUERIES / 1000000.0 + ", query : "
+          + queryTime / QUERIES / 1000000.0 + ", top " + TOP_K + " query : "
+          + topQueryTime / QUERIES / 1000000.0);
+    }
+  }
+
+  private Set<String> getMatchedKeys(List<Match<Document>> matches) {
+    return matches.stream()
+        .map(match -> match.getMatchedWith().getKey())
+        .collect(Collectors.toSet());
+  }
+}
@@ -0,0 +1,259 @@
+package fuzzy.matching.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import fuzzy.matching.domain.Document;
+import fuzzy.matching.domain.Element;
+import fuzzy.matching.domain.ElementType;
+import fuzzy.matching.domain.Match;
+import fuzzy.matching.domain.Token;
+import fuzzy.matching.exception.MatchException;
+import fuzzy.matching.function.TokenizerFunction;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for MatchIndex.
+ */
+public class MatchIndexTest {
+
+  @Test
+  public void itShouldMatchAddedDocumentsWithDocumentsInIndex() {
+    MatchIndex matchIndex = new MatchIndex();
+    assertTrue(matchIndex.add(getDocument("1", "James Parker", "jparker@email.com")).isEmpty());
+    assertTrue(matchIndex.add(getDocument("2", "Mary Smith", "msmith@email.com")).isEmpty());
+
+    List<Match<Document>> matches = matchIndex.add(
+        getDocument("3", "James Parker", "jparker@email.com"));
+    assertEquals(List.of("1"), getMatchedKeys(matches));
+    assertEquals("3", matches.get(0).getData().getKey());
+    assertEquals(3, matchIndex.size());
+    assertThrows(MatchException.class,
+        () -> matchIndex.add(getDocument("3", "Mary Smith", "msmith@email.com")));
+  }
+
+  @Test
+  public void itShouldNotMatchPreviousVersionOfUpdatedDocument() {
+    MatchIndex matchIndex = new MatchIndex();
+    matchIndex.add(getDocument("1", "James Parker", "jparker@email.com"));
+    matchIndex.add(getDocument("2", "Mary Smith", "msmith@email.com"));
+
+    Document updated = getDocument("1", "Mary Smith", "msmith@email.com");
+    assertEquals(List.of("2"), getMatchedKeys(matchIndex.update(updated)));
+    assertEquals(updated, matchIndex.getDocument("1"));
+    assertTrue(matchIndex.add(getDocument("3", "James Parker", "jparker@email.com")).isEmpty());
+    assertEquals(List.of("1", "2"),
+        getMatchedKeys(matchIndex.add(getDocument("4", "Mary Smith", "msmith@email.com"))));
+  }
+
+  @Test
+  public void itShouldNotMatchRemovedDocument() {
+    MatchIndex matchIndex = new MatchIndex();
+    matchIndex.add(getDocument("1", "James Parker", "jparker@email.com"));
+    assertTrue(matchIndex.remove(getDocument("1", "", "")));
+    assertFalse(matchIndex.remove(getDocument("1", "", "")));
+    assertNull(matchIndex.getDocument("1"));
+    assertEquals(0, matchIndex.size());
+    assertTrue(matchIndex.add(getDocument("2", "James Parker", "jparker@email.com")).isEmpty());
+  }
+
+  @Test
+  public void itShouldKeepOneVersionOfDocumentsUpdatedConcurrently() throws Exception {
+    MatchIndex matchIndex = new MatchIndex();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      threads.add(Thread.ofPlatform().start(() -> {
+        for (int i = 0; i < 50; i++) {
+          String key = String.valueOf(i % 10);
+          matchIndex.update(getDocument(key, "James Parker", "jparker@email.com"));
+          if (i % 7 == 0) {
+            matchIndex.remove(getDocument(key, "", ""));
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (int i = 0; i < 10; i++) {
+      matchIndex.update(getDocument(String.valueOf(i), "James Parker", "jparker@email.com"));
+    }
+    assertEquals(10, matchIndex.size());
+    assertEquals(List.of("0", "1", "2", "3", "4", "5", "6", "7", "8", "9"), getMatchedKeys(
+        matchIndex.query(getDocument("10", "James Parker", "jparker@email.com"))));
+  }
+
+  @Test
+  public void itShouldQueryDocumentsWithoutAddingThem() {
+    MatchIndex matchIndex = new MatchIndex();
+    matchIndex.putAll(List.of(getDocument("1", "James Parker", "jparker@email.com"),
+        getDocument("2", "Mary Smith", "msmith@email.com")));
+    assertEquals(2, matchIndex.size());
+    assertThrows(MatchException.class,
+        () -> matchIndex.putAll(List.of(getDocument("2", "Mary Smith", "msmith@email.com"))));
+
+    Document query = getDocument("3", "James Parker", "jparker@email.com");
+    List<Match<Document>> matches = matchIndex.query(query);
+    assertEquals(List.of("1"), getMatchedKeys(matches));
+    assertEquals(query, matches.get(0).getData());
+    // Neither the query nor the Documents queried are put
+    assertEquals(List.of("1"), getMatchedKeys(matchIndex.query(List.of(query,
+        getDocument("4", "James Parker", "jparker@email.com")))).stream().distinct()
+        .collect(Collectors.toList()));
+    assertNull(matchIndex.getDocument("3"));
+    assertEquals(2, matchIndex.size());
+    assertTrue(matchIndex.query(getDocument("1", "James Parker", "jparker@email.com"))
+        .isEmpty());
+  }
+
+  @Test
+  public void itShouldQueryBestMatchesOfDocument() {
+    MatchIndex matchIndex = new MatchIndex();
+    matchIndex.putAll(List.of(getDocument("1", "James Parker", "jparker@email.com"),
+        getDocument("2", "James Parker", "james@email.com"),
+        getDocument("3", "James Parker", "jparker@email.com"),
+        getDocument("4", "Jim Parker", "jparker@email.com"),
+        getDocument("5", "Mary Smith", "msmith@email.com")));
+
+    Document query = getDocument("6", "James Parker", "jparker@email.com");
+    List<Match<Document>> matches = matchIndex.query(query).stream()
+        .sorted(Comparator.comparingDouble((Match<Document> match) -> match.getResult())
+            .reversed().thenComparing(match -> match.getMatchedWith().getKey()))
+        .collect(Collectors.toList());
+    assertEquals(List.of("1", "3", "4"), getMatchedKeys(matches));
+    for (int k = 1; k <= matches.size() + 1; k++) {
+      List<Match<Document>> topMatches = matchIndex.query(query, k);
+      assertEquals(matches.subList(0, Math.min(k, matches.size())).stream()
+          .map(match -> match.getMatchedWith().getKey()).collect(Collectors.toList()),
+          topMatches.stream().map(match -> match.getMatchedWith().getKey())
+              .collect(Collectors.toList()));
+    }
+    // The tie of the best score is ordered by key
+    assertEquals(List.of("1", "3"), matchIndex.query(query, 2).stream()
+        .map(match -> match.getMatchedWith().getKey()).collect(Collectors.toList()));
+    assertThrows(MatchException.class, () -> matchIndex.query(query, 0));
+  }
+
+  @Test
+  public void itShouldQueryDocumentsAsynchronously() {
+    try (MatchIndex matchIndex = new MatchIndex(new TokenRepo(), List.of(), 4)) {
+      matchIndex.putAll(List.of(getDocument("1", "James Parker", "jparker@email.com"),
+          getDocument("2", "Mary Smith", "msmith@email.com")));
+
+      List<CompletableFuture<List<Match<Document>>>> futures = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        futures.add(i % 2 == 0
+            ? matchIndex.queryAsync(getDocument("q" + i, "James Parker", "jparker@email.com"))
+            : matchIndex.queryAsync(
+                List.of(getDocument("q" + i, "Mary Smith", "msmith@email.com"))));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        assertEquals(List.of(i % 2 == 0 ? "1" : "2"), getMatchedKeys(futures.get(i).join()));
+      }
+      assertThrows(MatchException.class, () -> new MatchIndex(new TokenRepo(), List.of(), 0));
+    }
+  }
+
+  @Test
+  public void itShouldBoundAndCancelAsynchronousQueries() throws Exception {
+    try (MatchIndex matchIndex = new MatchIndex(new TokenRepo(), List.of(), 1)) {
+      matchIndex.putAll(List.of(getDocument("1", "James Parker", "jparker@email.com")));
+
+      CountDownLatch started = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      Function<Element<String>, Stream<Token<String>>> blockingTokenizer = element -> {
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return TokenizerFunction.wordSoundexEncodeTokenizer().apply(element);
+      };
+      Document blocking = new Document.Builder("blocking")
+          .addElement(new Element.Builder<String>().setType(ElementType.NAME)
+              .setValue("James Parker")
+              .setTokenizerFunction(blockingTokenizer)
+              .createElement())
+          .createDocument();
+
+      CompletableFuture<List<Match<Document>>> first = matchIndex.queryAsync(blocking);
+      assertTrue(started.await(10, TimeUnit.SECONDS));
+      CompletableFuture<List<Match<Document>>> waiting =
+          matchIndex.queryAsync(getDocument("2", "James Parker", "jparker@email.com"));
+      // The only query in flight is blocked
+      assertThrows(TimeoutException.class, () -> waiting.get(200, TimeUnit.MILLISECONDS));
+      assertTrue(waiting.cancel(true));
+      assertTrue(waiting.isCancelled());
+
+      release.countDown();
+      assertEquals(List.of("1"), getMatchedKeys(first.get(10, TimeUnit.SECONDS)));
+      assertEquals(List.of("1"), getMatchedKeys(matchIndex.queryAsync(
+          getDocument("3", "James Parker", "jparker@email.com")).get(10, TimeUnit.SECONDS)));
+
+      CompletableFuture<List<Match<Document>>> failing = matchIndex.queryAsync(
+          new Document.Builder("4").addElement(new Element.Builder<String>()
+              .setType(ElementType.NAME).setValue("James Parker")
+              .setTokenizerFunction(element -> {
+                throw new MatchException("Tokenizer failed");
+              })
+              .createElement()).createDocument());
+      assertTrue(assertThrows(Exception.class, () -> failing.get(10, TimeUnit.SECONDS))
+          .getCause() instanceof MatchException);
+
+      // An Error completes the future too
+      CompletableFuture<List<Match<Document>>> erring = matchIndex.queryAsync(
+          new Document.Builder("5").addElement(new Element.Builder<String>()
+              .setType(ElementType.NAME).setValue("James Parker")
+              .setTokenizerFunction(element -> {
+                throw new StackOverflowError();
+              })
+              .createElement()).createDocument());
+      assertTrue(assertThrows(Exception.class, () -> erring.get(10, TimeUnit.SECONDS))
+          .getCause() instanceof StackOverflowError);
+    }
+  }
+
+  @Test
+  public void itShouldNotQueryAsynchronouslyOnceClosed() throws Exception {
+    MatchIndex matchIndex = new MatchIndex();
+    matchIndex.putAll(List.of(getDocument("1", "James Parker", "jparker@email.com")));
+    CompletableFuture<List<Match<Document>>> future =
+        matchIndex.queryAsync(getDocument("2", "James Parker", "jparker@email.com"));
+    matchIndex.close();
+    // The queries already made are done
+    assertTrue(future.isDone());
+    assertEquals(List.of("1"), getMatchedKeys(future.get()));
+    assertThrows(MatchException.class,
+        () -> matchIndex.queryAsync(getDocument("3", "James Parker", "jparker@email.com")));
+    assertEquals(List.of("1"),
+        getMatchedKeys(matchIndex.query(getDocument("3", "James Parker", "jparker@email.com"))));
+  }
+
+  private List<String> getMatchedKeys(List<Match<Document>> matches) {
+    return matches.stream().map(match -> match.getMatchedWith().getKey()).sorted()
+        .collect(Collectors.toList());
+  }
+
+  private Document getDocument(String key, String name, String email) {
+    return new Document.Builder(key)
+        .addElement(new Element.Builder<String>().setType(ElementType.NAME).setValue(name)
+            .createElement())
+        .addElement(new Element.Builder<String>().setType(ElementType.EMAIL).setValue(email)
+            .createElement())
+        .createDocument();
+  }
+}
@@ -4,6 +4,7 @@ import static fuzzy.matching.domain.ElementType.ADDRESS;
 import static fuzzy.matching.domain.ElementType.AGE;
 import static fuzzy.matching.domain.ElementType.DATE;
 import static fuzzy.matching.domain.ElementType.EMAIL;
+import static fuzzy.matching.domain.ElementType.GEO;
 import static fuzzy.matching.domain.ElementType.NAME;
 import static fuzzy.matching.domain.ElementType.NUMBER;
 import static fuzzy.matching.domain.ElementType.PHONE;
@@ -14,10 +15,13 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
 import com.opencsv.CSVWriter;
+import fuzzy.matching.domain.BlockingKey;
 import fuzzy.matching.domain.Document;
 import fuzzy.matching.domain.Element;
 import fuzzy.matching.domain.ElementType;
+import fuzzy.matching.domain.GeoPoint;
 import fuzzy.matching.domain.Match;
+import fuzzy.matching.function.BlockingFunction;
 import fuzzy.matching.function.PreProcessFunction;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
@@ -34,6 +38,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -829,6 +838,27 @@ public class MatchServiceTest {
     assertEquals(2, result.size());
   }
 
+  @Test
+  public void itShouldApplyMatchWithGeoPointsWithinRadius() {
+    List<Object> points = Arrays.asList(
+        new GeoPoint(44.9778, -93.2650), // Minneapolis
+        new GeoPoint(44.9800, -93.2700), // about 450 m away
+        new GeoPoint(44.9537, -93.0900), // St. Paul, about 14 km away
+        new GeoPoint(-16.5000, 179.9990), // Fiji, either side of the antimeridian
+        new GeoPoint(-16.5000, -179.9990));
+    List<Document> documentList = getTestDocuments(points, GEO, null);
+    Map<Document, List<Match<Document>>> result = matchService.applyMatch(documentList);
+    assertEquals(4, result.size());
+
+    List<Document> wideDocumentList = points.stream()
+        .map(point -> new Document.Builder(point.toString()).addElement(new Element.Builder()
+            .setType(GEO).setValue(point).setRadius(20).createElement()).createDocument())
+        .collect(Collectors.toList());
+    Map<Document, List<Match<Document>>> wideResult = matchService.applyMatch(wideDocumentList);
+    assertEquals(5, wideResult.size());
+    assertEquals(2, wideResult.get(wideDocumentList.get(2)).size());
+  }
+
   @Test
   public void itShouldApplyMatchWithAge() {
     List<Object> numbers = Arrays
@@ -998,4 +1028,297 @@ public class MatchServiceTest {
         .map(entry -> entry.getKey().getKey()).collect(Collectors.toList()),
         CoreMatchers.hasItems("1", "2"));
   }
+
+  @Test
+  public void itShouldApplyMatchInParallelWithSameResults() throws FileNotFoundException {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      MatchService parallelMatchService = new MatchService(List.of(), pool);
+      MatchServicePerfTest perfTest = new MatchServicePerfTest();
+      assertEquals(
+          getMatchedKeys(matchService.applyMatchByDocId(
+              perfTest.getBigDataDocuments().limit(1000).collect(Collectors.toList()))),
+          getMatchedKeys(parallelMatchService.applyMatchByDocId(
+              perfTest.getBigDataDocuments().limit(1000).collect(Collectors.toList()))));
+
+      assertEquals(
+          getMatchedKeys(matchService.applyMatchByDocId(
+              perfTest.getBigDataDocuments().limit(200).collect(Collectors.toList()),
+              perfTest.getBigDataDocuments().skip(200).limit(800).collect(Collectors.toList()))),
+          getMatchedKeys(parallelMatchService.applyMatchByDocId(
+              perfTest.getBigDataDocuments().limit(200).collect(Collectors.toList()),
+              perfTest.getBigDataDocuments().skip(200).limit(800).collect(Collectors.toList()))));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void itShouldApplyMatchTopK() throws FileNotFoundException {
+    List<Document> documents = getTestDocuments();
+    for (int i = 0; i < documents.size(); i++) {
+      Document document = documents.get(i);
+      List<Document> matchWith = new ArrayList<>(documents);
+      matchWith.remove(i);
+      List<String> matches = getRankedMatches(
+          matchService.applyMatch(document, matchWith).getOrDefault(document, List.of()));
+
+      for (int k = 1; k <= 3; k++) {
+        assertEquals(matches.subList(0, Math.min(k, matches.size())),
+            getRankedMatches(matchService.applyMatchTopK(document, matchWith, k)));
+      }
+    }
+
+    // Queried whatever its source flag, and not matched with its own key
+    Document document = documents.get(0);
+    document.setSource(false);
+    List<Match<Document>> topMatches = matchService.applyMatchTopK(document, documents, 10);
+    assertTrue(!topMatches.isEmpty());
+    assertTrue(topMatches.stream()
+        .noneMatch(match -> match.getMatchedWith().getKey().equals(document.getKey())));
+  }
+
+  private List<String> getRankedMatches(List<Match<Document>> matches) {
+    return matches.stream()
+        .sorted(Comparator.comparingDouble((Match<Document> match) -> match.getResult())
+            .reversed().thenComparing(match -> match.getMatchedWith().getKey()))
+        .map(match -> match.getMatchedWith().getKey() + ":" + match.getResult())
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  public void itShouldApplyMatchAsStream() throws FileNotFoundException {
+    List<String> expected = getMatchPairs(matchService.applyMatch(getTestDocuments()).values()
+        .stream().flatMap(List::stream));
+
+    Stream<Match<Document>> matches = matchService.applyMatchStream(getTestDocuments().stream());
+    assertEquals(expected, getMatchPairs(matches));
+  }
+
+  @Test
+  public void itShouldApplyMatchFromPublisherOnDemand() throws Exception {
+    List<String> expected = getMatchPairs(matchService.applyMatch(getTestDocuments()).values()
+        .stream().flatMap(List::stream));
+
+    List<Match<Document>> matches = new ArrayList<>();
+    CountDownLatch completed = new CountDownLatch(1);
+    Flow.Subscription[] subscription = new Flow.Subscription[1];
+    Throwable[] error = new Throwable[1];
+    try (SubmissionPublisher<Document> documents = new SubmissionPublisher<>()) {
+      matchService.applyMatchPublisher(documents).subscribe(new Flow.Subscriber<>() {
+        @Override
+        public void onSubscribe(Flow.Subscription s) {
+          subscription[0] = s;
+          s.request(1);
+        }
+
+        @Override
+        public void onNext(Match<Document> match) {
+          synchronized (matches) {
+            matches.add(match);
+          }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+          error[0] = throwable;
+          completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+          completed.countDown();
+        }
+      });
+      getTestDocuments().forEach(documents::submit);
+    }
+
+    // Only the match requested is given
+    assertTrue(!completed.await(500, TimeUnit.MILLISECONDS));
+    synchronized (matches) {
+      assertEquals(1, matches.size());
+    }
+    subscription[0].request(Long.MAX_VALUE);
+    assertTrue(completed.await(10, TimeUnit.SECONDS));
+    assertEquals(null, error[0]);
+    assertEquals(expected, getMatchPairs(matches.stream()));
+  }
+
+  private List<String> getMatchPairs(Stream<Match<Document>> matches) {
+    return matches
+        .map(match -> match.getData().getKey() + "-" + match.getMatchedWith().getKey() + ":"
+            + match.getScore().getResult())
+        .sorted()
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  public void itShouldApplyMatchWithDocumentInBothLists() {
+    Function<String, Document> getDocument = key -> new Document.Builder(key)
+        .addElement(new Element.Builder().setType(NAME).setValue("James Parker").createElement())
+        .addElement(new Element.Builder().setType(EMAIL).setValue("jparker@email.com")
+            .createElement())
+        .createDocument();
+    Document document = getDocument.apply("1");
+    Document other = getDocument.apply("2");
+
+    // Matched against first, then as a source, matching its own version too
+    Map<String, List<Match<Document>>> result = matchService.applyMatchByDocId(
+        List.of(document), List.of(other, document));
+    assertEquals(List.of("1"), new ArrayList<>(result.keySet()));
+    assertEquals(List.of("1", "1", "2"), result.get("1").stream()
+        .map(match -> match.getMatchedWith().getKey()).sorted().collect(Collectors.toList()));
+
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      // Matched in parallel, the same way
+      result = new MatchService(List.of(), pool).applyMatchByDocId(
+          List.of(document), List.of(other, document));
+      assertEquals(List.of("1"), new ArrayList<>(result.keySet()));
+      assertEquals(List.of("1", "1", "2"), result.get("1").stream()
+          .map(match -> match.getMatchedWith().getKey()).sorted().collect(Collectors.toList()));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void itShouldApplyMatchWithOverlappingListsInParallelAsSequentially() {
+    Function<String, Document> getDocument = key -> new Document.Builder(key)
+        .addElement(new Element.Builder().setType(NAME).setValue("James Parker").createElement())
+        .addElement(new Element.Builder().setType(EMAIL).setValue("jparker@email.com")
+            .createElement())
+        .createDocument();
+    List<Document> all = new ArrayList<>();
+    for (int i = 1; i <= 6; i++) {
+      all.add(getDocument.apply(String.valueOf(i)));
+    }
+    List<Document> documents = List.of(all.get(0), all.get(2), all.get(3), all.get(5));
+    List<Document> matchWith = List.of(all.get(1), all.get(3), all.get(4), all.get(0));
+
+    Map<String, List<String>> expected = getMatchedKeys(
+        matchService.applyMatchByDocId(documents, matchWith));
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      assertEquals(expected, getMatchedKeys(
+          new MatchService(List.of(), pool).applyMatchByDocId(documents, matchWith)));
+    } finally {
+      pool.shutdown();
+    }
+    // Documents in both lists match their own version, and get reversed matches
+    assertEquals(List.of("1", "1", "2", "3", "4", "4", "5", "6"), expected.get("1").stream()
+        .map(matchedKey -> matchedKey.split(":")[0]).collect(Collectors.toList()));
+    assertEquals(List.of("1", "2", "4", "4", "5", "6"), expected.get("3").stream()
+        .map(matchedKey -> matchedKey.split(":")[0]).collect(Collectors.toList()));
+  }
+
+  private Map<String, List<String>> getMatchedKeys(Map<String, List<Match<Document>>> result) {
+    Map<String, List<String>> matchedKeys = new HashMap<>();
+    result.forEach((key, matches) -> matchedKeys.put(key, matches.stream()
+        .map(match -> match.getMatchedWith().getKey() + ":" + match.getScore().getResult())
+        .sorted()
+        .collect(Collectors.toList())));
+    return matchedKeys;
+  }
+
+  @Test
+  public void itShouldApplyMatchOnlyWithinBlocks() {
+    List<Document> inputData = new ArrayList<>();
+    inputData.add(new Document.Builder("1")
+        .addElement(new Element.Builder().setType(NAME).setValue("James Parker").createElement())
+        .addElement(new Element.Builder().setType(ADDRESS)
+            .setValue("123 new st. Minneapolis MN 55401").createElement())
+        .createDocument());
+    inputData.add(new Document.Builder("2")
+        .addElement(new Element.Builder().setType(NAME).setValue("Jim Parker").createElement())
+        .addElement(new Element.Builder().setType(ADDRESS)
+            .setValue("123 new Street, minneapolis mn 55401").createElement())
+        .createDocument());
+    inputData.add(new Document.Builder("3")
+        .addElement(new Element.Builder().setType(NAME).setValue("James Parker").createElement())
+        .addElement(new Element.Builder().setType(ADDRESS)
+            .setValue("123 new st. Minneapolis MN 55402").createElement())
+        .createDocument());
+
+    assertEquals(3, matchService.applyMatch(inputData).size());
+
+    BlockingKey nameZip = new BlockingKey.Builder("name-zip")
+        .addPart(NAME, BlockingFunction.firstSoundex())
+        .addPart(ADDRESS, BlockingFunction.lastDigits(5))
+        .createBlockingKey();
+    BlockingKey zip = new BlockingKey.Builder("zip")
+        .addPart(ADDRESS, BlockingFunction.lastDigits(5))
+        .createBlockingKey();
+    MatchService blockingMatchService = new MatchService(List.of(nameZip, zip));
+    Map<Document, List<Match<Document>>> result = blockingMatchService.applyMatch(inputData);
+    assertEquals(2, result.size());
+    assertThat(result.entrySet().stream()
+        .map(entry -> entry.getKey().getKey()).collect(Collectors.toList()),
+        CoreMatchers.hasItems("1", "2"));
+    assertEquals(Map.of("zip", 1L), blockingMatchService.getComparisonCounts());
+  }
+
+  @Test
+  public void itShouldApplyMatchWithDocumentBlockingKeys() {
+    BlockingKey zip = new BlockingKey.Builder("zip")
+        .addPart(ADDRESS, BlockingFunction.lastDigits(5))
+        .createBlockingKey();
+    List<Document> inputData = new ArrayList<>();
+    inputData.add(new Document.Builder("1")
+        .addElement(new Element.Builder().setType(NAME).setValue("James Parker").createElement())
+        .addElement(new Element.Builder().setType(ADDRESS)
+            .setValue("123 new st. Minneapolis MN 55401").createElement())
+        .addBlockingKey(zip)
+        .createDocument());
+    inputData.add(new Document.Builder("2")
+        .addElement(new Element.Builder().setType(NAME).setValue("James Parker").createElement())
+        .addElement(new Element.Builder().setType(ADDRESS)
+            .setValue("123 new st. Minneapolis MN 55402").createElement())
+        .addBlockingKey(zip)
+        .createDocument());
+    inputData.add(new Document.Builder("3")
+        .addElement(new Element.Builder().setType(NAME).setValue("James Parker").createElement())
+        .addElement(new Element.Builder().setType(ADDRESS)
+            .setValue("123 new st. Minneapolis MN 55403").createElement())
+        .createDocument());
+
+    Map<String, List<Match<Document>>> result = matchService.applyMatchByDocId(inputData);
+    assertEquals(2, result.get("3").size());
+    assertEquals(1, result.get("1").size());
+    assertEquals(1, result.get("2").size());
+    assertEquals(Map.of(), matchService.getComparisonCounts());
+  }
+
+  @Test
+  public void itShouldApplyMatchWithEveryDocumentForNoBlockingKeyValue() {
+    BlockingKey zip = new BlockingKey.Builder("zip")
+        .addPart(ADDRESS, BlockingFunction.lastDigits(5))
+        .createBlockingKey();
+    List<Document> inputData = new ArrayList<>();
+    inputData.add(new Document.Builder("1")
+        .addElement(new Element.Builder().setType(NAME).setValue("James Parker").createElement())
+        .addElement(new Element.Builder().setType(ADDRESS)
+            .setValue("123 new st. Minneapolis MN 55401").createElement())
+        .createDocument());
+    inputData.add(new Document.Builder("2")
+        .addElement(new Element.Builder().setType(NAME).setValue("James Parker").createElement())
+        .createDocument());
+    inputData.add(new Document.Builder("3")
+        .addElement(new Element.Builder().setType(NAME).setValue("James Parker").createElement())
+        .addElement(new Element.Builder().setType(ADDRESS)
+            .setValue("123 new st. Minneapolis MN 55402").createElement())
+        .createDocument());
+
+    MatchService blockingMatchService = new MatchService(List.of(zip));
+    Map<String, List<Match<Document>>> result = blockingMatchService.applyMatchByDocId(inputData);
+    assertEquals(List.of("2"), getMatchedWithKeys(result.get("1")));
+    assertEquals(List.of("1", "3"), getMatchedWithKeys(result.get("2")));
+    assertEquals(List.of("2"), getMatchedWithKeys(result.get("3")));
+    assertEquals(Map.of(), blockingMatchService.getComparisonCounts());
+  }
+
+  private List<String> getMatchedWithKeys(List<Match<Document>> matches) {
+    return matches.stream().map(match -> match.getMatchedWith().getKey()).sorted()
+        .collect(Collectors.toList());
+  }
 }
@@ -0,0 +1,78 @@
+package fuzzy.matching.component;
+
+import static fuzzy.matching.domain.ElementType.EMAIL;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import fuzzy.matching.domain.Document;
+import fuzzy.matching.domain.Element;
+import fuzzy.matching.domain.ElementClassification;
+import fuzzy.matching.domain.Match;
+import java.io.FileNotFoundException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Perf test of matching long trigram Elements of the big data with the
+ * candidates of their Tokens, against the candidates of a MinHash LSH index.
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class MinHashPerfTest {
+
+  private static final int BANDS = 12;
+  private static final int ROWS = 3;
+  private static final double THRESHOLD = 0.6;
+  // The first round includes warming up
+  private static final int ROUNDS = 3;
+
+  @Test
+  public void itShouldMatchLongEmailsWithMinHashCandidates() throws FileNotFoundException {
+    for (int round = 0; round < ROUNDS; round++) {
+      Set<Match<Element>> tokenMatches = match(new ElementMatch(), "Token candidates");
+
+      ElementMatch lshElementMatch = new ElementMatch();
+      lshElementMatch.getTokenRepo().setMinHashCandidates(
+          new ElementClassification(EMAIL, null), BANDS, ROWS);
+      Set<Match<Element>> lshMatches = match(lshElementMatch, "MinHash candidates");
+
+      assertTrue(tokenMatches.containsAll(lshMatches));
+      System.out.println("MinHash recall : " + (double) lshMatches.size() / tokenMatches.size());
+    }
+  }
+
+  private Set<Match<Element>> match(ElementMatch elementMatch, String name)
+      throws FileNotFoundException {
+    List<Element> elements = getLongEmailElements();
+    elements.forEach(Element::getTokens);
+
+    Set<Match<Element>> matches = new HashSet<>();
+    long startTime = System.nanoTime();
+    for (Element element : elements) {
+      matches.addAll(elementMatch.matchElement(element));
+    }
+    long duration = (System.nanoTime() - startTime) / 1000000;
+    System.out.println("Execution time (ms) for " + elements.size() + " emails with " + name
+        + " : " + duration + ", matches : " + matches.size());
+    return matches;
+  }
+
+  /**
+   * Gets an email of the name and address of each row of the big data, giving
+   * dozens of trigrams, many of them common.
+   */
+  private List<Element> getLongEmailElements() throws FileNotFoundException {
+    AtomicInteger index = new AtomicInteger();
+    return StreamSupport.stream(
+        MatchServiceTest.getCsvReader("Sample-Big-Data.csv").spliterator(), false).map(csv -> {
+          Element element = new Element.Builder().setType(EMAIL).setThreshold(THRESHOLD)
+              .setValue((csv[0] + "." + csv[1] + "." + csv[2]).toLowerCase() + "@mail.com")
+              .createElement();
+          new Document.Builder(index.incrementAndGet() + "").addElement(element).createDocument();
+          return element;
+        }).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,59 @@
+package fuzzy.matching.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import fuzzy.matching.domain.Document;
+import fuzzy.matching.domain.Match;
+import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Perf test of matching the big data Documents one after the other, and in two
+ * phases on pools of growing parallelism.
+ */
+public class ParallelMatchPerfTest {
+
+  private static final int[] PARALLELISMS = { 1, 2, 4, 8 };
+
+  @Test
+  public void itShouldApplyMatchInParallel() throws FileNotFoundException {
+    // The first run includes warming up
+    applyMatch(new MatchService(), "warm up");
+    Set<String> matches = applyMatch(new MatchService(), "sequential engine");
+
+    int cores = Runtime.getRuntime().availableProcessors();
+    for (int parallelism : PARALLELISMS) {
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        Set<String> parallelMatches = applyMatch(new MatchService(List.of(), pool),
+            "parallelism " + parallelism + " on " + cores + " cores");
+        assertEquals(matches, parallelMatches);
+      } finally {
+        pool.shutdown();
+      }
+    }
+  }
+
+  private Set<String> applyMatch(MatchService matchService, String name)
+      throws FileNotFoundException {
+    List<Document> documents = new MatchServicePerfTest().getBigDataDocuments()
+        .collect(Collectors.toList());
+
+    long startTime = System.nanoTime();
+    Map<String, List<Match<Document>>> result = matchService.applyMatchByDocId(documents);
+    long duration = (System.nanoTime() - startTime) / 1000000;
+
+    Set<String> matches = result.values().stream()
+        .flatMap(List::stream)
+        .map(match -> match.getData().getKey() + "-" + match.getMatchedWith().getKey())
+        .collect(Collectors.toSet());
+    System.out.println("Execution time (ms) for " + documents.size() + " documents with "
+        + name + " : " + duration + ", matches : " + matches.size());
+    return matches;
+  }
+}
@@ -0,0 +1,77 @@
+package fuzzy.matching.component;
+
+import fuzzy.matching.domain.Document;
+import fuzzy.matching.domain.Element;
+import fuzzy.matching.domain.ElementClassification;
+import fuzzy.matching.domain.Token;
+import fuzzy.matching.util.PostingList;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Perf test of the memory held per posting, with the big data scaled up by
+ * adding each of its Elements again under new ordinals.
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class PostingListPerfTest {
+
+  private static final int SCALE = 1000;
+  // A HashSet entry is a 32 byte node, plus its share of the table at the default load factor
+  private static final double HASH_SET_BYTES_PER_ENTRY = 32 + 4 / 0.75;
+
+  @Test
+  public void itShouldMeasureMemoryPerPostingForBigData() throws FileNotFoundException {
+    List<Document> documents = new MatchServicePerfTest().getBigDataDocuments()
+        .collect(Collectors.toList());
+    Map<ElementClassification, Map<Object, PostingList>> repo = new HashMap<>();
+    List<List<PostingList>> elementPostingLists = new ArrayList<>();
+    for (Document document : documents) {
+      for (Element element : (Iterable<Element>) document.getPreProcessedElement()) {
+        Map<Object, PostingList> postingLists = repo.computeIfAbsent(
+            element.getElementClassification(), classification -> new HashMap<>());
+        List<Token> tokens = element.getTokens();
+        elementPostingLists.add(tokens.stream()
+            .map(token -> postingLists.computeIfAbsent(token.getValue(), value -> new PostingList()))
+            .collect(Collectors.toList()));
+      }
+    }
+
+    long startTime = System.nanoTime();
+    int elementCount = elementPostingLists.size();
+    for (int copy = 0; copy < SCALE; copy++) {
+      for (int element = 0; element < elementCount; element++) {
+        int ordinal = copy * elementCount + element;
+        for (PostingList postingList : elementPostingLists.get(element)) {
+          postingList.add(ordinal);
+        }
+      }
+    }
+    long buildDuration = (System.nanoTime() - startTime) / 1000000;
+
+    repo.forEach((classification, postingLists) -> {
+      long postings = 0;
+      long bytes = 0;
+      for (PostingList postingList : postingLists.values()) {
+        postings += postingList.size();
+        bytes += postingList.getSizeInBytes();
+      }
+      System.out.println(classification.getElementType() + " - lists: " + postingLists.size()
+          + ", postings: " + postings + ", bytes per posting: " + (double) bytes / postings
+          + " (HashSet: " + HASH_SET_BYTES_PER_ENTRY + ")");
+    });
+
+    AtomicLong sum = new AtomicLong();
+    startTime = System.nanoTime();
+    repo.values().forEach(postingLists -> postingLists.values()
+        .forEach(postingList -> postingList.forEach(ordinal -> sum.addAndGet(ordinal))));
+    long iterationDuration = (System.nanoTime() - startTime) / 1000000;
+    System.out.println("Elements: " + elementCount * (long) SCALE + ", build (ms): "
+        + buildDuration + ", iteration over all postings (ms): " + iterationDuration);
+  }
+}
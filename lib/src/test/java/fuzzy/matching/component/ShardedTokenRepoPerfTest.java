@@ -0,0 +1,38 @@
+package fuzzy.matching.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import fuzzy.matching.domain.Document;
+import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Perf test of matching the big data against TokenRepos with more and more
+ * shards, each giving the same matches.
+ */
+public class ShardedTokenRepoPerfTest {
+
+  private static final int[] SHARD_COUNTS = { 1, 2, 4, 8 };
+
+  @Test
+  public void itShouldMatchBigDataWithShardedRepos() throws FileNotFoundException {
+    long expectedMatches = -1;
+    for (int shardCount : SHARD_COUNTS) {
+      List<Document> documents = new MatchServicePerfTest().getBigDataDocuments()
+          .collect(Collectors.toList());
+      try (TokenRepo tokenRepo = new TokenRepo(shardCount)) {
+        long startTime = System.nanoTime();
+        long matches = new DocumentMatch(tokenRepo).matchDocuments(documents.stream()).count();
+        long duration = (System.nanoTime() - startTime) / 1000000;
+        System.out.println("Execution time (ms) for " + documents.size() + " documents with "
+            + shardCount + " shards : " + duration + ", matches : " + matches);
+        if (expectedMatches < 0) {
+          expectedMatches = matches;
+        }
+        assertEquals(expectedMatches, matches);
+      }
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package fuzzy.matching.component;
+
+import static fuzzy.matching.domain.ElementType.TEXT;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import fuzzy.matching.domain.Document;
+import fuzzy.matching.domain.Element;
+import fuzzy.matching.domain.ElementClassification;
+import fuzzy.matching.domain.Match;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Perf test of finding the near duplicate paragraphs among more and more long
+ * TEXT Elements made of the big data, with the candidates of their Tokens,
+ * against the candidates of a SimHash fingerprint index.
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class SimHashPerfTest {
+
+  private static final int[] PARAGRAPH_COUNTS = { 2000, 2000, 6000, 12000 };
+  private static final int ROWS_PER_PARAGRAPH = 6;
+  private static final int DUPLICATE_EVERY = 10;
+  private static final int MAX_DISTANCE = 6;
+  private static final double THRESHOLD = 0.9;
+
+  @Test
+  public void itShouldMatchNearDuplicateTextWithSimHashCandidates()
+      throws FileNotFoundException {
+    List<String[]> rows = StreamSupport.stream(
+        MatchServiceTest.getCsvReader("Sample-Big-Data.csv").spliterator(), false)
+        .collect(Collectors.toList());
+    // The first count includes warming up
+    for (int paragraphCount : PARAGRAPH_COUNTS) {
+      Set<Match<Element>> tokenMatches = match(
+          new ElementMatch(), getParagraphElements(rows, paragraphCount), "Token candidates");
+
+      ElementMatch simHashElementMatch = new ElementMatch();
+      simHashElementMatch.getTokenRepo().setSimHashCandidates(
+          new ElementClassification(TEXT, null), MAX_DISTANCE);
+      Set<Match<Element>> simHashMatches = match(
+          simHashElementMatch, getParagraphElements(rows, paragraphCount), "SimHash candidates");
+
+      assertTrue(tokenMatches.containsAll(simHashMatches));
+      System.out.println("SimHash recall : "
+          + (double) simHashMatches.size() / tokenMatches.size());
+    }
+  }
+
+  private Set<Match<Element>> match(ElementMatch elementMatch, List<Element> elements,
+      String name) {
+    elements.forEach(Element::getTokens);
+
+    Set<Match<Element>> matches = new HashSet<>();
+    long startTime = System.nanoTime();
+    for (Element element : elements) {
+      matches.addAll(elementMatch.matchElement(element));
+    }
+    long duration = (System.nanoTime() - startTime) / 1000000;
+    System.out.println("Execution time (ms) for " + elements.size() + " paragraphs with " + name
+        + " : " + duration + ", matches : " + matches.size());
+    return matches;
+  }
+
+  /**
+   * Gets paragraphs of the fields of random rows of the big data, and a near
+   * duplicate of every few of them, the last word of the paragraph left out.
+   */
+  private List<Element> getParagraphElements(List<String[]> rows, int paragraphCount) {
+    Random random = new Random(paragraphCount);
+    List<Element> elements = new ArrayList<>();
+    for (int i = 0; i < paragraphCount; i++) {
+      StringJoiner paragraph = new StringJoiner(" ");
+      for (int j = 0; j < ROWS_PER_PARAGRAPH; j++) {
+        paragraph.add(String.join(" ", rows.get(random.nextInt(rows.size()))));
+      }
+      String value = paragraph.toString();
+      elements.add(getElement(elements.size(), value));
+      if (i % DUPLICATE_EVERY == 0) {
+        elements.add(getElement(elements.size(), value.substring(0, value.lastIndexOf(' '))));
+      }
+    }
+    return elements;
+  }
+
+  private Element getElement(int index, String value) {
+    Element element = new Element.Builder().setType(TEXT).setThreshold(THRESHOLD)
+        .setValue(value).createElement();
+    new Document.Builder(index + "").addElement(element).createDocument();
+    return element;
+  }
+}
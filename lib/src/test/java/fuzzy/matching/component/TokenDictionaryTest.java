@@ -0,0 +1,56 @@
+package fuzzy.matching.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for TokenDictionary.
+ */
+public class TokenDictionaryTest {
+
+  @Test
+  public void shouldReuseIdsOfRetiredValues() {
+    TokenDictionary tokenDictionary = new TokenDictionary();
+    tokenDictionary.add("james", 0);
+    for (int i = 0; i < 1000; i++) {
+      tokenDictionary.add("value" + i, i);
+      assertTrue(tokenDictionary.remove("value" + i, i));
+      assertNull(tokenDictionary.findPostings("value" + i));
+    }
+    assertEquals(2, tokenDictionary.size());
+    assertEquals(1, tokenDictionary.getLiveCount());
+    assertTrue(tokenDictionary.findPostings("james").contains(0));
+    assertFalse(tokenDictionary.remove("value0", 0));
+  }
+
+  @Test
+  public void shouldNotLoseOrdinalsOfValuesRetiredConcurrently() throws Exception {
+    TokenDictionary tokenDictionary = new TokenDictionary();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      int ordinal = t;
+      threads.add(Thread.ofPlatform().start(() -> {
+        for (int i = 0; i < 10000; i++) {
+          String value = "value" + i % 4;
+          tokenDictionary.add(value, ordinal);
+          assertTrue(tokenDictionary.remove(value, ordinal));
+        }
+        tokenDictionary.add("value" + ordinal % 4, ordinal);
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (int t = 0; t < 8; t++) {
+      assertTrue(tokenDictionary.findPostings("value" + t % 4).contains(t));
+    }
+    assertEquals(4, tokenDictionary.getLiveCount());
+    assertTrue(tokenDictionary.size() <= 4 + 8);
+  }
+}
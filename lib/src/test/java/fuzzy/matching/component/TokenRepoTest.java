@@ -1,21 +1,38 @@
 package fuzzy.matching.component;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import fuzzy.matching.domain.Document;
 import fuzzy.matching.domain.Element;
 import fuzzy.matching.domain.ElementType;
+import fuzzy.matching.domain.GeoPoint;
 import fuzzy.matching.domain.MatchType;
 import fuzzy.matching.domain.Token;
 import fuzzy.matching.exception.MatchException;
+import fuzzy.matching.util.Utils;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
@@ -114,6 +131,35 @@ public class TokenRepoTest {
     assertTrue(matchingElements2.contains(elements.get(6)));
   }
 
+  @Test
+  public void shouldGetForDecimalsWithNearestNeighbor() {
+    List<Object> numbers = Arrays.asList(10.5D, 11.4D, 20.1F, 19.5F, 5000000000L, 5400000000L);
+
+    List<Element> elements = getElements(numbers, ElementType.NUMBER, null);
+
+    TokenRepo tokenRepo = new TokenRepo();
+
+    elements.forEach(element -> {
+      List<Token> tokenStream = element.getTokens();
+      tokenStream.forEach(token -> tokenRepo.put(token));
+    });
+
+    Element<Number> testElement1 = new Element.Builder()
+        .setType(ElementType.NUMBER).setValue(11D).createElement();
+    Set<Element> matchingElements1 = tokenRepo.get(testElement1.getTokens().get(0));
+    assertEquals(Set.of(elements.get(0), elements.get(1)), matchingElements1);
+
+    Element<Number> testElement2 = new Element.Builder()
+        .setType(ElementType.NUMBER).setValue(20F).createElement();
+    Set<Element> matchingElements2 = tokenRepo.get(testElement2.getTokens().get(0));
+    assertEquals(Set.of(elements.get(2), elements.get(3)), matchingElements2);
+
+    Element<Number> testElement3 = new Element.Builder()
+        .setType(ElementType.NUMBER).setValue(5200000000L).createElement();
+    Set<Element> matchingElements3 = tokenRepo.get(testElement3.getTokens().get(0));
+    assertEquals(Set.of(elements.get(4), elements.get(5)), matchingElements3);
+  }
+
   @Test
   public void shouldGetForNumberWithEquality() {
     List<Object> numbers = Arrays.asList(100, 200, 1, 25, 700, 99, 210, 500);
@@ -182,6 +228,540 @@ public class TokenRepoTest {
     assertTrue(matchingElements1.contains(elements.get(3)));
   }
 
+  @Test
+  public void shouldGetForDatesWithinTolerance() {
+    List<Object> dates = Arrays.asList(
+        LocalDate.of(1980, 5, 17), Instant.parse("1980-05-20T23:30:00Z"),
+        getDate("05/10/1980 00:00:00 GMT"), LocalDate.of(1980, 6, 1));
+
+    List<Element> elements = dates.stream()
+        .map(date -> new Element.Builder().setType(ElementType.DATE).setValue(date)
+            .setZoneId(ZoneOffset.UTC).createElement())
+        .collect(Collectors.toList());
+    TokenRepo tokenRepo = new TokenRepo();
+    elements.forEach(tokenRepo::put);
+
+    // Dates of any type are matched by their day
+    Element<LocalDate> testElement1 = new Element.Builder<LocalDate>().setType(ElementType.DATE)
+        .setValue(LocalDate.of(1980, 5, 17)).setDateTolerance(3).createElement();
+    assertEquals(Set.of(elements.get(0), elements.get(1)),
+        tokenRepo.get(testElement1.getTokens().get(0)));
+
+    Element<Date> testElement2 = new Element.Builder<Date>().setType(ElementType.DATE)
+        .setValue(getDate("05/17/1980 12:00:00 GMT")).setDateTolerance(0)
+        .setZoneId(ZoneOffset.UTC).createElement();
+    assertEquals(Set.of(elements.get(0)), tokenRepo.get(testElement2.getTokens().get(0)));
+
+    // Without a tolerance, it is a part of 5 years given by the neighborhood range
+    Element<Instant> testElement3 = new Element.Builder<Instant>().setType(ElementType.DATE)
+        .setValue(Instant.parse("1980-05-17T00:00:00Z")).setNeighborhoodRange(0.995)
+        .setZoneId(ZoneOffset.UTC).createElement();
+    assertEquals(Set.of(elements.get(0), elements.get(1), elements.get(2)),
+        tokenRepo.get(testElement3.getTokens().get(0)));
+  }
+
+  @Test
+  public void shouldGetForDatesOnTheDayOfTheirZone() {
+    ZoneId tokyo = ZoneId.of("Asia/Tokyo");
+    LocalDate day = LocalDate.of(2020, 3, 1);
+    Instant midnight = day.atStartOfDay(tokyo).toInstant();
+    List<Element> elements = List.of(
+        new Element.Builder().setType(ElementType.DATE).setValue(day).createElement(),
+        new Element.Builder().setType(ElementType.DATE).setValue(Date.from(midnight))
+            .setZoneId(tokyo).createElement(),
+        new Element.Builder().setType(ElementType.DATE).setValue(midnight)
+            .setZoneId(tokyo).createElement(),
+        new Element.Builder().setType(ElementType.DATE).setValue(Date.from(midnight))
+            .setZoneId(ZoneOffset.UTC).createElement());
+    TokenRepo tokenRepo = new TokenRepo();
+    elements.forEach(tokenRepo::put);
+
+    // Midnight in Tokyo is on the day before in UTC
+    Element<LocalDate> testElement1 = new Element.Builder<LocalDate>().setType(ElementType.DATE)
+        .setValue(day).setDateTolerance(0).createElement();
+    assertEquals(Set.of(elements.get(0), elements.get(1), elements.get(2)),
+        tokenRepo.get(testElement1.getTokens().get(0)));
+
+    Element<Date> testElement2 = new Element.Builder<Date>().setType(ElementType.DATE)
+        .setValue(Date.from(midnight)).setDateTolerance(0).setZoneId(ZoneOffset.UTC)
+        .createElement();
+    assertEquals(Set.of(elements.get(3)), tokenRepo.get(testElement2.getTokens().get(0)));
+
+    // A Date in the system zone, by default, is on the day of a LocalDate there
+    Element<Date> testElement3 = new Element.Builder<Date>().setType(ElementType.DATE)
+        .setValue(Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant()))
+        .setDateTolerance(0).createElement();
+    assertTrue(tokenRepo.get(testElement3.getTokens().get(0)).contains(elements.get(0)));
+  }
+
+  @Test
+  public void shouldGetForDatesOfElementsMadeWithoutBuilder() throws Exception {
+    LocalDate day = LocalDate.of(2020, 3, 1);
+    Element<Date> element = new Element<>(ElementType.DATE, null,
+        Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant()), 1.0, 0.3, 0.9, null,
+        null, null);
+    new Document.Builder("1").addElement(element).createDocument();
+    TokenRepo tokenRepo = new TokenRepo();
+    tokenRepo.put(element);
+
+    Element<LocalDate> testElement = new Element.Builder<LocalDate>().setType(ElementType.DATE)
+        .setValue(day).setDateTolerance(0).createElement();
+    assertEquals(Set.of(element), tokenRepo.get(testElement.getTokens().get(0)));
+
+    Path path = Files.createTempFile("token-repo", ".snapshot");
+    try {
+      tokenRepo.save(path);
+      assertEquals(1, TokenRepo.load(path).get(testElement.getTokens().get(0)).size());
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  public void shouldGetForGeoWithinRadius() {
+    Random random = new Random(11);
+    List<Object> points = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      // Clustered around a few centers, including the antimeridian and a pole
+      double[] center = GEO_CENTERS[i % GEO_CENTERS.length];
+      double latitude = Math.max(-90, Math.min(90, center[0] + random.nextGaussian()));
+      double longitude = center[1] + random.nextGaussian() * 2;
+      longitude = longitude > 180 ? longitude - 360 : longitude < -180 ? longitude + 360
+          : longitude;
+      points.add(new GeoPoint(latitude, longitude));
+    }
+    List<Element> elements = getElements(points, ElementType.GEO, null);
+    TokenRepo tokenRepo = new TokenRepo();
+    elements.forEach(tokenRepo::put);
+
+    for (int i = 0; i < 200; i++) {
+      GeoPoint point = (GeoPoint) points.get(random.nextInt(points.size()));
+      double radius = new double[] { 0, 5, 50, 300 }[i % 4];
+      Element<GeoPoint> testElement = new Element.Builder<GeoPoint>().setType(ElementType.GEO)
+          .setValue(point).setRadius(radius).createElement();
+      Set<Element> expected = elements.stream()
+          .filter(element -> point.distanceTo((GeoPoint) element.getValue()) <= radius)
+          .collect(Collectors.toSet());
+      assertEquals(expected, tokenRepo.get(testElement.getTokens().get(0)));
+    }
+  }
+
+  @Test
+  public void shouldGetForIdWithEqualityDistance() {
+    List<Object> ids = Arrays.asList("AB12CD34", "AB12CD35", "XY98ZW76", "AB12CD3", "QQ12CD34");
+
+    List<Element> elements = getElements(ids, ElementType.ID, MatchType.EQUALITY_DISTANCE);
+
+    TokenRepo tokenRepo = new TokenRepo();
+
+    elements.forEach(element -> {
+      List<Token> tokenStream = element.getTokens();
+      tokenStream.forEach(token -> tokenRepo.put(token));
+    });
+    TokenRepo frozenTokenRepo = TokenRepo.build(elements.stream().map(Element::getDocument)
+        .collect(Collectors.toList()));
+
+    Element<String> testElement1 = new Element.Builder<String>()
+        .setType(ElementType.ID).setValue("AB12CD34")
+        .setMatchType(MatchType.EQUALITY_DISTANCE).createElement();
+    for (Token token : testElement1.getTokens()) {
+      Set<Element> expected = elements.stream()
+          .filter(element -> ((List<Token>) element.getTokens()).stream()
+              .anyMatch(other -> Utils.editDistance(
+                  token.getValue().toString(), other.getValue().toString()) <= 1))
+          .collect(Collectors.toSet());
+      assertEquals(expected, tokenRepo.get(token));
+      // Each value within the edit distance counts for the document frequency
+      assertEquals(expected.size(), tokenRepo.getDocumentFrequency(token));
+      assertEquals(expected.size(), frozenTokenRepo.getDocumentFrequency(token));
+    }
+  }
+
+  @Test
+  public void shouldGetForIdWithTwoEditsAndTranspositions() {
+    List<Object> ids = Arrays.asList("1234", "2143", "1256", "9999");
+
+    List<Element> elements = ids.stream().map(id -> {
+      Element element = new Element.Builder().setType(ElementType.ID).setValue(id)
+          .setMaxEditDistance(2).setTranspositions(true).createElement();
+      element.setDocument(new Document.Builder(ai.incrementAndGet() + "")
+          .addElement(element).createDocument());
+      return element;
+    }).collect(Collectors.toList());
+
+    TokenRepo tokenRepo = new TokenRepo();
+
+    elements.forEach(element -> {
+      List<Token> tokenStream = element.getTokens();
+      tokenStream.forEach(token -> tokenRepo.put(token));
+    });
+
+    Element<String> testElement1 = new Element.Builder<String>()
+        .setType(ElementType.ID).setValue("1234")
+        .setMaxEditDistance(2).setTranspositions(true).createElement();
+    Set<Element> matchingElements1 = tokenRepo.get(testElement1.getTokens().get(0));
+    assertEquals(Set.of(elements.get(0), elements.get(1), elements.get(2)), matchingElements1);
+  }
+
+  @Test
+  public void shouldRejectTranspositionsBeyondTwoEditsBeforeSearching() {
+    Element element = new Element.Builder().setType(ElementType.ID).setValue("1234")
+        .setMaxEditDistance(3).setTranspositions(true).createElement();
+    element.setDocument(new Document.Builder(ai.incrementAndGet() + "")
+        .addElement(element).createDocument());
+    Token token = (Token) element.getTokens().get(0);
+
+    assertThrows(MatchException.class, () -> new TokenRepo().put(token));
+    assertThrows(MatchException.class, () -> TokenRepo.build(List.of(element.getDocument())));
+  }
+
+  @Test
+  public void shouldNotLoseTokensPutConcurrently() throws Exception {
+    int threads = 8;
+    List<Element> elements = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      String key = ai.incrementAndGet() + "";
+      Element name = new Element.Builder().setType(ElementType.NAME)
+          .setValue("name" + (i % 300) + " other" + i).createElement();
+      Element id = new Element.Builder().setType(ElementType.ID).setValue("ID" + i * 7919)
+          .setMatchType(MatchType.EQUALITY_DISTANCE).createElement();
+      Element fuzzyId = new Element.Builder().setType(ElementType.ID).setVariance("k2")
+          .setValue("FZ" + i * 104729).setMaxEditDistance(2).createElement();
+      Element number = new Element.Builder().setType(ElementType.NUMBER).setValue(i * 10)
+          .createElement();
+      new Document.Builder(key).addElement(name).addElement(id).addElement(fuzzyId)
+          .addElement(number).createDocument();
+      elements.addAll(Arrays.asList(name, id, fuzzyId, number));
+    }
+
+    TokenRepo tokenRepo = new TokenRepo();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int offset = t;
+      futures.add(executor.submit(() -> {
+        start.await();
+        for (int i = offset; i < elements.size(); i += threads) {
+          List<Token> tokens = elements.get(i).getTokens();
+          tokens.forEach(token -> {
+            tokenRepo.put(token);
+            // readers run alongside the writers
+            tokenRepo.get(token);
+          });
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    elements.forEach(element -> {
+      List<Token> tokens = element.getTokens();
+      tokens.forEach(token -> assertTrue(tokenRepo.get(token).contains(element)));
+    });
+  }
+
+  @Test
+  public void shouldPutAllDocumentsInParallel() {
+    List<Object> names = Arrays.asList("Amy Doe", "Brian Doe", "Jane Amy", "Michael Wane");
+    List<Element> elements = getElements(names, ElementType.NAME, null);
+
+    TokenRepo tokenRepo = new TokenRepo();
+    tokenRepo.putAll(elements.stream().map(Element::getDocument).collect(Collectors.toList()));
+
+    Element<String> testElement1 = new Element.Builder<String>()
+        .setType(ElementType.NAME).setValue("Doe")
+        .createElement();
+    Set<Element> matchingElements1 = tokenRepo.get(testElement1.getTokens().get(0));
+    assertEquals(Set.of(elements.get(0), elements.get(1)), matchingElements1);
+  }
+
+  @Test
+  public void shouldGetSameElementsFromLoadedSnapshot() throws Exception {
+    List<Element> elements = getSnapshotElements();
+    TokenRepo tokenRepo = new TokenRepo();
+    elements.forEach(tokenRepo::put);
+
+    Path path = Files.createTempFile("token-repo", ".snapshot");
+    try {
+      tokenRepo.save(path);
+      TokenRepo loadedTokenRepo = TokenRepo.load(path);
+
+      elements.forEach(element -> {
+        List<Token> tokens = element.getTokens();
+        tokens.forEach(token -> {
+          Set<Element> loadedElements = loadedTokenRepo.get(token);
+          assertEquals(tokenRepo.get(token), loadedElements);
+          loadedElements.forEach(loaded -> assertEquals(0.6, loaded.getDocument().getThreshold()));
+        });
+      });
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  public void shouldGetSameElementsFromSegment() throws Exception {
+    List<Element> elements = getSnapshotElements();
+    TokenRepo tokenRepo = new TokenRepo();
+    elements.forEach(tokenRepo::put);
+
+    Path path = Files.createTempFile("token-repo", ".segment");
+    try {
+      tokenRepo.writeSegment(path);
+      TokenRepo segmentTokenRepo = TokenRepo.openSegment(path);
+
+      elements.forEach(element -> {
+        List<Token> tokens = element.getTokens();
+        tokens.forEach(token -> {
+          Set<Element> segmentElements = segmentTokenRepo.get(token);
+          assertEquals(tokenRepo.get(token), segmentElements);
+          segmentElements.forEach(
+              segmentElement -> assertEquals(0.6, segmentElement.getDocument().getThreshold()));
+        });
+      });
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  public void shouldGetElementsPutAfterOpeningSegment() throws Exception {
+    TokenRepo tokenRepo = new TokenRepo();
+    Element<String> segmentElement = new Element.Builder<String>().setType(ElementType.NAME)
+        .setValue("James Parker").createElement();
+    new Document.Builder("1").addElement(segmentElement).createDocument();
+    tokenRepo.put(segmentElement);
+
+    Path path = Files.createTempFile("token-repo", ".segment");
+    try {
+      tokenRepo.writeSegment(path);
+      TokenRepo segmentTokenRepo = TokenRepo.openSegment(path);
+      Element<String> newElement = new Element.Builder<String>().setType(ElementType.NAME)
+          .setValue("James Smith").createElement();
+      new Document.Builder("2").addElement(newElement).createDocument();
+      segmentTokenRepo.put(newElement);
+
+      Set<Element> matchingElements = segmentTokenRepo.get(newElement.getTokens().get(0));
+      assertEquals(2, matchingElements.size());
+      assertTrue(matchingElements.contains(newElement));
+      assertThrows(MatchException.class, () -> segmentTokenRepo.save(path));
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  public void shouldGetSameElementsFromFrozenRepo() {
+    List<Element> elements = getSnapshotElements();
+    TokenRepo tokenRepo = new TokenRepo();
+    elements.forEach(tokenRepo::put);
+
+    TokenRepo frozenTokenRepo = TokenRepo.build(elements.stream().map(Element::getDocument)
+        .distinct().collect(Collectors.toList()));
+    elements.forEach(element -> {
+      List<Token> tokens = element.getTokens();
+      tokens.forEach(token -> {
+        assertEquals(tokenRepo.get(token), frozenTokenRepo.get(token));
+        assertEquals(tokenRepo.getDocumentFrequency(token),
+            frozenTokenRepo.getDocumentFrequency(token));
+      });
+    });
+  }
+
+  @Test
+  public void shouldGetSameElementsFromShardedRepo() {
+    List<Element> elements = getSnapshotElements();
+    TokenRepo tokenRepo = new TokenRepo();
+    elements.forEach(tokenRepo::put);
+
+    try (TokenRepo shardedTokenRepo = new TokenRepo(4)) {
+      elements.forEach(shardedTokenRepo::put);
+      elements.forEach(element -> {
+        List<Token> tokens = element.getTokens();
+        tokens.forEach(token ->
+            assertEquals(tokenRepo.get(token), shardedTokenRepo.get(token)));
+      });
+      assertThrows(MatchException.class,
+          () -> shardedTokenRepo.save(Path.of("sharded.snapshot")));
+    }
+  }
+
+  @Test
+  public void shouldNotGetElementsOfRemovedDocuments() {
+    List<Element> elements = getSnapshotElements();
+    TokenRepo tokenRepo = new TokenRepo();
+    elements.forEach(tokenRepo::put);
+
+    List<Document> documents = elements.stream().map(Element::getDocument).distinct()
+        .collect(Collectors.toList());
+    Set<Document> removed = documents.stream().filter(document -> Integer
+        .parseInt(document.getKey()) % 3 == 0).collect(Collectors.toSet());
+    removed.forEach(document -> assertTrue(tokenRepo.remove(document)));
+    removed.forEach(document -> assertFalse(tokenRepo.remove(document)));
+
+    TokenRepo expectedTokenRepo = new TokenRepo();
+    elements.stream().filter(element -> !removed.contains(element.getDocument()))
+        .forEach(expectedTokenRepo::put);
+    elements.forEach(element -> {
+      List<Token> tokens = element.getTokens();
+      tokens.forEach(token -> {
+        assertEquals(expectedTokenRepo.get(token), tokenRepo.get(token));
+        assertEquals(expectedTokenRepo.getDocumentFrequency(token),
+            tokenRepo.getDocumentFrequency(token));
+      });
+    });
+    assertThrows(MatchException.class, () -> tokenRepo.save(Path.of("removed.snapshot")));
+  }
+
+  @Test
+  public void shouldGetOnlyNewVersionOfUpdatedDocument() {
+    TokenRepo tokenRepo = new TokenRepo();
+    Element<String> oldName = new Element.Builder<String>().setType(ElementType.NAME)
+        .setValue("James Parker").createElement();
+    Element<Number> oldNumber = new Element.Builder<Number>().setType(ElementType.NUMBER)
+        .setValue(100).createElement();
+    Document oldDocument = new Document.Builder("1").addElement(oldName).addElement(oldNumber)
+        .createDocument();
+    tokenRepo.update(oldDocument);
+
+    Element<String> newName = new Element.Builder<String>().setType(ElementType.NAME)
+        .setValue("James Smith").createElement();
+    Document newDocument = new Document.Builder("1").addElement(newName).createDocument();
+    tokenRepo.update(newDocument);
+
+    Element<String> parker = new Element.Builder<String>().setType(ElementType.NAME)
+        .setValue("Parker").createElement();
+    assertTrue(tokenRepo.get(parker.getTokens().get(0)).isEmpty());
+    assertEquals(0, tokenRepo.getDocumentFrequency(parker.getTokens().get(0)));
+    assertTrue(tokenRepo.get(oldNumber.getTokens().get(0)).isEmpty());
+    Element<String> james = new Element.Builder<String>().setType(ElementType.NAME)
+        .setValue("James").createElement();
+    assertEquals(Set.of(newName), tokenRepo.get(james.getTokens().get(0)));
+  }
+
+  @Test
+  public void shouldReuseOrdinalsOfUpdatedDocuments() throws Exception {
+    TokenRepo tokenRepo = new TokenRepo();
+    List<Document> documents = new ArrayList<>();
+    for (int update = 0; update < 1000; update++) {
+      documents.clear();
+      for (int i = 0; i < 10; i++) {
+        Document document = new Document.Builder(i + "")
+            .addElement(new Element.Builder<String>().setType(ElementType.TEXT)
+                .setValue("James Parker" + update).createElement())
+            .addElement(new Element.Builder<Number>().setType(ElementType.NUMBER)
+                .setValue(update * 10 + i).createElement())
+            .createDocument();
+        tokenRepo.update(document);
+        documents.add(document);
+      }
+    }
+
+    // The ordinals stay within the Elements held, however many were updated
+    for (Document document : documents) {
+      for (Element element : (Set<Element>) document.getPreProcessedElement()) {
+        assertTrue(tokenRepo.getOrdinal(element) < 20);
+        assertTrue(tokenRepo.get((Token) element.getTokens().get(0)).contains(element));
+      }
+    }
+    Element<String> oldName = new Element.Builder<String>().setType(ElementType.TEXT)
+        .setValue("Parker998").createElement();
+    assertTrue(tokenRepo.get(oldName.getTokens().get(0)).isEmpty());
+
+    // Every ordinal is given again, so the Repo can be saved
+    Path path = Files.createTempFile("token-repo", ".snapshot");
+    try {
+      tokenRepo.save(path);
+      TokenRepo loadedTokenRepo = TokenRepo.load(path);
+      Element<String> newName = new Element.Builder<String>().setType(ElementType.TEXT)
+          .setValue("Parker999").createElement();
+      assertEquals(10, loadedTokenRepo.get(newName.getTokens().get(0)).size());
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  public void shouldNotReuseOrdinalsOfElementsRemovedDuringRead() {
+    TokenRepo tokenRepo = new TokenRepo();
+    Element<String> oldName = new Element.Builder<String>().setType(ElementType.TEXT)
+        .setValue("James Parker").createElement();
+    tokenRepo.update(new Document.Builder("1").addElement(oldName).createDocument());
+    int oldOrdinal = tokenRepo.getOrdinal(oldName);
+
+    long readEpoch = tokenRepo.startRead();
+    Element<String> newName = new Element.Builder<String>().setType(ElementType.TEXT)
+        .setValue("James Smith").createElement();
+    tokenRepo.update(new Document.Builder("1").addElement(newName).createDocument());
+    // A read started before the removal can still hold the old ordinal
+    assertNotEquals(oldOrdinal, tokenRepo.getOrdinal(newName));
+    tokenRepo.endRead(readEpoch);
+
+    Element<String> lastName = new Element.Builder<String>().setType(ElementType.TEXT)
+        .setValue("James Brown").createElement();
+    tokenRepo.update(new Document.Builder("1").addElement(lastName).createDocument());
+    assertTrue(tokenRepo.getOrdinal(lastName) < 2);
+    assertEquals(Set.of(lastName), tokenRepo.get(lastName.getTokens().get(1)));
+  }
+
+  @Test
+  public void shouldNotOpenOtherFilesAsSegment() throws Exception {
+    Path path = Files.createTempFile("token-repo", ".segment");
+    try {
+      Files.write(path, "Name,Street,City".getBytes());
+      assertThrows(MatchException.class, () -> TokenRepo.openSegment(path));
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  private static final double[][] GEO_CENTERS = {
+      { 44.97, -93.26 }, { -16.5, 179.5 }, { 89.5, 0 }, { 0, 0 } };
+
+  private List<Element> getSnapshotElements() {
+    List<Element> elements = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      Element name = new Element.Builder().setType(ElementType.NAME)
+          .setValue("name" + (i % 40) + " other" + i).createElement();
+      Element id = new Element.Builder().setType(ElementType.ID).setValue("ID" + i * 7919)
+          .setMatchType(MatchType.EQUALITY_DISTANCE).createElement();
+      Element fuzzyId = new Element.Builder().setType(ElementType.ID).setVariance("k2")
+          .setValue("FZ" + i * 104729).setMaxEditDistance(2).setTranspositions(true)
+          .createElement();
+      Element number = new Element.Builder().setType(ElementType.NUMBER).setValue(i * 10)
+          .createElement();
+      Element decimal = new Element.Builder().setType(ElementType.NUMBER).setVariance("d")
+          .setValue(i * 0.5).createElement();
+      Element date = new Element.Builder().setType(ElementType.DATE)
+          .setValue(new Date(i * 86400000L)).createElement();
+      Element birthDate = new Element.Builder().setType(ElementType.DATE).setVariance("b")
+          .setValue(LocalDate.ofEpochDay(i * 3)).setDateTolerance(2).createElement();
+      Element geo = new Element.Builder().setType(ElementType.GEO)
+          .setValue(new GeoPoint(i % 90 * 0.01, i / 90 * 0.01)).setRadius(1.5).createElement();
+      new Document.Builder(ai.incrementAndGet() + "").setThreshold(0.6).addElement(name)
+          .addElement(id).addElement(fuzzyId).addElement(number).addElement(decimal)
+          .addElement(date).addElement(birthDate).addElement(geo).createDocument();
+      elements.addAll(Arrays.asList(name, id, fuzzyId, number, decimal, date, birthDate, geo));
+    }
+    return elements;
+  }
+
+  @Test
+  public void shouldNotLoadOtherFiles() throws Exception {
+    Path path = Files.createTempFile("token-repo", ".snapshot");
+    try {
+      Files.write(path, "Name,Street,City".getBytes());
+      assertThrows(MatchException.class, () -> TokenRepo.load(path));
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
   private Date getDate(String val) {
     DateFormat df = new SimpleDateFormat("MM/dd/yyyy HH:mm:ss z");
     try {
@@ -0,0 +1,124 @@
+package fuzzy.matching.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import fuzzy.matching.domain.Document;
+import fuzzy.matching.domain.Element;
+import fuzzy.matching.domain.ElementType;
+import fuzzy.matching.domain.Match;
+import fuzzy.matching.domain.Score;
+import fuzzy.matching.exception.MatchException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for TopMatches.
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class TopMatchesTest {
+
+  private static final String[] VARIANCES = { "a", "b", "c", "d" };
+
+  @Test
+  public void itShouldBoundTheScoreOfEveryDocumentMatched() {
+    Random random = new Random(7);
+    for (int i = 0; i < 5000; i++) {
+      Document document = getRandomDocument("q" + i, random);
+      Document candidate = getRandomDocument("c" + i, random);
+      List<Element> candidateElements = new ArrayList<>(candidate.getPreProcessedElement());
+      List<Score> childScores = new ArrayList<>();
+      for (Element element : (Iterable<Element>) document.getPreProcessedElement()) {
+        for (Element candidateElement : candidateElements) {
+          if (candidateElement.getElementClassification()
+              .equals(element.getElementClassification()) && random.nextBoolean()) {
+            double result = random.nextBoolean() ? 0.9 + random.nextDouble() * 0.1
+                : random.nextDouble();
+            childScores.add(new Match<>(element, candidateElement, result).getScore());
+          }
+        }
+      }
+      if (childScores.isEmpty()) {
+        continue;
+      }
+      double score = new Match<>(document, candidate, childScores).getResult();
+      assertTrue(TopMatches.getScoreBound(document, candidate, childScores) + 1e-9 >= score);
+    }
+  }
+
+  @Test
+  public void itShouldOnlyScoreCandidatesThatCanBeatTheBestMatches() {
+    Document document = getDocument("q", 1.0, 1.0, 1.0, 1.0);
+    TopMatches topMatches = new TopMatches(document, 5);
+    for (int i = 0; i < 100; i++) {
+      Document candidate = getDocument(String.format("%03d", i), 1.0, 1.0, 1.0, 1.0);
+      boolean best = i % 20 == 7;
+      topMatches.addCandidate(candidate, getChildScores(document, candidate,
+          best ? new double[] { 1.0, 1.0, 1.0, 1.0 } : new double[] { 0.8, 0.8, 0.8 }));
+    }
+
+    List<Match<Document>> matches = topMatches.getMatches();
+    assertEquals(List.of("007", "027", "047", "067", "087"), matches.stream()
+        .map(match -> match.getMatchedWith().getKey()).collect(Collectors.toList()));
+    assertEquals(100, topMatches.getCandidateCount());
+    assertEquals(5, topMatches.getScoredCount());
+    assertThrows(MatchException.class, () -> new TopMatches(document, 0));
+  }
+
+  @Test
+  public void itShouldKeepTheBestMatchesAboveTheThreshold() {
+    Document document = getDocument("q", 1.0, 1.0, 1.0, 1.0);
+    TopMatches topMatches = new TopMatches(document, 3);
+    for (int i = 0; i < 10; i++) {
+      Document candidate = getDocument("c" + i, 1.0, 1.0, 1.0, 1.0);
+      topMatches.addCandidate(candidate, getChildScores(document, candidate,
+          new double[] { 0.1 * i, 0.1 * i, 0.1 * i, 0.1 * i }));
+    }
+
+    assertEquals(List.of("c9", "c8", "c7"), topMatches.getMatches().stream()
+        .map(match -> match.getMatchedWith().getKey()).collect(Collectors.toList()));
+  }
+
+  private List<Score> getChildScores(Document document, Document candidate, double[] results) {
+    List<Score> childScores = new ArrayList<>();
+    for (int i = 0; i < results.length; i++) {
+      childScores.add(new Match<>(getElement(document, VARIANCES[i]),
+          getElement(candidate, VARIANCES[i]), results[i]).getScore());
+    }
+    return childScores;
+  }
+
+  private Element getElement(Document document, String variance) {
+    return (Element) document.getPreProcessedElement().stream()
+        .filter(element -> ((Element) element).getElementClassification().getVariance()
+            .equals(variance))
+        .findFirst().get();
+  }
+
+  private Document getDocument(String key, double... weights) {
+    Document.Builder builder = new Document.Builder(key);
+    for (int i = 0; i < weights.length; i++) {
+      builder.addElement(new Element.Builder<String>().setType(ElementType.TEXT)
+          .setVariance(VARIANCES[i]).setValue(key + " " + VARIANCES[i]).setWeight(weights[i])
+          .createElement());
+    }
+    return builder.createDocument();
+  }
+
+  private Document getRandomDocument(String key, Random random) {
+    Document.Builder builder = new Document.Builder(key);
+    int elementCount = 1 + random.nextInt(6);
+    for (int i = 0; i < elementCount; i++) {
+      builder.addElement(new Element.Builder<String>().setType(ElementType.TEXT)
+          .setVariance(VARIANCES[random.nextInt(VARIANCES.length)])
+          .setValue(key + " value " + i)
+          .setWeight(0.5 + random.nextInt(6) * 0.5)
+          .createElement());
+    }
+    return builder.createDocument();
+  }
+}
@@ -0,0 +1,78 @@
+package fuzzy.matching.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for BkTree.
+ */
+public class BkTreeTest {
+
+  private final List<String> terms = Arrays.asList(
+      "book", "books", "cake", "boo", "cape", "cart", "boon", "cook", "", "bookkeeper");
+
+  @Test
+  public void itShouldFindSameTermsAsLinearScan() {
+    BkTree<String> tree = new BkTree<>();
+    terms.forEach(term -> tree.put(term, term.toUpperCase()));
+
+    for (String query : Arrays.asList("book", "bo", "cakes", "x", "", "bookkeeping")) {
+      for (int maxDistance = 0; maxDistance <= 3; maxDistance++) {
+        int distance = maxDistance;
+        Set<String> expected = terms.stream()
+            .filter(term -> Utils.editDistance(query, term) <= distance)
+            .collect(Collectors.toSet());
+        Set<String> actual = new HashSet<>();
+        tree.search(query, maxDistance, (term, value) -> {
+          assertEquals(term.toUpperCase(), value);
+          actual.add(term);
+        });
+        assertEquals(expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public void itShouldReplaceValueForExistingTerm() {
+    BkTree<Integer> tree = new BkTree<>();
+    tree.put("book", 1);
+    tree.put("book", 2);
+
+    assertEquals(1, tree.size());
+    List<Integer> values = new ArrayList<>();
+    tree.search("book", 0, (term, value) -> values.add(value));
+    assertEquals(Arrays.asList(2), values);
+  }
+
+  @Test
+  public void itShouldNotFindRemovedTerms() {
+    BkTree<String> tree = new BkTree<>();
+    terms.forEach(term -> tree.put(term, term.toUpperCase()));
+    assertTrue(tree.remove("book"));
+    assertTrue(tree.remove("cake"));
+    assertFalse(tree.remove("book"));
+    assertFalse(tree.remove("bookk"));
+    assertEquals(terms.size() - 2, tree.size());
+
+    Set<String> actual = new HashSet<>();
+    tree.search("book", 1, (term, value) -> actual.add(term));
+    assertEquals(Set.of("books", "boo", "boon", "cook"), actual);
+
+    // The terms below a removed one are still found, and it can be put back
+    actual.clear();
+    tree.put("book", "BOOK");
+    tree.search("cape", 1, (term, value) -> actual.add(term));
+    tree.search("book", 0, (term, value) -> actual.add(term));
+    assertEquals(Set.of("cape", "book"), actual);
+    assertEquals(terms.size() - 1, tree.size());
+  }
+}
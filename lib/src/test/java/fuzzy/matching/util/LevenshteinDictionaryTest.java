@@ -0,0 +1,121 @@
+package fuzzy.matching.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import fuzzy.matching.exception.MatchException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for LevenshteinDictionary.
+ */
+public class LevenshteinDictionaryTest {
+
+  @Test
+  public void itShouldFindSameTermsAsLinearScan() {
+    Random random = new Random(11);
+    Set<String> terms = new HashSet<>();
+    LevenshteinDictionary<String> dictionary = new LevenshteinDictionary<>(false);
+    // enough terms to search both the automaton and the pending terms
+    for (int i = 0; i < 700; i++) {
+      String term = randomTerm(random);
+      terms.add(term);
+      dictionary.put(term, term.toUpperCase());
+    }
+    assertEquals(terms.size(), dictionary.size());
+
+    for (int i = 0; i < 200; i++) {
+      String query = randomTerm(random);
+      for (int maxDistance = 0; maxDistance <= 2; maxDistance++) {
+        Set<String> expected = new HashSet<>();
+        for (String term : terms) {
+          if (Utils.editDistance(query, term) <= maxDistance) {
+            expected.add(term);
+          }
+        }
+        Set<String> actual = new HashSet<>();
+        dictionary.search(query, maxDistance, (term, value) -> {
+          assertEquals(term.toUpperCase(), value);
+          actual.add(term);
+        });
+        assertEquals(expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public void itShouldCountTranspositionAsSingleEdit() {
+    LevenshteinDictionary<Integer> withTranspositions = new LevenshteinDictionary<>(true);
+    LevenshteinDictionary<Integer> withoutTranspositions = new LevenshteinDictionary<>(false);
+    withTranspositions.put("1234SDF", 1);
+    withoutTranspositions.put("1234SDF", 1);
+
+    Set<String> found = new HashSet<>();
+    withTranspositions.search("1243SDF", 1, (term, value) -> found.add(term));
+    assertTrue(found.contains("1234SDF"));
+
+    found.clear();
+    withoutTranspositions.search("1243SDF", 1, (term, value) -> found.add(term));
+    assertTrue(found.isEmpty());
+  }
+
+  @Test
+  public void itShouldNotSupportMoreThanTwoEdits() {
+    LevenshteinDictionary<Integer> dictionary = new LevenshteinDictionary<>(false);
+    dictionary.put("abc", 1);
+    assertThrows(MatchException.class, () -> dictionary.search("abc", 3, (term, value) -> {
+    }));
+  }
+
+  @Test
+  public void itShouldNotFindRemovedTerms() {
+    Random random = new Random(17);
+    Set<String> terms = new HashSet<>();
+    LevenshteinDictionary<String> dictionary = new LevenshteinDictionary<>(false);
+    for (int i = 0; i < 700; i++) {
+      String term = randomTerm(random);
+      terms.add(term);
+      dictionary.put(term, term.toUpperCase());
+    }
+    // Removed from the automaton and from the pending terms, some put back
+    for (int i = 0; i < 300; i++) {
+      String term = randomTerm(random);
+      if (i % 4 == 0) {
+        terms.add(term);
+        dictionary.put(term, term.toUpperCase());
+      } else {
+        assertEquals(terms.remove(term), dictionary.remove(term));
+      }
+    }
+    assertEquals(terms.size(), dictionary.size());
+
+    for (int i = 0; i < 100; i++) {
+      String query = randomTerm(random);
+      Set<String> expected = new HashSet<>();
+      for (String term : terms) {
+        if (Utils.editDistance(query, term) <= 1) {
+          expected.add(term);
+        }
+      }
+      Set<String> actual = new HashSet<>();
+      dictionary.search(query, 1, (term, value) -> {
+        assertEquals(term.toUpperCase(), value);
+        assertTrue(actual.add(term));
+      });
+      assertEquals(expected, actual);
+    }
+  }
+
+  private static String randomTerm(Random random) {
+    StringBuilder builder = new StringBuilder();
+    int length = 1 + random.nextInt(6);
+    for (int i = 0; i < length; i++) {
+      builder.append((char) ('a' + random.nextInt(4)));
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,108 @@
+package fuzzy.matching.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for LongRangeIndex.
+ */
+public class LongRangeIndexTest {
+
+  @Test
+  public void itShouldFindSameValuesAsLinearScan() {
+    Random random = new Random(3);
+    LongRangeIndex index = new LongRangeIndex();
+    List<long[]> entries = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      long key = random.nextInt(2000) - 1000;
+      entries.add(new long[] { key, i });
+      index.add(key, i);
+
+      if (i % 97 == 0) {
+        long from = random.nextInt(2200) - 1100;
+        long to = from + random.nextInt(100);
+        List<Integer> expected = new ArrayList<>();
+        entries.stream().filter(entry -> entry[0] >= from && entry[0] <= to)
+            .forEach(entry -> expected.add((int) entry[1]));
+        List<Integer> actual = new ArrayList<>();
+        index.forEachInRange(from, to, actual::add);
+        expected.sort(null);
+        actual.sort(null);
+        assertEquals(expected, actual);
+      }
+    }
+    assertEquals(5000, index.size());
+  }
+
+  @Test
+  public void itShouldNotFindRemovedValues() {
+    Random random = new Random(7);
+    LongRangeIndex index = new LongRangeIndex();
+    List<long[]> entries = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      long key = random.nextInt(2000) - 1000;
+      entries.add(new long[] { key, i });
+      index.add(key, i);
+    }
+    // Enough removals for the runs to be merged without them
+    for (int i = 0; i < 3000; i++) {
+      long[] entry = entries.remove(random.nextInt(entries.size()));
+      assertTrue(index.remove(entry[0], (int) entry[1]));
+      assertFalse(index.remove(entry[0], (int) entry[1]));
+      if (i % 10 == 0) {
+        long key = random.nextInt(2000) - 1000;
+        entries.add(new long[] { key, 5000 + i });
+        index.add(key, 5000 + i);
+      }
+
+      if (i % 97 == 0) {
+        long from = random.nextInt(2200) - 1100;
+        long to = from + random.nextInt(100);
+        List<Integer> expected = new ArrayList<>();
+        entries.stream().filter(range -> range[0] >= from && range[0] <= to)
+            .forEach(range -> expected.add((int) range[1]));
+        List<Integer> actual = new ArrayList<>();
+        index.forEachInRange(from, to, actual::add);
+        expected.sort(null);
+        actual.sort(null);
+        assertEquals(expected, actual);
+      }
+    }
+    assertEquals(entries.size(), index.size());
+    List<Integer> all = new ArrayList<>();
+    index.forEach((key, value) -> all.add(value));
+    assertEquals(entries.size(), all.size());
+  }
+
+  @Test
+  public void itShouldFindValueAddedBackAfterRemoval() {
+    LongRangeIndex index = new LongRangeIndex();
+    index.add(10, 1);
+    index.add(10, 2);
+    assertTrue(index.remove(10, 1));
+    assertFalse(index.remove(11, 2));
+    index.add(10, 1);
+    List<Integer> actual = new ArrayList<>();
+    index.forEachInRange(10, 10, actual::add);
+    actual.sort(null);
+    assertEquals(Arrays.asList(1, 2), actual);
+    assertEquals(2, index.size());
+  }
+
+  @Test
+  public void itShouldKeepDoubleOrderInSortableLong() {
+    List<Double> values = Arrays.asList(Double.NEGATIVE_INFINITY, -1e10, -2.5, -0.0, 0.0,
+        Double.MIN_VALUE, 1.0, 1.5, 3e20, Double.POSITIVE_INFINITY);
+    for (int i = 1; i < values.size(); i++) {
+      assertTrue(LongRangeIndex.toSortableLong(values.get(i - 1))
+          < LongRangeIndex.toSortableLong(values.get(i)));
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package fuzzy.matching.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for PostingList.
+ */
+public class PostingListTest {
+
+  @Test
+  public void itShouldKeepDistinctOrdinalsInOrder() {
+    Random random = new Random(5);
+    PostingList postingList = new PostingList();
+    TreeSet<Integer> expected = new TreeSet<>();
+    for (int i = 0; i < 3000; i++) {
+      // Mostly ascending, as ordinals are given out, with some out of order
+      int ordinal = i % 10 == 0 ? random.nextInt(3000) : i;
+      assertEquals(expected.add(ordinal), postingList.add(ordinal));
+    }
+    List<Integer> actual = new ArrayList<>();
+    postingList.forEach(actual::add);
+    assertEquals(new ArrayList<>(expected), actual);
+    assertEquals(expected.size(), postingList.size());
+  }
+
+  @Test
+  public void itShouldKeepSparseListsAsAddedOrdinals() {
+    assertSameAsTreeSet(100000, 20000, 7);
+  }
+
+  @Test
+  public void itShouldKeepDenseListsAsAddedOrdinals() {
+    assertSameAsTreeSet(200000, 2, 11);
+  }
+
+  @Test
+  public void itShouldGiveUnionOnce() {
+    PostingList sparse = new PostingList();
+    PostingList dense = new PostingList();
+    TreeSet<Integer> expected = new TreeSet<>();
+    for (int i = 0; i < 100000; i++) {
+      if (i % 3 == 0) {
+        dense.add(i);
+        expected.add(i);
+      }
+      if (i % 1000 == 0) {
+        sparse.add(i);
+        expected.add(i);
+      }
+    }
+    List<Integer> actual = new ArrayList<>();
+    PostingList.union(List.of(sparse, dense), actual::add);
+    assertEquals(new ArrayList<>(expected), actual);
+  }
+
+  @Test
+  public void itShouldFindAddedOrdinals() {
+    PostingList postingList = new PostingList();
+    postingList.add(7);
+    postingList.add(3);
+    assertTrue(postingList.contains(3));
+    assertTrue(postingList.contains(7));
+    assertFalse(postingList.contains(5));
+    assertFalse(postingList.add(7));
+  }
+
+  @Test
+  public void itShouldKeepOrdinalsNotRemoved() {
+    Random random = new Random(13);
+    PostingList postingList = new PostingList();
+    TreeSet<Integer> expected = new TreeSet<>();
+    for (int i = 0; i < 50000; i++) {
+      postingList.add(i);
+      expected.add(i);
+    }
+    // Enough removals from the body for it to be rebuilt, some of them added back
+    for (int i = 0; i < 20000; i++) {
+      int ordinal = random.nextInt(60000);
+      if (i % 5 == 0) {
+        assertEquals(expected.add(ordinal), postingList.add(ordinal));
+      } else {
+        assertEquals(expected.remove(ordinal), postingList.remove(ordinal));
+      }
+      if (i % 997 == 0) {
+        int probe = random.nextInt(60000);
+        assertEquals(expected.contains(probe), postingList.contains(probe));
+      }
+    }
+    List<Integer> actual = new ArrayList<>();
+    postingList.forEach(actual::add);
+    assertEquals(new ArrayList<>(expected), actual);
+    assertEquals(expected.size(), postingList.size());
+  }
+
+  @Test
+  public void itShouldBeEmptyOnceAllOrdinalsRemoved() {
+    PostingList postingList = new PostingList();
+    for (int i = 0; i < 300; i++) {
+      postingList.add(i * 7);
+    }
+    for (int i = 0; i < 300; i++) {
+      assertTrue(postingList.remove(i * 7));
+    }
+    assertFalse(postingList.remove(7));
+    assertEquals(0, postingList.size());
+    postingList.forEach(ordinal -> {
+      throw new AssertionError("Removed ordinal given : " + ordinal);
+    });
+  }
+
+  @Test
+  public void itShouldGiveReadersEveryOrdinalAddedWhileContainersGrow() throws Exception {
+    PostingList postingList = new PostingList();
+    AtomicBoolean done = new AtomicBoolean();
+    AtomicReference<String> failure = new AtomicReference<>();
+    Thread reader = Thread.ofPlatform().start(() -> {
+      while (!done.get() && failure.get() == null) {
+        int size = postingList.size();
+        int[] next = new int[1];
+        postingList.forEach(ordinal -> {
+          if (ordinal != next[0]++ && failure.get() == null) {
+            failure.set("Expected " + (next[0] - 1) + " got " + ordinal);
+          }
+        });
+        if (next[0] < size || size > 0 && !postingList.contains(size - 1)) {
+          failure.compareAndSet(null, "Missing ordinals below " + size + " : " + next[0]);
+        }
+      }
+    });
+    // Dense, so the array of each range of 65536 ordinals turns into a bitmap past 4096
+    for (int ordinal = 0; ordinal < 200000; ordinal++) {
+      postingList.add(ordinal);
+    }
+    done.set(true);
+    reader.join();
+    assertNull(failure.get());
+    assertEquals(200000, postingList.size());
+  }
+
+  private void assertSameAsTreeSet(int count, int maxGap, long seed) {
+    Random random = new Random(seed);
+    PostingList postingList = new PostingList();
+    TreeSet<Integer> expected = new TreeSet<>();
+    int ordinal = 0;
+    for (int i = 0; i < count; i++) {
+      ordinal += 1 + random.nextInt(maxGap);
+      // Some ordinals arrive late, as from a slower writer
+      int added = random.nextInt(50) == 0 ? Math.max(0, ordinal - random.nextInt(5000)) : ordinal;
+      assertEquals(expected.add(added), postingList.add(added));
+      if (i % 10007 == 0) {
+        int probe = random.nextInt(ordinal + 1);
+        assertEquals(expected.contains(probe), postingList.contains(probe));
+      }
+    }
+    List<Integer> actual = new ArrayList<>();
+    postingList.forEach(actual::add);
+    assertEquals(new ArrayList<>(expected), actual);
+    assertEquals(expected.size(), postingList.size());
+    assertTrue(postingList.getSizeInBytes() < 4L * count);
+  }
+}
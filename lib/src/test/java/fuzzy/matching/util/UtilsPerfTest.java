@@ -0,0 +1,68 @@
+package fuzzy.matching.util;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Perf test comparing the full and bounded edit distance.
+ */
+public class UtilsPerfTest {
+
+  private static final int ROUNDS = 10;
+
+  @Test
+  public void itShouldCompareEditDistanceForShortTokens() {
+    compare(15, 20000);
+  }
+
+  @Test
+  public void itShouldCompareEditDistanceForLongTokens() {
+    compare(200, 500);
+  }
+
+  private void compare(int length, int pairCount) {
+    Random random = new Random(7);
+    String[] left = new String[pairCount];
+    String[] right = new String[pairCount];
+    for (int i = 0; i < pairCount; i++) {
+      left[i] = randomId(random, length);
+      right[i] = random.nextInt(10) == 0 ? left[i] : randomId(random, length);
+    }
+
+    // warm up both paths before measuring
+    run(left, right, false);
+    run(left, right, true);
+
+    long startTime = System.nanoTime();
+    int full = run(left, right, false);
+    long fullDuration = (System.nanoTime() - startTime) / 1000000;
+
+    startTime = System.nanoTime();
+    int bounded = run(left, right, true);
+    long boundedDuration = (System.nanoTime() - startTime) / 1000000;
+
+    System.out.println("Edit distance for length " + length + ", matches " + full + "/" + bounded
+        + " - full (ms): " + fullDuration + ", bounded (ms): " + boundedDuration);
+  }
+
+  private int run(String[] left, String[] right, boolean bounded) {
+    int matches = 0;
+    for (int round = 0; round < ROUNDS; round++) {
+      for (int i = 0; i < left.length; i++) {
+        boolean match = bounded
+            ? Utils.editDistanceWithin(left[i], right[i], 1)
+            : Utils.editDistance(left[i], right[i]) <= 1;
+        matches += match ? 1 : 0;
+      }
+    }
+    return matches;
+  }
+
+  private static String randomId(Random random, int length) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      builder.append("0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".charAt(random.nextInt(36)));
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,77 @@
+package fuzzy.matching.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import fuzzy.matching.exception.MatchException;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for Utils.
+ */
+public class UtilsTest {
+
+  @Test
+  public void itShouldMatchFullEditDistanceWithinBound() {
+    Random random = new Random(42);
+    for (int i = 0; i < 5000; i++) {
+      String s1 = randomString(random, random.nextInt(90));
+      String s2 = random.nextBoolean() ? mutate(random, s1) : randomString(random, random.nextInt(90));
+      int distance = Utils.editDistance(s1, s2);
+      for (int maxDistance = 0; maxDistance <= 4; maxDistance++) {
+        int expected = distance <= maxDistance ? distance : maxDistance + 1;
+        assertEquals(expected, Utils.editDistance(s1, s2, maxDistance), s1 + " / " + s2);
+      }
+      assertEquals(distance, Utils.editDistance(s1, s2, Math.max(s1.length(), s2.length())));
+    }
+  }
+
+  @Test
+  public void itShouldHandleNonAsciiCharacters() {
+    assertEquals(1, Utils.editDistance("müller", "muller", 2));
+    assertEquals(0, Utils.editDistance("日本語", "日本語", 1));
+    assertEquals(2, Utils.editDistance("日本語テキスト", "日本話テキスㇳ", 2));
+  }
+
+  @Test
+  public void itShouldCheckEditDistanceWithin() {
+    assertTrue(Utils.editDistanceWithin("1234SDF13212356", "1234SDF13212357", 1));
+    assertFalse(Utils.editDistanceWithin("1234SDF13212356", "1234SDF132123", 1));
+    assertTrue(Utils.editDistanceWithin("", "a", 1));
+    assertThrows(MatchException.class, () -> Utils.editDistance("a", "b", -1));
+  }
+
+  private static String randomString(Random random, int length) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      builder.append((char) ('a' + random.nextInt(4)));
+    }
+    return builder.toString();
+  }
+
+  private static String mutate(Random random, String value) {
+    StringBuilder builder = new StringBuilder(value);
+    int edits = random.nextInt(5);
+    for (int i = 0; i < edits; i++) {
+      int position = builder.length() == 0 ? 0 : random.nextInt(builder.length());
+      switch (random.nextInt(3)) {
+        case 0:
+          builder.insert(position, (char) ('a' + random.nextInt(4)));
+          break;
+        case 1:
+          if (builder.length() > 0) {
+            builder.deleteCharAt(position);
+          }
+          break;
+        default:
+          if (builder.length() > 0) {
+            builder.setCharAt(position, (char) ('a' + random.nextInt(4)));
+          }
+      }
+    }
+    return builder.toString();
+  }
+}
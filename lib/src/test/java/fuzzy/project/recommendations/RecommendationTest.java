@@ -2,6 +2,7 @@ package fuzzy.project.recommendations;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import fuzzy.matching.component.MatchIndex;
 import fuzzy.project.Recommendations;
 import fuzzy.project.data.Data;
 import fuzzy.project.model.Book;
@@ -26,6 +27,20 @@ class RecommendationTest {
     System.out.println(recommendations);
   }
 
+  @Test
+  void itShouldTestRecommendationWithIndexOfAllUsers() {
+    Data data = new Data();
+    List<User> users = data.getUsers();
+    try (MatchIndex index = Recommendations.createIndex(users)) {
+      User user = users.get(104);
+      Recommendations recommendations = new Recommendations(user, index);
+      int amountRecommendations = 29;
+      assertEquals(amountRecommendations, recommendations.getRecommendations().size());
+      assertEquals(amountRecommendations,
+          new Recommendations(users.get(104), index).getRecommendations().size());
+    }
+  }
+
   @Test
   void itShouldTestRecommendation2() {
     Data data = new Data();
@@ -2,6 +2,7 @@ package fuzzy.project.similar;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import fuzzy.matching.component.MatchIndex;
 import fuzzy.project.CheckSimilar;
 import fuzzy.project.data.Data;
 import fuzzy.project.model.SimilarUser;
@@ -31,6 +32,26 @@ class SimilarTest {
     System.out.println(possibleDuplicateUsers);
   }
 
+  @Test
+  void itShouldTestSimilarWithIndexOfAllUsers() {
+    Data data = new Data();
+
+    List<User> users = data.getUsers();
+
+    try (MatchIndex index = CheckSimilar.createIndex(users)) {
+      for (int i : new int[] { 53, 104, 209 }) {
+        User user = users.get(i);
+
+        List<User> similarUsers = users.stream()
+            .filter(u -> !u.getId().equals(user.getId()))
+            .toList();
+
+        assertEquals(new CheckSimilar(user, similarUsers).getUsers().toString(),
+            new CheckSimilar(user, index).getUsers().toString());
+      }
+    }
+  }
+
   @Test
   void itShouldTestSimilar2() {
     Data data = new Data();